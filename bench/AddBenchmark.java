@@ -0,0 +1,84 @@
+import java.nio.file.Path;
+
+/**
+ * Measures the cost of one {@code add} as the CLI runs it, in a fresh file handler each time: by
+ * loading every task to find the next ID and saving, against {@link FileHandler#appendTask}, which
+ * takes the ID from the persisted sequence and appends a single record. Only the log and the
+ * slotted format can append; the JSON snapshot shows the cost of the full rewrite for comparison.
+ *
+ * <p>Usage: {@code java -cp out AddBenchmark [sizes...]}
+ */
+public class AddBenchmark {
+
+  private static final int WARMUP_ADDS = 5;
+  private static final int MEASURED_ADDS = 20;
+  private static final String[][] LAYOUTS = {
+      {"json", "snapshot"}, {"json", "log"}, {"slotted", "snapshot"}};
+
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.out.printf("%10s %18s %16s %16s%n", "tasks", "layout", "load+add (ms)", "append (ms)");
+    for (int size : sizes) {
+      for (String[] layout : LAYOUTS) {
+        System.setProperty("tasktracker.format", layout[0]);
+        System.setProperty("tasktracker.storage", layout[1]);
+        double loaded = run(size, false);
+        String appended = layout[1].equals("log") || layout[0].equals("slotted")
+            ? String.format("%.3f", run(size, true)) : "-";
+        System.out.printf("%10d %18s %16.3f %16s%n", size, layout[0] + "/" + layout[1], loaded,
+            appended);
+      }
+    }
+  }
+
+  /**
+   * Adds tasks to a fresh store one CLI invocation at a time and returns the mean time per add.
+   */
+  private static double run(int size, boolean append) throws Exception {
+    Path directory = BenchSupport.scratchDirectory();
+    try {
+      new FileHandler(directory).saveTasks(BenchSupport.tasks(size));
+      // Record the ID sequence like the first CLI run after an upgrade would
+      new FileHandler(directory).loadTasks();
+
+      long nanos = 0;
+      for (int i = 0; i < WARMUP_ADDS + MEASURED_ADDS; i++) {
+        long start = System.nanoTime();
+        FileHandler fileHandler = new FileHandler(directory);
+        Task added = append ? fileHandler.appendTask("Added task " + i) : null;
+        if (added == null) {
+          if (append) {
+            throw new IllegalStateException("Could not append task " + i);
+          }
+          TaskRepository tasks = fileHandler.loadTasks();
+          added = new Task(tasks.nextId(), "Added task " + i);
+          tasks.add(added);
+          fileHandler.saveTask(tasks, added);
+        }
+        if (i >= WARMUP_ADDS) {
+          nanos += System.nanoTime() - start;
+        }
+        if (added.getId() != size + 1 + i) {
+          throw new IllegalStateException("Task " + i + " got ID " + added.getId());
+        }
+      }
+
+      // The added tasks must survive a reload
+      TaskRepository reloaded = new FileHandler(directory).loadTasks();
+      if (reloaded.size() != size + WARMUP_ADDS + MEASURED_ADDS) {
+        throw new IllegalStateException("Expected " + (size + WARMUP_ADDS + MEASURED_ADDS)
+            + " tasks but found " + reloaded.size());
+      }
+      return nanos / 1e6 / MEASURED_ADDS;
+    } finally {
+      BenchSupport.delete(directory);
+    }
+  }
+}
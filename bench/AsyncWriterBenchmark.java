@@ -0,0 +1,129 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Compares mutations per second of the synchronous save path with the {@link AsyncTaskWriter}, for
+ * each storage layout and with fsync on. Each run changes task statuses for a fixed time:
+ * <ul>
+ *   <li>sync: one thread, every change saved by {@link FileHandler#saveTask} before the next.
+ *   <li>async: one thread that enqueues and moves on, waiting for the disk only at the end.
+ *   <li>async-wait: several threads that each wait until their change is on disk, so durable
+ *       changes share their write and sync with whatever else arrived in the same window, or
+ *       while the previous group was being written.
+ * </ul>
+ *
+ * <p>Usage: {@code java -cp out AsyncWriterBenchmark [tasks] [window ms] [threads] [seconds]}
+ */
+public class AsyncWriterBenchmark {
+
+  private static final String[][] LAYOUTS = {
+      {"json", "snapshot"}, {"json", "log"}, {"slotted", "snapshot"}};
+
+  public static void main(String[] args) throws Exception {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    long window = args.length > 1 ? Long.parseLong(args[1]) : 0;
+    int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+    double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 3;
+    long durationNanos = (long) (seconds * 1e9);
+    System.setProperty("tasktracker.fsync", "true");
+
+    System.out.printf("%d tasks, fsync on, %d ms window, %d waiting threads%n", size, window,
+        threads);
+    System.out.printf("%-18s %14s %14s %14s%n", "layout", "sync ops/s", "async ops/s",
+        "async-wait ops/s");
+    for (String[] layout : LAYOUTS) {
+      System.setProperty("tasktracker.format", layout[0]);
+      System.setProperty("tasktracker.storage", layout[1]);
+      double sync = run(size, (fileHandler, tasks) -> {
+        long count = 0;
+        long end = System.nanoTime() + durationNanos;
+        while (System.nanoTime() < end) {
+          Task task = change(tasks, count++);
+          fileHandler.saveTask(tasks, task);
+        }
+        return count;
+      });
+      double async = run(size, (fileHandler, tasks) -> {
+        long count = 0;
+        try (AsyncTaskWriter writer = new AsyncTaskWriter(fileHandler, tasks, window)) {
+          long end = System.nanoTime() + durationNanos;
+          CompletableFuture<Void> last = null;
+          while (System.nanoTime() < end) {
+            synchronized (tasks) {
+              last = writer.saveTask(change(tasks, count++));
+            }
+          }
+          last.join();
+        }
+        return count;
+      });
+      double asyncWait = run(size, (fileHandler, tasks) -> {
+        long[] counts = new long[threads];
+        try (AsyncTaskWriter writer = new AsyncTaskWriter(fileHandler, tasks, window)) {
+          long end = System.nanoTime() + durationNanos;
+          List<Thread> workers = new ArrayList<>();
+          for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(new Thread(() -> {
+              while (System.nanoTime() < end) {
+                CompletableFuture<Void> saved;
+                synchronized (tasks) {
+                  saved = writer.saveTask(change(tasks, worker + threads * counts[worker]));
+                }
+                saved.join();
+                counts[worker]++;
+              }
+            }));
+          }
+          for (Thread thread : workers) {
+            thread.start();
+          }
+          for (Thread thread : workers) {
+            thread.join();
+          }
+        }
+        long count = 0;
+        for (long workerCount : counts) {
+          count += workerCount;
+        }
+        return count;
+      });
+      System.out.printf("%-18s %14.0f %14.0f %14.0f%n", layout[0] + "/" + layout[1], sync, async,
+          asyncWait);
+    }
+  }
+
+  /**
+   * Changes the status of one task, spreading the changes over the whole list.
+   */
+  private static Task change(TaskRepository tasks, long i) {
+    Task task = tasks.get(1 + (int) ((i * 7919L) % tasks.size()));
+    Task.Status[] statuses = Task.Status.values();
+    tasks.setStatus(task, statuses[(task.getStatus().ordinal() + 1) % statuses.length]);
+    return task;
+  }
+
+  @FunctionalInterface
+  private interface Workload {
+    long run(FileHandler fileHandler, TaskRepository tasks) throws Exception;
+  }
+
+  /**
+   * Runs a workload against a fresh store and returns its mutations per second.
+   */
+  private static double run(int size, Workload workload) throws Exception {
+    Path directory = BenchSupport.scratchDirectory();
+    try {
+      FileHandler fileHandler = new FileHandler(directory);
+      fileHandler.saveTasks(BenchSupport.tasks(size));
+      TaskRepository tasks = fileHandler.loadTasks();
+      long start = System.nanoTime();
+      long count = workload.run(fileHandler, tasks);
+      return count / ((System.nanoTime() - start) / 1e9);
+    } finally {
+      BenchSupport.delete(directory);
+    }
+  }
+}
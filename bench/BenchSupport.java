@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Shared helpers for the benchmark programs and the JMH benchmarks: synthetic task lists, scratch
+ * directories, percentiles and per-thread allocation counters.
+ */
+public final class BenchSupport {
+
+  private static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 1, 1, 9, 0, 0, 123456000);
+  private static final Task.Status[] STATUSES = Task.Status.values();
+  private static final String WORDS = " with \"quoted\" words, a C:\\path and some padding text";
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private BenchSupport() {}
+
+  /**
+   * Builds a list of tasks with sequential ids, mixed statuses and descriptions of varying length.
+   *
+   * @param count The number of tasks to create.
+   * @return The generated tasks.
+   */
+  public static List<Task> tasks(int count) {
+    List<Task> tasks = new ArrayList<>(count);
+    for (int i = 1; i <= count; i++) {
+      tasks.add(task(i));
+    }
+    return tasks;
+  }
+
+  /**
+   * Builds the i-th task of {@link #tasks(int)} on its own, for filling a store without holding
+   * the whole list.
+   *
+   * @param i The task's ID, starting at 1.
+   * @return The generated task.
+   */
+  public static Task task(int i) {
+    String description = "Task number " + i + WORDS.substring(0, 10 + i % 40);
+    LocalDateTime created = BASE_TIME.plusSeconds(i * 37L);
+    return new Task(i, description, STATUSES[i % STATUSES.length], created,
+        created.plusMinutes(i % 90));
+  }
+
+  /**
+   * Creates an empty scratch directory for a benchmark run.
+   *
+   * @return The new directory.
+   */
+  public static Path scratchDirectory() throws IOException {
+    return Files.createTempDirectory("task-bench");
+  }
+
+  /**
+   * Deletes a scratch directory and everything in it.
+   *
+   * @param directory The directory to delete.
+   */
+  public static void delete(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Nearest-rank percentile of sorted nanosecond samples, in milliseconds.
+   *
+   * @param sorted The samples, sorted ascending.
+   * @param percent The percentile to return.
+   * @return The percentile in milliseconds.
+   */
+  public static double percentile(long[] sorted, int percent) {
+    int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+    return sorted[Math.max(0, rank - 1)] / 1e6;
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the calling thread.
+   *
+   * @return The allocation counter of the current thread.
+   */
+  public static long allocatedBytes() {
+    return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
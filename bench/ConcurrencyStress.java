@@ -0,0 +1,194 @@
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stress test for several processes sharing one data directory. Each child JVM runs the CLI's
+ * main method over and over, like a cron job invoking TaskTracker, adding its own tasks and marking
+ * random ones in progress. Alongside them, a quarter as many (at least one) run an interactive
+ * shell, whose changes are written in the background by an {@link AsyncTaskWriter}: each adds its
+ * own tasks and marks its share of a set of seed tasks done. Afterwards every added task must be
+ * there exactly once and every seed task done: a lost update shows up as a missing task or a seed
+ * that is not done, a duplicated ID as a task listed twice.
+ *
+ * <p>Usage: {@code java -cp out ConcurrencyStress [processes] [adds per process] [formats...]},
+ * where a format is {@code json}, {@code binary}, {@code slotted} or {@code log} (JSON with the
+ * write-ahead log).
+ */
+public class ConcurrencyStress {
+
+  // Group commit window of the shells, short enough for many groups to collide with other writes
+  private static final String SHELL_SAVE_DELAY_MS = "20";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals("child")) {
+      runChild(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("shell")) {
+      runShell(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+      return;
+    }
+
+    int processes = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int adds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int shells = Math.max(1, processes / 4);
+    int seeds = shells * adds;
+    String[] formats = {"json", "slotted", "log"};
+    if (args.length > 2) {
+      formats = java.util.Arrays.copyOfRange(args, 2, args.length);
+    }
+
+    int failures = 0;
+    for (String format : formats) {
+      Path directory = BenchSupport.scratchDirectory();
+      try {
+        String[] properties = format.equals("log")
+            ? new String[] {"-Dtasktracker.format=json", "-Dtasktracker.storage=log"}
+            : new String[] {"-Dtasktracker.format=" + format};
+        for (String property : properties) {
+          String[] pair = property.substring(2).split("=", 2);
+          System.setProperty(pair[0], pair[1]);
+        }
+        List<Task> seedTasks = new ArrayList<>();
+        for (int id = 1; id <= seeds; id++) {
+          seedTasks.add(new Task(id, "seed-" + id));
+        }
+        new FileHandler(directory.resolve("data")).saveTasks(seedTasks);
+
+        long start = System.nanoTime();
+        List<Process> children = new ArrayList<>();
+        for (int p = 0; p < processes; p++) {
+          children.add(start(directory, properties, "child", "p" + p, adds, seeds));
+        }
+        for (int s = 0; s < shells; s++) {
+          children.add(start(directory, properties, "shell", "s" + s, adds, 1 + s * adds));
+        }
+        for (Process child : children) {
+          child.waitFor();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String problem = verify(directory.resolve("data"), processes, shells, adds, seeds);
+        System.setProperty("tasktracker.storage", "snapshot");
+        if (problem != null) {
+          failures++;
+        }
+        System.out.printf("%-8s %d processes and %d shells x %d adds in %.1f s: %s%n", format,
+            processes, shells, adds, seconds,
+            problem == null ? "no lost updates" : "FAILED, " + problem);
+      } finally {
+        BenchSupport.delete(directory);
+      }
+    }
+    if (failures > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Starts a child JVM running this class in the given directory.
+   *
+   * @param kind "child" for CLI commands, "shell" for an interactive shell.
+   * @param number The number of seed tasks for a CLI child, the first seed to mark for a shell.
+   */
+  private static Process start(Path directory, String[] properties, String kind, String name,
+      int adds, int number) throws java.io.IOException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(List.of(properties));
+    command.add("-Dtasktracker.saveDelayMs=" + SHELL_SAVE_DELAY_MS);
+    command.addAll(List.of("-cp", System.getProperty("java.class.path"),
+        ConcurrencyStress.class.getName(), kind, name, Integer.toString(adds),
+        Integer.toString(number)));
+    return new ProcessBuilder(command).directory(directory.toFile())
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+  }
+
+  /**
+   * Child process: runs one CLI command after another against the data directory in the working
+   * directory, marking tasks in progress among those added after the seed tasks.
+   */
+  private static void runChild(String name, int adds, int seeds) {
+    java.util.Random random = new java.util.Random(name.hashCode());
+    for (int i = 0; i < adds; i++) {
+      TaskTracker.main(new String[] {"add", name + "-" + i});
+      if (i % 3 == 2) {
+        TaskTracker.main(new String[] {"mark-in-progress",
+            Integer.toString(seeds + 1 + random.nextInt(i + 1))});
+      }
+    }
+  }
+
+  /**
+   * Shell process: types commands into a shell on the data directory in the working directory, a
+   * few milliseconds apart, adding tasks and marking the seed tasks from the given one on done.
+   */
+  private static void runShell(String name, int adds, int firstSeed) throws Exception {
+    PipedOutputStream input = new PipedOutputStream();
+    System.setIn(new PipedInputStream(input));
+    Thread shell = new Thread(() -> TaskTracker.main(new String[] {"shell"}));
+    shell.start();
+    java.util.Random random = new java.util.Random(name.hashCode());
+    try (Writer commands = new OutputStreamWriter(input, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < adds; i++) {
+        commands.write("add " + name + "-" + i + "\nmark-done " + (firstSeed + i) + "\n");
+        commands.flush();
+        Thread.sleep(random.nextInt(5));
+      }
+      commands.write("exit\n");
+    }
+    shell.join();
+  }
+
+  /**
+   * Checks that every task added by every child is stored exactly once, and that the shells marked
+   * every seed task done.
+   *
+   * @return A description of the problem, or null if nothing was lost.
+   */
+  private static String verify(Path dataDirectory, int processes, int shells, int adds,
+      int seeds) {
+    if (!Files.isDirectory(dataDirectory)) {
+      return "no data directory";
+    }
+    TaskRepository tasks = new FileHandler(dataDirectory).loadTasks();
+    Set<String> descriptions = new HashSet<>();
+    for (Task task : tasks) {
+      if (!descriptions.add(task.getDescription())) {
+        return "task " + task.getDescription() + " stored twice";
+      }
+    }
+    int missing = 0;
+    for (int p = 0; p < processes + shells; p++) {
+      String name = p < processes ? "p" + p : "s" + (p - processes);
+      for (int i = 0; i < adds; i++) {
+        if (!descriptions.contains(name + "-" + i)) {
+          missing++;
+        }
+      }
+    }
+    if (missing > 0) {
+      return missing + " of " + (processes + shells) * adds + " tasks lost";
+    }
+    int notDone = 0;
+    for (int id = 1; id <= seeds; id++) {
+      Task seed = tasks.get(id);
+      if (seed == null || seed.getStatus() != Task.Status.DONE) {
+        notDone++;
+      }
+    }
+    return notDone == 0 ? null : notDone + " of " + seeds + " seed tasks not marked done";
+  }
+}
@@ -0,0 +1,141 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Fault-injection harness for full saves. A child JVM saves the same task list over and over,
+ * alternating between two generations that differ in every task's status, and is killed with
+ * SIGKILL at a random moment, which lands at a random offset of the file being written. After
+ * each kill the task file must load as one complete generation, never a mix or a truncated file.
+ *
+ * <p>Killing the process does not lose the page cache, so this checks the rename protocol, not
+ * what reaches the disk on a power cut; that part is covered by forcing the file before the rename.
+ *
+ * <p>Usage: {@code java -cp out CrashHarness [rounds] [tasks] [formats...]}
+ */
+public class CrashHarness {
+
+  private static final String READY = "ready";
+  private static final Task.Status[] STATUSES = Task.Status.values();
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals("child")) {
+      runChild(Paths.get(args[1]), Integer.parseInt(args[2]));
+      return;
+    }
+
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+    String[] formats = {"json", "binary", "slotted"};
+    if (args.length > 2) {
+      formats = java.util.Arrays.copyOfRange(args, 2, args.length);
+    }
+
+    Random random = new Random(42);
+    int failures = 0;
+    for (String format : formats) {
+      System.setProperty("tasktracker.format", format);
+      Path directory = BenchSupport.scratchDirectory();
+      try {
+        int interrupted = 0;
+        int formatFailures = 0;
+        for (int round = 0; round < rounds; round++) {
+          Process child = startChild(directory, format, size);
+          Thread.sleep(random.nextInt(1000));
+          child.destroyForcibly().waitFor();
+
+          // A temporary file left behind means the kill hit the middle of a write
+          try (var files = Files.list(directory)) {
+            interrupted += (int) files.filter(path -> path.toString().endsWith(".tmp")).count();
+          }
+          String problem = verify(directory, size);
+          if (problem != null) {
+            formatFailures++;
+            System.out.println(format + " round " + round + ": " + problem);
+          }
+        }
+        failures += formatFailures;
+        System.out.printf("%-8s %d kills, %d during a write, %s%n", format, rounds, interrupted,
+            formatFailures == 0 ? "every load consistent" : formatFailures + " FAILED");
+      } finally {
+        BenchSupport.delete(directory);
+      }
+    }
+    if (failures > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Starts a child that keeps saving, and waits until it has loaded the current file.
+   */
+  private static Process startChild(Path directory, String format, int size) throws Exception {
+    Process child = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java")
+        .toString(), "-Dtasktracker.format=" + format, "-cp", System.getProperty("java.class.path"),
+        CrashHarness.class.getName(), "child", directory.toString(), Integer.toString(size))
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+    BufferedReader out = new BufferedReader(
+        new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8));
+    String line = out.readLine();
+    if (!READY.equals(line)) {
+      throw new IllegalStateException("Child failed to start: " + line);
+    }
+    return child;
+  }
+
+  /**
+   * Child process: flips every task to the next generation and saves, until it is killed.
+   */
+  private static void runChild(Path directory, int size) {
+    FileHandler fileHandler = new FileHandler(directory);
+    TaskRepository tasks = fileHandler.loadTasks();
+    if (tasks.isEmpty()) {
+      fileHandler.saveTasks(BenchSupport.tasks(size));
+      tasks = fileHandler.loadTasks();
+    }
+    System.out.println(READY);
+    System.out.flush();
+
+    while (true) {
+      for (Task task : tasks) {
+        tasks.setStatus(task, STATUSES[(task.getStatus().ordinal() + 1) % STATUSES.length]);
+      }
+      fileHandler.saveTasks(tasks);
+    }
+  }
+
+  /**
+   * Checks that the tasks on disk form one complete generation.
+   *
+   * @return A description of the problem, or null if the file is consistent.
+   */
+  private static String verify(Path directory, int size) {
+    FileHandler fileHandler = new FileHandler(directory);
+    TaskRepository tasks = fileHandler.loadTasks();
+    if (tasks.size() != size) {
+      return "loaded " + tasks.size() + " of " + size + " tasks";
+    }
+
+    // Every task's status is shifted by the same number of generations from the original list
+    int shift = -1;
+    for (Task original : BenchSupport.tasks(size)) {
+      Task task = tasks.get(original.getId());
+      if (task == null) {
+        return "task " + original.getId() + " is missing";
+      }
+      int taskShift = Math.floorMod(
+          task.getStatus().ordinal() - original.getStatus().ordinal(), STATUSES.length);
+      if (shift == -1) {
+        shift = taskShift;
+      } else if (taskShift != shift) {
+        return "task " + original.getId() + " is from another generation";
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,100 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Compares the per-command latency of cold CLI invocations with commands forwarded to a running
+ * {@code serve} daemon: once from a fresh JVM (what a script sees) and once from an already
+ * running JVM (the pure round trip). Every process uses the log storage mode, so the numbers show
+ * start-up and load cost rather than the cost of rewriting the task file.
+ *
+ * <p>Usage: {@code java -cp out DaemonBenchmark [tasks] [commands]}
+ */
+public class DaemonBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    int commandCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    Path workDirectory = BenchSupport.scratchDirectory();
+    Path dataDirectory = workDirectory.resolve("data");
+    Process daemon = null;
+    try {
+      Files.createDirectories(dataDirectory);
+      new FileHandler(dataDirectory).saveTasks(BenchSupport.tasks(taskCount));
+      String[] command = {"mark-done", String.valueOf(taskCount / 2)};
+
+      System.out.printf("%d tasks, %d commands each%n", taskCount, commandCount);
+      report("cold JVM, no daemon", runProcesses(workDirectory, command, commandCount));
+
+      daemon = start(workDirectory, "serve");
+      Path socketPath = TaskDaemon.socketPath(dataDirectory);
+      while (!Files.exists(socketPath)) {
+        Thread.sleep(10);
+      }
+      report("cold JVM, daemon", runProcesses(workDirectory, command, commandCount));
+      report("warm JVM, daemon", forwardInProcess(socketPath, command, commandCount * 10));
+    } finally {
+      if (daemon != null) {
+        daemon.destroy();
+        daemon.waitFor();
+      }
+      BenchSupport.delete(workDirectory);
+    }
+  }
+
+  private static long[] runProcesses(Path workDirectory, String[] command, int count)
+      throws Exception {
+    long[] nanos = new long[count];
+    for (int i = 0; i < count; i++) {
+      long start = System.nanoTime();
+      Process process = start(workDirectory, command);
+      if (process.waitFor() != 0) {
+        throw new IllegalStateException("Command failed with exit code " + process.exitValue());
+      }
+      nanos[i] = System.nanoTime() - start;
+    }
+    return nanos;
+  }
+
+  private static long[] forwardInProcess(Path socketPath, String[] command, int count) {
+    long[] nanos = new long[count];
+    PrintStream originalOut = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    try {
+      for (int i = 0; i < count; i++) {
+        long start = System.nanoTime();
+        if (!TaskDaemon.forward(socketPath, command)) {
+          throw new IllegalStateException("Daemon is not running");
+        }
+        nanos[i] = System.nanoTime() - start;
+      }
+    } finally {
+      System.setOut(originalOut);
+    }
+    return nanos;
+  }
+
+  private static Process start(Path workDirectory, String... command) throws Exception {
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    String[] line = new String[command.length + 5];
+    line[0] = java;
+    line[1] = "-Dtasktracker.storage=log";
+    line[2] = "-cp";
+    line[3] = System.getProperty("java.class.path");
+    line[4] = "TaskTracker";
+    System.arraycopy(command, 0, line, 5, command.length);
+    return new ProcessBuilder(line).directory(workDirectory.toFile())
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+  }
+
+  private static void report(String label, long[] nanos) {
+    Arrays.sort(nanos);
+    double mean = Arrays.stream(nanos).average().orElse(0) / 1e6;
+    System.out.printf("%-22s mean %8.2f ms   p50 %8.2f ms   p99 %8.2f ms%n", label, mean,
+        nanos[nanos.length / 2] / 1e6, nanos[(int) Math.ceil(nanos.length * 0.99) - 1] / 1e6);
+  }
+}
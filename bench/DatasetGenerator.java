@@ -0,0 +1,361 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates a realistic task store and a matching stream of commands for {@link ReplayDriver}.
+ * The tasks are saved through {@link FileHandler}, so the files are exactly what the CLI writes in
+ * the configured format ({@code -Dtasktracker.format=...}).
+ *
+ * <p>Options, all optional:
+ * <ul>
+ *   <li>{@code --out=DIR} Directory to write to (default {@code dataset}).
+ *   <li>{@code --tasks=N} Number of tasks in the store (default 100000).
+ *   <li>{@code --desc=SPEC} Description length distribution: {@code fixed:N},
+ *       {@code uniform:MIN-MAX} or {@code exp:MEAN} (default {@code exp:40}).
+ *   <li>{@code --status=MIX} Status weights, e.g. {@code todo:50,in-progress:20,done:30}.
+ *   <li>{@code --special=P} Share of descriptions with non-ASCII text and characters that JSON has
+ *       to escape (default 0.05).
+ *   <li>{@code --spread-days=D} Days between the first and the last task created (default 365).
+ *   <li>{@code --commands=N} Number of commands to generate (default 10000).
+ *   <li>{@code --mix=MIX} Command weights, e.g. {@code add:30,update:30,mark-done:15,...}; the
+ *       commands are add, update, delete, mark-in-progress, mark-done and list.
+ *   <li>{@code --seed=S} Random seed, so the same options always give the same files.
+ * </ul>
+ *
+ * <p>The commands go to {@code commands.txt} in the output directory, one per line, with the
+ * arguments separated by tabs. Tabs, line breaks and backslashes inside arguments are written as
+ * {@code \t}, {@code \n} and {@code \\}. The ids in the stream follow the tasks as they are added
+ * and deleted, so every command finds its task when replayed in order against the generated store.
+ */
+public class DatasetGenerator {
+
+  /** Name of the command stream in the output directory. */
+  public static final String COMMANDS_FILE_NAME = "commands.txt";
+
+  private static final String WORDS = "review fix plan call write test deploy update check email "
+      + "report meeting design draft refactor budget invoice release backup migrate";
+  // Accents, Turkish letters, CJK, an emoji outside the BMP, and everything JSON escapes
+  private static final String[] SPECIAL = {"\u00E7al\u0131\u015Fma",
+      "\u011F\u00FC\u015F\u00F6\u0131 \u0130\u015E", "na\u00EFve caf\u00E9", "\u65E5\u672C\u8A9E",
+      "\uD83D\uDE00", "\"quoted\"", "C:\\temp\\dir", "line\nbreak", "tab\there", "\u0001ctl",
+      "</script>"};
+  private static final LocalDateTime END = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options = parseOptions(args);
+    Path out = Paths.get(options.getOrDefault("out", "dataset"));
+    int taskCount = Integer.parseInt(options.getOrDefault("tasks", "100000"));
+    int commandCount = Integer.parseInt(options.getOrDefault("commands", "10000"));
+    double special = Double.parseDouble(options.getOrDefault("special", "0.05"));
+    long spreadSeconds = Long.parseLong(options.getOrDefault("spread-days", "365")) * 86_400;
+    Random random = new Random(Long.parseLong(options.getOrDefault("seed", "1")));
+    Descriptions descriptions =
+        new Descriptions(options.getOrDefault("desc", "exp:40"), special, random);
+    Weights<Task.Status> statuses = statusWeights(
+        options.getOrDefault("status", "todo:50,in-progress:20,done:30"));
+    Weights<String> mix = commandWeights(options.getOrDefault("mix",
+        "add:30,update:30,mark-in-progress:15,mark-done:15,delete:10"));
+
+    // Tasks are created in id order across the spread, then updated some time later
+    LocalDateTime start = END.minusSeconds(spreadSeconds);
+    List<Task> tasks = new ArrayList<>(taskCount);
+    for (int id = 1; id <= taskCount; id++) {
+      long offset = spreadSeconds * (id - 1) / Math.max(1, taskCount);
+      LocalDateTime createdAt = start.plusSeconds(offset).withNano(random.nextInt(1_000_000_000));
+      Task.Status status = statuses.pick(random);
+      LocalDateTime updatedAt = createdAt;
+      if (status != Task.Status.TODO || random.nextInt(4) == 0) {
+        // Exponential delay with a mean of two days, never past the end of the spread
+        long delay = (long) (-Math.log(1 - random.nextDouble()) * 2 * 86_400);
+        updatedAt = createdAt.plusSeconds(Math.min(delay, spreadSeconds - offset))
+            .withNano(random.nextInt(1_000_000_000));
+        if (updatedAt.isBefore(createdAt)) {
+          updatedAt = createdAt;
+        }
+      }
+      tasks.add(new Task(id, descriptions.next(), status, createdAt, updatedAt));
+    }
+
+    Files.createDirectories(out);
+    FileHandler fileHandler = new FileHandler(out);
+    fileHandler.saveTasks(tasks);
+    writeCommands(out.resolve(COMMANDS_FILE_NAME), taskCount, commandCount, mix, descriptions,
+        random);
+    System.out.println("Wrote " + taskCount + " tasks and " + commandCount + " commands to "
+        + out.toAbsolutePath());
+  }
+
+  /**
+   * Writes the command stream, keeping track of the ids that exist at each point of the replay.
+   */
+  private static void writeCommands(Path path, int taskCount, int commandCount, Weights<String> mix,
+      Descriptions descriptions, Random random) throws IOException {
+    LiveIds live = new LiveIds(taskCount);
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      for (int i = 0; i < commandCount; i++) {
+        String command = mix.pick(random);
+        // Nothing left to change, so start over with a new task
+        if (live.isEmpty() && !command.equals("list")) {
+          command = "add";
+        }
+        List<String> line = new ArrayList<>(3);
+        line.add(command);
+        switch (command) {
+          case "add":
+            line.add(descriptions.next());
+            live.add();
+            break;
+          case "update":
+            line.add(Integer.toString(live.pick(random)));
+            line.add(descriptions.next());
+            break;
+          case "delete":
+            line.add(Integer.toString(live.remove(random)));
+            break;
+          case "list":
+            break;
+          default:
+            line.add(Integer.toString(live.pick(random)));
+        }
+        for (int j = 0; j < line.size(); j++) {
+          if (j > 0) {
+            writer.write('\t');
+          }
+          writer.write(escape(line.get(j)));
+        }
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * Escapes the characters that separate arguments and lines in the command stream.
+   *
+   * @param argument The argument to escape.
+   * @return The argument as written to the file.
+   */
+  static String escape(String argument) {
+    return argument.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+  }
+
+  /**
+   * Reverses {@link #escape} for one line of the command stream.
+   *
+   * @param line A line of the command stream.
+   * @return The command and its arguments.
+   */
+  static String[] parseCommand(String line) {
+    String[] args = line.split("\t", -1);
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (arg.indexOf('\\') < 0) {
+        continue;
+      }
+      StringBuilder builder = new StringBuilder(arg.length());
+      for (int j = 0; j < arg.length(); j++) {
+        char c = arg.charAt(j);
+        if (c == '\\' && j + 1 < arg.length()) {
+          char next = arg.charAt(++j);
+          builder.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+        } else {
+          builder.append(c);
+        }
+      }
+      args[i] = builder.toString();
+    }
+    return args;
+  }
+
+  private static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (String arg : args) {
+      int equals = arg.indexOf('=');
+      if (!arg.startsWith("--") || equals < 0) {
+        throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+      }
+      options.put(arg.substring(2, equals), arg.substring(equals + 1));
+    }
+    return options;
+  }
+
+  private static Weights<Task.Status> statusWeights(String spec) {
+    Weights<Task.Status> weights = new Weights<>();
+    for (Map.Entry<String, Integer> entry : parseWeights(spec).entrySet()) {
+      Task.Status status = Task.Status.fromFilter(entry.getKey());
+      if (status == null) {
+        throw new IllegalArgumentException("Unknown status: " + entry.getKey());
+      }
+      weights.add(status, entry.getValue());
+    }
+    return weights;
+  }
+
+  private static Weights<String> commandWeights(String spec) {
+    Weights<String> weights = new Weights<>();
+    List<String> known =
+        List.of("add", "update", "delete", "mark-in-progress", "mark-done", "list");
+    for (Map.Entry<String, Integer> entry : parseWeights(spec).entrySet()) {
+      if (!known.contains(entry.getKey())) {
+        throw new IllegalArgumentException("Unknown command: " + entry.getKey());
+      }
+      weights.add(entry.getKey(), entry.getValue());
+    }
+    return weights;
+  }
+
+  private static Map<String, Integer> parseWeights(String spec) {
+    Map<String, Integer> weights = new LinkedHashMap<>();
+    for (String part : spec.split(",")) {
+      int colon = part.lastIndexOf(':');
+      weights.put(part.substring(0, colon).trim(), Integer.parseInt(part.substring(colon + 1)));
+    }
+    return weights;
+  }
+
+  /**
+   * Values drawn at random in proportion to their weights.
+   */
+  private static final class Weights<T> {
+    private final List<T> values = new ArrayList<>();
+    private final List<Integer> cumulative = new ArrayList<>();
+    private int total;
+
+    void add(T value, int weight) {
+      if (weight > 0) {
+        total += weight;
+        values.add(value);
+        cumulative.add(total);
+      }
+    }
+
+    T pick(Random random) {
+      int ticket = random.nextInt(total);
+      int i = 0;
+      while (cumulative.get(i) <= ticket) {
+        i++;
+      }
+      return values.get(i);
+    }
+  }
+
+  /**
+   * Random descriptions with lengths from the configured distribution.
+   */
+  private static final class Descriptions {
+    private static final int MAX_LENGTH = 4096;
+
+    private final String kind;
+    private final int first;
+    private final int second;
+    private final double special;
+    private final Random random;
+    private final String[] words = WORDS.split(" ");
+    private final StringBuilder builder = new StringBuilder();
+
+    Descriptions(String spec, double special, Random random) {
+      int colon = spec.indexOf(':');
+      this.kind = colon < 0 ? spec : spec.substring(0, colon);
+      String[] bounds = colon < 0 ? new String[] {"40"} : spec.substring(colon + 1).split("-");
+      this.first = Integer.parseInt(bounds[0]);
+      this.second = bounds.length > 1 ? Integer.parseInt(bounds[1]) : first;
+      if (!kind.equals("fixed") && !kind.equals("uniform") && !kind.equals("exp")) {
+        throw new IllegalArgumentException("Unknown length distribution: " + spec);
+      }
+      this.special = special;
+      this.random = random;
+    }
+
+    String next() {
+      int length;
+      if (kind.equals("fixed")) {
+        length = first;
+      } else if (kind.equals("uniform")) {
+        length = first + random.nextInt(Math.max(1, second - first + 1));
+      } else {
+        length = 1 + (int) (-Math.log(1 - random.nextDouble()) * first);
+      }
+      length = Math.max(1, Math.min(MAX_LENGTH, length));
+
+      builder.setLength(0);
+      boolean withSpecial = random.nextDouble() < special;
+      while (builder.length() < length) {
+        if (builder.length() > 0) {
+          builder.append(' ');
+        }
+        builder.append(withSpecial && random.nextInt(3) == 0
+            ? SPECIAL[random.nextInt(SPECIAL.length)] : words[random.nextInt(words.length)]);
+      }
+      // Never cut a surrogate pair in half
+      int end = length;
+      if (end < builder.length() && Character.isHighSurrogate(builder.charAt(end - 1))) {
+        end--;
+      }
+      builder.setLength(Math.min(end, builder.length()));
+      return builder.toString().strip().isEmpty() ? "task" : builder.toString();
+    }
+  }
+
+  /**
+   * The ids that exist while the command stream is replayed. New tasks get the highest id plus one,
+   * as in {@code TaskTracker}.
+   */
+  private static final class LiveIds {
+    private final BitSet present = new BitSet();
+    private int[] ids;
+    private int[] positions;
+    private int size;
+
+    LiveIds(int count) {
+      ids = new int[Math.max(16, count)];
+      positions = new int[Math.max(16, count + 1)];
+      for (int id = 1; id <= count; id++) {
+        put(id);
+      }
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    void add() {
+      put(present.length() == 0 ? 1 : present.length());
+    }
+
+    int pick(Random random) {
+      return ids[random.nextInt(size)];
+    }
+
+    int remove(Random random) {
+      int id = pick(random);
+      int position = positions[id];
+      int last = ids[--size];
+      ids[position] = last;
+      positions[last] = position;
+      present.clear(id);
+      return id;
+    }
+
+    private void put(int id) {
+      if (size == ids.length) {
+        ids = java.util.Arrays.copyOf(ids, size * 2);
+      }
+      if (id >= positions.length) {
+        positions = java.util.Arrays.copyOf(positions, Math.max(id + 1, positions.length * 2));
+      }
+      ids[size] = id;
+      positions[id] = size++;
+      present.set(id);
+    }
+  }
+}
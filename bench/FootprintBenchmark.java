@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compares the heap taken by the same tasks held as a {@code List<Task>}, as a
+ * {@link TaskRepository} and as a {@link TaskTable}, measured as the growth of the used heap after
+ * full collections, and the time to scan each once, reading every task's status and ID through
+ * the table's flyweight view.
+ *
+ * <p>Usage: {@code java -Xmx4g -cp out FootprintBenchmark [sizes...]}
+ */
+public class FootprintBenchmark {
+
+  // Consumes the scans, so they cannot be optimized away
+  private static long sink;
+
+  public static void main(String[] args) {
+    int[] sizes = {1_000_000, 5_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.out.printf("%10s %16s %12s %14s %10s%n", "tasks", "store", "heap (MB)", "bytes/task",
+        "scan (ms)");
+    for (int size : sizes) {
+      long before = usedHeap();
+      List<Task> list = new ArrayList<>(size);
+      for (int i = 1; i <= size; i++) {
+        list.add(BenchSupport.task(i));
+      }
+      print(size, "List<Task>", usedHeap() - before, list::forEach);
+      list = null;
+
+      before = usedHeap();
+      TaskRepository repository = new TaskRepository(size);
+      for (int i = 1; i <= size; i++) {
+        repository.add(BenchSupport.task(i));
+      }
+      print(size, "TaskRepository", usedHeap() - before, repository::forEach);
+      repository = null;
+
+      before = usedHeap();
+      TaskTable table = new TaskTable(size);
+      for (int i = 1; i <= size; i++) {
+        table.add(BenchSupport.task(i));
+      }
+      table.trimToSize();
+      print(size, "TaskTable", usedHeap() - before, table::forEach);
+      table = null;
+    }
+    System.out.println("(checksum " + sink + ")");
+  }
+
+  private static void print(int size, String store, long bytes, Consumer<Consumer<Task>> scan) {
+    long[] checksum = new long[1];
+    long start = System.nanoTime();
+    scan.accept(task -> checksum[0] += task.getId() * (task.getStatus().ordinal() + 1L));
+    double millis = (System.nanoTime() - start) / 1e6;
+    sink += checksum[0];
+    System.out.printf("%10d %16s %12.1f %14.1f %10.1f%n", size, store, bytes / 1e6,
+        (double) bytes / size, millis);
+  }
+
+  /**
+   * Gets the heap in use once garbage has been collected.
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+    }
+    return used;
+  }
+}
@@ -0,0 +1,66 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares the JSON and binary task file formats: file size and load/save throughput.
+ *
+ * <p>Usage: {@code java -cp out FormatBenchmark [sizes...]}
+ */
+public class FormatBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.out.printf("%10s %8s %12s %12s %14s %12s %14s%n", "tasks", "format", "file (KB)",
+        "save (ms)", "save (tasks/s)", "load (ms)", "load (tasks/s)");
+    for (int size : sizes) {
+      List<Task> tasks = BenchSupport.tasks(size);
+      for (String format : new String[] {"json", "binary"}) {
+        Path directory = BenchSupport.scratchDirectory();
+        try {
+          System.setProperty("tasktracker.format", format);
+          FileHandler fileHandler = new FileHandler(directory);
+          String fileName = format.equals("binary") ? "tasks.bin" : "tasks.json";
+
+          for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            fileHandler.saveTasks(tasks);
+            fileHandler.loadTasks();
+          }
+
+          long saveNanos = 0;
+          long loadNanos = 0;
+          for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            fileHandler.saveTasks(tasks);
+            saveNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            TaskRepository loaded = fileHandler.loadTasks();
+            loadNanos += System.nanoTime() - start;
+            if (loaded.size() != size) {
+              throw new IllegalStateException("Loaded " + loaded.size() + " of " + size);
+            }
+          }
+
+          double saveMillis = saveNanos / 1e6 / MEASURED_ROUNDS;
+          double loadMillis = loadNanos / 1e6 / MEASURED_ROUNDS;
+          System.out.printf("%10d %8s %12d %12.1f %14.0f %12.1f %14.0f%n", size, format,
+              Files.size(directory.resolve(fileName)) / 1024, saveMillis,
+              size / saveMillis * 1000, loadMillis, size / loadMillis * 1000);
+        } finally {
+          BenchSupport.delete(directory);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures how long {@link FileHandler#loadTasks()} takes and how much it allocates for task files
+ * of 10k, 100k and 1M tasks.
+ *
+ * <p>Usage: {@code java -cp out LoadBenchmark [sizes...]}
+ */
+public class LoadBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.out.printf("%10s %12s %12s %14s%n", "tasks", "file (KB)", "load (ms)", "alloc (MB)");
+    for (int size : sizes) {
+      Path directory = BenchSupport.scratchDirectory();
+      try {
+        FileHandler fileHandler = new FileHandler(directory);
+        fileHandler.saveTasks(BenchSupport.tasks(size));
+        long fileSize = Files.size(directory.resolve("tasks.json"));
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+          fileHandler.loadTasks();
+        }
+
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+          long bytesBefore = BenchSupport.allocatedBytes();
+          long start = System.nanoTime();
+          TaskRepository tasks = fileHandler.loadTasks();
+          totalNanos += System.nanoTime() - start;
+          totalBytes += BenchSupport.allocatedBytes() - bytesBefore;
+          if (tasks.size() != size) {
+            throw new IllegalStateException("Loaded " + tasks.size() + " of " + size + " tasks");
+          }
+        }
+
+        System.out.printf("%10d %12d %12.1f %14.1f%n", size, fileSize / 1024,
+            totalNanos / 1e6 / MEASURED_ROUNDS, totalBytes / 1048576.0 / MEASURED_ROUNDS);
+      } finally {
+        BenchSupport.delete(directory);
+      }
+    }
+  }
+}
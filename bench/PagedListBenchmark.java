@@ -0,0 +1,85 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Measures {@code list} on tasks in memory, as the daemon and the shell run it, with the output
+ * going to /dev/null through a stream set up like {@code System.out} (small buffer, flushed on
+ * every line). Pages taken with {@code --sort}, {@code --limit} and {@code --offset} are compared
+ * with what they replace: sorting every task and printing it with one {@code println} per row.
+ *
+ * <p>Usage: {@code java -cp out PagedListBenchmark [sizes...]}
+ */
+public class PagedListBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 10;
+
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    PrintStream console = System.out;
+    PrintStream devNull =
+        new PrintStream(new BufferedOutputStream(new FileOutputStream("/dev/null"), 128), true);
+    String[][] commands = {
+        {"list"},
+        {"list", "--limit=20"},
+        {"list", "--sort=-updated", "--limit=20"},
+        {"list", "--sort=-updated", "--offset=5000", "--limit=20"},
+        {"list", "todo", "--sort=description", "--limit=20"},
+        {"list", "--sort=-updated"},
+    };
+
+    console.printf("%10s %-45s %14s%n", "tasks", "command", "time (ms)");
+    for (int size : sizes) {
+      TaskRepository tasks = new TaskRepository(size);
+      tasks.addAll(BenchSupport.tasks(size));
+
+      // What sorting and printing everything costs, one println per row
+      double baseline = measure(devNull, () -> {
+        List<Task> sorted = new ArrayList<>(tasks);
+        sorted.sort(Comparator.comparingLong(Task::getUpdatedAtNanos).reversed());
+        for (Task task : sorted) {
+          System.out.println("[" + task.getId() + "] " + task.getDescription() + " - Status: "
+              + task.getStatus() + " (Created: " + task.getCreatedAt() + ")");
+        }
+      });
+      console.printf("%10d %-45s %14.1f%n", size, "full sort + println per row", baseline);
+
+      for (String[] command : commands) {
+        double millis = measure(devNull, () -> TaskTracker.runCommand(tasks, command));
+        console.printf("%10d %-45s %14.1f%n", size, String.join(" ", command), millis);
+      }
+    }
+  }
+
+  /**
+   * Runs an action with the standard output redirected, and returns its mean time after warming
+   * up.
+   */
+  private static double measure(PrintStream out, Runnable action) {
+    PrintStream console = System.out;
+    System.setOut(out);
+    try {
+      for (int i = 0; i < WARMUP_ROUNDS; i++) {
+        action.run();
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < MEASURED_ROUNDS; i++) {
+        action.run();
+      }
+      return (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+    } finally {
+      System.setOut(console);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how {@link FileHandler#loadTasks()} of a large JSON task file scales with the number of
+ * threads parsing it in slices, from one (the sequential reader) up to every available processor,
+ * and checks that each thread count loads the same tasks in the same order.
+ *
+ * <p>Usage: {@code java -cp out ParallelLoadBenchmark [tasks] [threads...]}
+ */
+public class ParallelLoadBenchmark {
+
+  private static final int WARMUP_ROUNDS = 2;
+  private static final int MEASURED_ROUNDS = 3;
+
+  public static void main(String[] args) throws Exception {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    List<Integer> threadCounts = new ArrayList<>();
+    for (int i = 1; i < args.length; i++) {
+      threadCounts.add(Integer.parseInt(args[i]));
+    }
+    if (threadCounts.isEmpty()) {
+      int processors = Runtime.getRuntime().availableProcessors();
+      for (int threads = 1; threads < processors; threads *= 2) {
+        threadCounts.add(threads);
+      }
+      threadCounts.add(processors);
+    }
+
+    System.setProperty("tasktracker.format", "json");
+    System.setProperty("tasktracker.parallelLoadBytes", "0");
+    Path directory = BenchSupport.scratchDirectory();
+    try {
+      new FileHandler(directory).saveTasks(BenchSupport.tasks(size));
+      long fileSize = Files.size(directory.resolve("tasks.json"));
+      System.out.printf("%10s %12s %8s %12s %10s%n", "tasks", "file (MB)", "threads", "load (ms)",
+          "speedup");
+
+      long expected = 0;
+      double sequential = 0;
+      for (int threads : threadCounts) {
+        System.setProperty("tasktracker.threads", String.valueOf(threads));
+        FileHandler fileHandler = new FileHandler(directory);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+          fileHandler.loadTasks();
+        }
+
+        long nanos = 0;
+        long checksum = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+          long start = System.nanoTime();
+          TaskRepository tasks = fileHandler.loadTasks();
+          nanos += System.nanoTime() - start;
+          checksum = checksum(tasks);
+        }
+        if (expected == 0) {
+          expected = checksum;
+        } else if (checksum != expected) {
+          throw new IllegalStateException(threads + " threads loaded different tasks");
+        }
+
+        double millis = nanos / 1e6 / MEASURED_ROUNDS;
+        sequential = sequential == 0 ? millis : sequential;
+        System.out.printf("%10d %12.1f %8d %12.1f %9.2fx%n", size, fileSize / 1e6, threads, millis,
+            sequential / millis);
+      }
+    } finally {
+      BenchSupport.delete(directory);
+    }
+  }
+
+  /**
+   * Hashes the tasks in order, so a different order or a lost task changes the result.
+   */
+  private static long checksum(TaskRepository tasks) {
+    long checksum = 17;
+    for (Task task : tasks) {
+      checksum = checksum * 31 + task.getId();
+      checksum = checksum * 31 + task.getDescription().hashCode();
+      checksum = checksum * 31 + task.getUpdatedAtNanos();
+    }
+    return checksum;
+  }
+}
@@ -0,0 +1,123 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replays a command stream from {@link DatasetGenerator} against a copy of its task store, running
+ * each command through {@link TaskTracker#runCommand} with the configured storage settings, and
+ * reports throughput and latency per command and overall.
+ *
+ * <p>The tasks are loaded once, as a daemon would keep them, and every command saves its change
+ * like the CLI does. The generated directory itself is left untouched, so a replay can be repeated
+ * with other settings, e.g. {@code -Dtasktracker.format=slotted} or
+ * {@code -Dtasktracker.storage=log}.
+ *
+ * <p>Usage: {@code java -cp out ReplayDriver [dataset directory] [commands file]}
+ */
+public class ReplayDriver {
+
+  public static void main(String[] args) throws IOException {
+    Path dataset = Paths.get(args.length > 0 ? args[0] : "dataset");
+    Path commandsFile = args.length > 1
+        ? Paths.get(args[1]) : dataset.resolve(DatasetGenerator.COMMANDS_FILE_NAME);
+
+    List<String[]> commands = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(commandsFile, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          commands.add(DatasetGenerator.parseCommand(line));
+        }
+      }
+    }
+
+    Path directory = BenchSupport.scratchDirectory();
+    PrintStream originalOut = System.out;
+    PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+    try {
+      try (var files = Files.list(dataset)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          if (file.getFileName().toString().startsWith("tasks.")) {
+            Files.copy(file, directory.resolve(file.getFileName()));
+          }
+        }
+      }
+      FileHandler fileHandler = new FileHandler(directory);
+      long loadStart = System.nanoTime();
+      TaskRepository tasks = fileHandler.loadTasks();
+      long loadNanos = System.nanoTime() - loadStart;
+      int initialSize = tasks.size();
+      TaskTracker.setFileHandler(fileHandler);
+
+      // Latencies per command, in the order they ran
+      Map<String, long[]> samples = new TreeMap<>();
+      Map<String, Integer> counts = new TreeMap<>();
+      long[] all = new long[commands.size()];
+      long start = System.nanoTime();
+      System.setOut(discard);
+      for (int i = 0; i < commands.size(); i++) {
+        String[] command = commands.get(i);
+        long commandStart = System.nanoTime();
+        TaskTracker.runCommand(tasks, command);
+        long nanos = System.nanoTime() - commandStart;
+        all[i] = nanos;
+
+        int count = counts.merge(command[0], 1, Integer::sum);
+        long[] kind = samples.computeIfAbsent(command[0], key -> new long[16]);
+        if (count > kind.length) {
+          kind = Arrays.copyOf(kind, kind.length * 2);
+          samples.put(command[0], kind);
+        }
+        kind[count - 1] = nanos;
+      }
+      long elapsed = System.nanoTime() - start;
+      System.setOut(originalOut);
+
+      System.out.printf("Loaded %d tasks in %.1f ms, replayed %d commands in %.1f ms%n",
+          initialSize, loadNanos / 1e6, commands.size(), elapsed / 1e6);
+      System.out.printf("%-18s %8s %12s %10s %10s %10s%n", "command", "count", "ops/s", "p50 ms",
+          "p99 ms", "max ms");
+      for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+        printRow(entry.getKey(), Arrays.copyOf(entry.getValue(), counts.get(entry.getKey())));
+      }
+      printRow("all", all);
+
+      // A stream that does not match the store runs into missing tasks and measures the wrong thing
+      int expected = initialSize + counts.getOrDefault("add", 0) - counts.getOrDefault("delete", 0);
+      if (tasks.size() != expected) {
+        System.err.println("Warning: expected " + expected + " tasks after the replay but found "
+            + tasks.size() + "; the commands were not generated for this dataset.");
+      }
+    } finally {
+      System.setOut(originalOut);
+      BenchSupport.delete(directory);
+    }
+  }
+
+  /**
+   * Prints one row, with the throughput the command would reach if it ran alone.
+   */
+  private static void printRow(String name, long[] nanos) {
+    if (nanos.length == 0) {
+      return;
+    }
+    long total = 0;
+    for (long sample : nanos) {
+      total += sample;
+    }
+    Arrays.sort(nanos);
+    System.out.printf("%-18s %8d %12.1f %10.3f %10.3f %10.3f%n", name, nanos.length,
+        nanos.length / (total / 1e9), BenchSupport.percentile(nanos, 50),
+        BenchSupport.percentile(nanos, 99), nanos[nanos.length - 1] / 1e6);
+  }
+}
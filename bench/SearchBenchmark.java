@@ -0,0 +1,156 @@
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the {@code search} command as the CLI runs it in a fresh file handler each time: with
+ * the persisted {@link TaskSearchIndex}, against loading every task and matching it in memory,
+ * which is what {@code list | grep} amounts to. Descriptions are drawn from a vocabulary with
+ * Zipf-distributed word frequencies, so queries range from words in most tasks to words in a
+ * handful. Also reports the one-off cost of building the index and what keeping it up to date adds
+ * to a single update.
+ *
+ * <p>Usage: {@code java -cp out SearchBenchmark [sizes...]}
+ */
+public class SearchBenchmark {
+
+  private static final int VOCABULARY_SIZE = 20_000;
+  private static final int WORDS_PER_TASK = 8;
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 10;
+  private static final String[] SYLLABLES = {"ka", "lo", "mi", "ne", "ru", "ta", "vo", "shi",
+      "den", "par", "gul", "tes", "ori", "bam", "fex", "qui"};
+
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.setProperty("tasktracker.storage", "log");
+    String[] vocabulary = vocabulary();
+    String[][] queries = {
+        {vocabulary[0]},
+        {vocabulary[50]},
+        {vocabulary[5_000]},
+        {vocabulary[10], vocabulary[100]},
+        {vocabulary[200], "OR", vocabulary[300]},
+        {vocabulary[20].substring(0, 3) + "*"},
+    };
+
+    System.out.printf("%10s %-24s %8s %14s %14s %10s%n", "tasks", "query", "matches", "index (ms)",
+        "scan (ms)", "speedup");
+    for (int size : sizes) {
+      Path directory = BenchSupport.scratchDirectory();
+      try {
+        new FileHandler(directory).saveTasks(tasks(size, vocabulary));
+        new FileHandler(directory).loadTasks();
+
+        long start = System.nanoTime();
+        new FileHandler(directory).searchTasks(TaskQuery.parse(vocabulary[0]), task -> { });
+        double build = (System.nanoTime() - start) / 1e6;
+
+        for (String[] words : queries) {
+          TaskQuery query = TaskQuery.parse(words);
+          int[] matches = new int[2];
+          double indexed = measure(() -> {
+            matches[0] = new FileHandler(directory).searchTasks(query, task -> { });
+          });
+          double scan = measure(() -> {
+            int found = 0;
+            for (Task task : new FileHandler(directory).loadTasks()) {
+              if (query.matches(task)) {
+                found++;
+              }
+            }
+            matches[1] = found;
+          });
+          if (matches[0] != matches[1]) {
+            throw new IllegalStateException("The index found " + matches[0] + " tasks for \""
+                + query + "\", the scan " + matches[1]);
+          }
+          System.out.printf("%10d %-24s %8d %14.3f %14.1f %9.0fx%n", size, query, matches[0],
+              indexed, scan, scan / indexed);
+        }
+
+        // One update, and how much of it goes to the index
+        double update = measure(() -> updateOne(directory, vocabulary));
+        System.out.printf("%10d index build %.1f ms, update with index %.3f ms%n", size, build,
+            update);
+      } finally {
+        BenchSupport.delete(directory);
+      }
+    }
+  }
+
+  /**
+   * Updates one task through the single-task path the CLI takes for {@code update}.
+   */
+  private static void updateOne(Path directory, String[] vocabulary) {
+    FileHandler fileHandler = new FileHandler(directory);
+    TaskRepository tasks = fileHandler.loadTask(1);
+    Task task = tasks.get(1);
+    task.setDescription(task.getDescription() + " " + vocabulary[VOCABULARY_SIZE - 1]);
+    fileHandler.saveTask(tasks, task);
+  }
+
+  /**
+   * Runs an action repeatedly and returns its mean time after warming up.
+   */
+  private static double measure(Runnable action) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      action.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      action.run();
+    }
+    return (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+  }
+
+  /**
+   * Builds distinct pseudo-words from syllables, the most frequent first.
+   */
+  private static String[] vocabulary() {
+    String[] words = new String[VOCABULARY_SIZE];
+    for (int i = 0; i < words.length; i++) {
+      StringBuilder word = new StringBuilder();
+      int n = i;
+      do {
+        word.append(SYLLABLES[n % SYLLABLES.length]);
+        n /= SYLLABLES.length;
+      } while (n > 0);
+      words[i] = word.toString();
+    }
+    return words;
+  }
+
+  /**
+   * Builds tasks whose descriptions pick words by rank with probability proportional to 1 / rank.
+   */
+  private static List<Task> tasks(int count, String[] vocabulary) {
+    double[] cumulative = new double[vocabulary.length];
+    double sum = 0;
+    for (int i = 0; i < vocabulary.length; i++) {
+      sum += 1.0 / (i + 1);
+      cumulative[i] = sum;
+    }
+    Random random = new Random(42);
+    LocalDateTime created = LocalDateTime.of(2024, 1, 1, 9, 0);
+    List<Task> tasks = new ArrayList<>(count);
+    for (int id = 1; id <= count; id++) {
+      StringBuilder description = new StringBuilder();
+      for (int i = 0; i < WORDS_PER_TASK; i++) {
+        int rank = java.util.Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+        description.append(i == 0 ? "" : " ").append(vocabulary[rank < 0 ? -rank - 1 : rank]);
+      }
+      tasks.add(new Task(id, description.toString(), Task.Status.TODO, created, created));
+    }
+    return tasks;
+  }
+}
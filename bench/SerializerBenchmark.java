@@ -0,0 +1,94 @@
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Measures the time and heap allocation of serializing tasks to JSON: the former String.format
+ * based Task.toJson, the reusable {@link TaskJsonWriter} builder, and a complete JSON save.
+ *
+ * <p>Usage: {@code java -cp out SerializerBenchmark [tasks]}
+ */
+public class SerializerBenchmark {
+
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int MEASURED_ROUNDS = 10;
+
+  public static void main(String[] args) throws Exception {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+    List<Task> tasks = BenchSupport.tasks(size);
+
+    // Both serializers must agree on everything the old one could write
+    for (Task task : tasks) {
+      if (!legacyToJson(task).equals(task.toJson())) {
+        throw new IllegalStateException("Output differs for task " + task.getId());
+      }
+    }
+
+    System.out.printf("%-22s %12s %14s%n", "serializer", "ns/task", "bytes/task");
+    measure("String.format", size, () -> {
+      long length = 0;
+      for (Task task : tasks) {
+        length += legacyToJson(task).length();
+      }
+      return length;
+    });
+
+    StringBuilder builder = new StringBuilder(256);
+    measure("TaskJsonWriter", size, () -> {
+      long length = 0;
+      for (Task task : tasks) {
+        builder.setLength(0);
+        length += TaskJsonWriter.appendTask(builder, task).length();
+      }
+      return length;
+    });
+
+    Path directory = BenchSupport.scratchDirectory();
+    try {
+      System.setProperty("tasktracker.format", "json");
+      FileHandler fileHandler = new FileHandler(directory);
+      measure("saveTasks (json)", size, () -> {
+        fileHandler.saveTasks(tasks);
+        return 0;
+      });
+    } finally {
+      BenchSupport.delete(directory);
+    }
+  }
+
+  /**
+   * Runs a round of work repeatedly and prints its average time and allocation per task.
+   */
+  private static void measure(String name, int size, Round round) throws Exception {
+    long sink = 0;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      sink += round.run();
+    }
+
+    long allocated = BenchSupport.allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      sink += round.run();
+    }
+    long nanos = System.nanoTime() - start;
+    allocated = BenchSupport.allocatedBytes() - allocated;
+
+    long operations = (long) size * MEASURED_ROUNDS;
+    System.out.printf("%-22s %12.1f %14.1f%s%n", name, (double) nanos / operations,
+        (double) allocated / operations, sink == 42 ? " " : "");
+  }
+
+  /**
+   * The serializer Task.toJson used before TaskJsonWriter, kept as the baseline.
+   */
+  private static String legacyToJson(Task task) {
+    String jsonTemplate = "{\"id\":%d,\"description\":\"%s\",\"status\":\"%s\","
+        + "\"createdAt\":\"%s\"," + "\"updatedAt\":\"%s\"}";
+    String escaped = task.getDescription().replace("\\", "\\\\").replace("\"", "\\\"");
+    return String.format(jsonTemplate, task.getId(), escaped, task.getStatus().name(),
+        task.getCreatedAt(), task.getUpdatedAt());
+  }
+
+  private interface Round {
+    long run() throws Exception;
+  }
+}
@@ -0,0 +1,78 @@
+import java.nio.file.Path;
+
+/**
+ * Measures a command that changes one task, like {@code mark-done 5}, as the CLI runs it in a
+ * fresh file handler each time: after loading every task, against {@link FileHandler#loadTask},
+ * which decodes only the task's record found through the index. Both save the change as one log
+ * record.
+ *
+ * <p>Usage: {@code java -cp out SingleTaskBenchmark [sizes...]}
+ */
+public class SingleTaskBenchmark {
+
+  private static final int WARMUP_COMMANDS = 5;
+  private static final int MEASURED_COMMANDS = 20;
+
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.setProperty("tasktracker.storage", "log");
+    System.out.printf("%10s %8s %16s %16s%n", "tasks", "format", "full load (ms)", "lazy (ms)");
+    for (int size : sizes) {
+      for (String format : new String[] {"json", "binary"}) {
+        System.setProperty("tasktracker.format", format);
+        double full = run(size, false);
+        double lazy = run(size, true);
+        System.out.printf("%10d %8s %16.3f %16.3f%n", size, format, full, lazy);
+      }
+    }
+  }
+
+  /**
+   * Marks tasks spread over a fresh store as done, one CLI invocation at a time, and returns the
+   * mean time per command.
+   */
+  private static double run(int size, boolean lazy) throws Exception {
+    Path directory = BenchSupport.scratchDirectory();
+    try {
+      new FileHandler(directory).saveTasks(BenchSupport.tasks(size));
+      // Record the ID sequence like the first CLI run after an upgrade would
+      new FileHandler(directory).loadTasks();
+
+      long nanos = 0;
+      int[] ids = new int[WARMUP_COMMANDS + MEASURED_COMMANDS];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = 1 + (int) ((i * 7919L) % size);
+        long start = System.nanoTime();
+        FileHandler fileHandler = new FileHandler(directory);
+        TaskRepository tasks = lazy ? fileHandler.loadTask(ids[i]) : fileHandler.loadTasks();
+        if (tasks == null) {
+          throw new IllegalStateException("Could not load task " + ids[i] + " on its own");
+        }
+        Task task = tasks.get(ids[i]);
+        tasks.setStatus(task, Task.Status.DONE);
+        fileHandler.saveTask(tasks, task);
+        if (i >= WARMUP_COMMANDS) {
+          nanos += System.nanoTime() - start;
+        }
+      }
+
+      // The changes must survive a reload
+      TaskRepository reloaded = new FileHandler(directory).loadTasks();
+      for (int id : ids) {
+        if (reloaded.get(id).getStatus() != Task.Status.DONE) {
+          throw new IllegalStateException("Lost update of task " + id);
+        }
+      }
+      return nanos / 1e6 / MEASURED_COMMANDS;
+    } finally {
+      BenchSupport.delete(directory);
+    }
+  }
+}
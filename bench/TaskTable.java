@@ -0,0 +1,408 @@
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Compact in-memory table of tasks, stored column by column in primitive arrays instead of one
+ * object graph per task: IDs in an {@code int[]}, statuses in a {@code byte[]}, both timestamps as
+ * epoch nanoseconds in {@code long[]}s, and the descriptions as UTF-8 in a paged byte arena. A
+ * task then costs about 33 bytes plus its description, where a {@link Task} object with its
+ * String takes more than twice that, so tens of millions of tasks fit in a small heap. It lives
+ * with the benchmarks as the columnar layout {@link FootprintBenchmark} measures; the CLI keeps its
+ * tasks in a {@link TaskRepository}.
+ *
+ * <p>Tasks are read through flyweight {@link View}s: a view is a read-only {@link Task} positioned
+ * on one row, which decodes a field only when it is asked for. {@link #forEach} moves a single
+ * view over every row, so iterating allocates nothing but the fields actually read. A consumer
+ * that keeps a task beyond its call, as a {@link TaskPage} or a list does, must keep
+ * {@link View#copy()} instead, or it ends up holding the same view many times over.
+ *
+ * <p>Rows stay in the order tasks were added. IDs are found by binary search while they ascend in
+ * that order, which they do for tasks read from a task file, and through an {@link IntIntMap}
+ * built on first use otherwise. A removed task leaves an empty row behind, and a replaced
+ * description its old bytes in the arena; both are compacted away once they make up half of the
+ * table. Views stay valid only until the table is changed.
+ */
+public final class TaskTable {
+
+  private static final int MIN_CAPACITY = 16;
+  // Descriptions are packed into pages of this size; a longer one gets a page of its own
+  private static final int PAGE_SIZE = 1 << 20;
+  private static final byte REMOVED = -1;
+  private static final Task.Status[] STATUSES = Task.Status.values();
+
+  private int[] ids;
+  private byte[] statuses;
+  private long[] createdAt;
+  private long[] updatedAt;
+  // Page in the upper and position within the page in the lower 32 bits
+  private long[] descriptionAt;
+  private int[] descriptionLength;
+  private byte[][] pages = new byte[1][];
+  private int pageCount;
+  // Next free byte of the last page; PAGE_SIZE when a new page is needed
+  private int pagePosition = PAGE_SIZE;
+  // Rows in use, including removed ones, and rows holding a task
+  private int end;
+  private int size;
+  // Bytes of the descriptions in use, bytes written to the arena, and bytes allocated for it
+  private long liveBytes;
+  private long usedBytes;
+  private long arenaBytes;
+  // True while the IDs ascend in row order; otherwise rows are found through the map
+  private boolean sorted = true;
+  private IntIntMap rowsById;
+
+  /**
+   * Creates an empty table.
+   */
+  public TaskTable() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates an empty table that can hold the given number of tasks without resizing its columns.
+   *
+   * @param expectedSize The number of tasks expected.
+   */
+  public TaskTable(int expectedSize) {
+    allocate(Math.max(MIN_CAPACITY, expectedSize));
+  }
+
+  /**
+   * Copies a task into the table, at the end or over the row of the task with the same ID.
+   *
+   * @param task The task to store; the table keeps no reference to it.
+   */
+  public void add(Task task) {
+    int row = rowOf(task.getId());
+    if (row < 0) {
+      if (end == ids.length) {
+        resize(ids.length * 2);
+      }
+      row = end++;
+      size++;
+      if (sorted && row > 0 && ids[row - 1] >= task.getId()) {
+        sorted = false;
+      }
+      ids[row] = task.getId();
+      if (rowsById != null) {
+        rowsById.put(task.getId(), row);
+      }
+    } else {
+      liveBytes -= descriptionLength[row];
+    }
+    statuses[row] = (byte) task.getStatus().ordinal();
+    createdAt[row] = task.getCreatedAtNanos();
+    updatedAt[row] = task.getUpdatedAtNanos();
+    byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+    storeDescription(row, description, 0, description.length);
+    compactIfNeeded();
+  }
+
+  /**
+   * Removes a task by its ID.
+   *
+   * @param id The task ID.
+   * @return True if there was a task with that ID.
+   */
+  public boolean remove(int id) {
+    int row = rowOf(id);
+    if (row < 0) {
+      return false;
+    }
+    statuses[row] = REMOVED;
+    liveBytes -= descriptionLength[row];
+    if (rowsById != null) {
+      rowsById.remove(id);
+    }
+    size--;
+    compactIfNeeded();
+    return true;
+  }
+
+  /**
+   * Finds a task by its ID.
+   *
+   * @param id The task ID.
+   * @return A view of the task, or null if there is no task with that ID.
+   */
+  public View get(int id) {
+    int row = rowOf(id);
+    return row < 0 ? null : new View(row);
+  }
+
+  /**
+   * Gets the number of tasks in the table.
+   *
+   * @return The task count.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Feeds every task to the consumer in row order, through one view that is moved from row to row.
+   *
+   * @param consumer Receives the view, positioned on each task in turn. It must call
+   *        {@link View#copy()} for any task it keeps.
+   */
+  public void forEach(Consumer<? super Task> consumer) {
+    forEachTask(null, consumer);
+  }
+
+  /**
+   * Feeds the tasks with the given status to the consumer in row order, through one view that is
+   * moved from row to row.
+   *
+   * @param status The status to select, or null for every task.
+   * @param consumer Receives the view, positioned on each selected task in turn. It must call
+   *        {@link View#copy()} for any task it keeps.
+   * @return The total number of tasks, selected or not.
+   */
+  public int forEachTask(Task.Status status, Consumer<? super Task> consumer) {
+    View view = new View(0);
+    for (int row = 0; row < end; row++) {
+      byte rowStatus = statuses[row];
+      if (rowStatus != REMOVED && (status == null || rowStatus == status.ordinal())) {
+        view.row = row;
+        consumer.accept(view);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the bytes held by the columns and the description arena, the bulk of the table's heap.
+   *
+   * @return The allocated size in bytes, including unused capacity.
+   */
+  public long allocatedBytes() {
+    long columns = (long) ids.length * (Integer.BYTES + 1 + 3 * Long.BYTES + Integer.BYTES);
+    return columns + arenaBytes + (rowsById == null ? 0 : 2L * Integer.BYTES * ids.length);
+  }
+
+  /**
+   * Shrinks the columns and the arena to what the tasks need, e.g. once a table has been filled.
+   */
+  public void trimToSize() {
+    rebuild(Math.max(MIN_CAPACITY, size));
+  }
+
+  /**
+   * Read-only {@link Task} positioned on one row of the table. Every getter decodes its field from
+   * the columns when called; the setters throw, since changes go through {@link TaskTable#add}.
+   */
+  public final class View extends Task {
+
+    private int row;
+
+    private View(int row) {
+      super(0, null, null, 0, 0);
+      this.row = row;
+    }
+
+    @Override
+    public int getId() {
+      return ids[row];
+    }
+
+    @Override
+    public String getDescription() {
+      long at = descriptionAt[row];
+      return new String(pages[(int) (at >>> 32)], (int) at, descriptionLength[row],
+          StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Task.Status getStatus() {
+      return STATUSES[statuses[row]];
+    }
+
+    @Override
+    public long getCreatedAtNanos() {
+      return createdAt[row];
+    }
+
+    @Override
+    public long getUpdatedAtNanos() {
+      return updatedAt[row];
+    }
+
+    @Override
+    public boolean isDirty() {
+      return false;
+    }
+
+    @Override
+    public void setId(int id) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setDescription(String description) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setStatus(Task.Status status) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setCreatedAt(LocalDateTime createdAt) {
+      throw readOnly();
+    }
+
+    @Override
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+      throw readOnly();
+    }
+
+    @Override
+    public void markClean() {
+      // Views are never dirty
+    }
+
+    /**
+     * Copies the task out of the table, e.g. to keep or change it.
+     *
+     * @return A standalone task with the view's current fields.
+     */
+    public Task copy() {
+      return new Task(getId(), getDescription(), getStatus(), getCreatedAtNanos(),
+          getUpdatedAtNanos());
+    }
+
+    private UnsupportedOperationException readOnly() {
+      return new UnsupportedOperationException("Task views are read-only");
+    }
+  }
+
+  /**
+   * Finds the row of a task.
+   *
+   * @return The row, or -1 if there is no task with that ID.
+   */
+  private int rowOf(int id) {
+    if (!sorted) {
+      if (rowsById == null) {
+        rowsById = new IntIntMap(ids.length);
+        for (int row = 0; row < end; row++) {
+          if (statuses[row] != REMOVED) {
+            rowsById.put(ids[row], row);
+          }
+        }
+      }
+      int row = rowsById.get(id);
+      return row == IntIntMap.MISSING ? -1 : row;
+    }
+    int row = Arrays.binarySearch(ids, 0, end, id);
+    return row >= 0 && statuses[row] != REMOVED ? row : -1;
+  }
+
+  /**
+   * Appends a description to the arena and points the row to it.
+   */
+  private void storeDescription(int row, byte[] bytes, int offset, int length) {
+    if (pagePosition + length > PAGE_SIZE) {
+      // The rest of the current page stays unused
+      if (pageCount > 0) {
+        usedBytes += PAGE_SIZE - pagePosition;
+      }
+      newPage(Math.max(length, PAGE_SIZE));
+      pagePosition = 0;
+    }
+    int page = pageCount - 1;
+    System.arraycopy(bytes, offset, pages[page], pagePosition, length);
+    descriptionAt[row] = (long) page << 32 | pagePosition;
+    descriptionLength[row] = length;
+    // A page of its own for a long description is full right away
+    pagePosition = length > PAGE_SIZE ? PAGE_SIZE : pagePosition + length;
+    liveBytes += length;
+    usedBytes += length;
+  }
+
+  private void newPage(int length) {
+    if (pageCount == pages.length) {
+      pages = Arrays.copyOf(pages, pages.length * 2);
+    }
+    pages[pageCount++] = new byte[length];
+    arenaBytes += length;
+  }
+
+  /**
+   * Rewrites the table without removed rows and replaced descriptions once they take up half of
+   * it.
+   */
+  private void compactIfNeeded() {
+    if (end - size <= size && usedBytes - liveBytes <= Math.max(liveBytes, PAGE_SIZE)) {
+      return;
+    }
+    rebuild(Math.max(MIN_CAPACITY, size + size / 2));
+  }
+
+  /**
+   * Copies the tasks into new columns of the given capacity and a new arena, dropping removed rows
+   * and replaced descriptions.
+   */
+  private void rebuild(int capacity) {
+    int[] oldIds = ids;
+    byte[] oldStatuses = statuses;
+    long[] oldCreatedAt = createdAt;
+    long[] oldUpdatedAt = updatedAt;
+    long[] oldDescriptionAt = descriptionAt;
+    int[] oldDescriptionLength = descriptionLength;
+    byte[][] oldPages = pages;
+    int oldEnd = end;
+
+    allocate(capacity);
+    pages = new byte[Math.max(1, (int) (liveBytes / PAGE_SIZE) + 1)][];
+    pageCount = 0;
+    pagePosition = PAGE_SIZE;
+    arenaBytes = 0;
+    liveBytes = 0;
+    usedBytes = 0;
+    end = 0;
+    rowsById = null;
+    sorted = true;
+    for (int row = 0; row < oldEnd; row++) {
+      if (oldStatuses[row] == REMOVED) {
+        continue;
+      }
+      int newRow = end++;
+      ids[newRow] = oldIds[row];
+      sorted &= newRow == 0 || ids[newRow - 1] < ids[newRow];
+      statuses[newRow] = oldStatuses[row];
+      createdAt[newRow] = oldCreatedAt[row];
+      updatedAt[newRow] = oldUpdatedAt[row];
+      long at = oldDescriptionAt[row];
+      storeDescription(newRow, oldPages[(int) (at >>> 32)], (int) at, oldDescriptionLength[row]);
+    }
+    // The last page only needs to hold what was written to it
+    if (pageCount > 0 && pagePosition < PAGE_SIZE) {
+      arenaBytes -= PAGE_SIZE - pagePosition;
+      pages[pageCount - 1] = Arrays.copyOf(pages[pageCount - 1], pagePosition);
+      pagePosition = PAGE_SIZE;
+    }
+  }
+
+  private void allocate(int capacity) {
+    ids = new int[capacity];
+    statuses = new byte[capacity];
+    createdAt = new long[capacity];
+    updatedAt = new long[capacity];
+    descriptionAt = new long[capacity];
+    descriptionLength = new int[capacity];
+  }
+
+  private void resize(int capacity) {
+    ids = Arrays.copyOf(ids, capacity);
+    statuses = Arrays.copyOf(statuses, capacity);
+    createdAt = Arrays.copyOf(createdAt, capacity);
+    updatedAt = Arrays.copyOf(updatedAt, capacity);
+    descriptionAt = Arrays.copyOf(descriptionAt, capacity);
+    descriptionLength = Arrays.copyOf(descriptionLength, capacity);
+  }
+}
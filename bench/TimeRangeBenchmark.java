@@ -0,0 +1,93 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures {@code list} with a time range as the CLI runs it in a fresh file handler each time:
+ * through the sorted times in the {@link TaskIndexFile}, against loading every task and checking
+ * its times, for ranges holding from a handful of tasks to a tenth of them. The tasks of
+ * {@link BenchSupport#tasks(int)} are created 37 seconds apart.
+ *
+ * <p>Usage: {@code java -cp out TimeRangeBenchmark [sizes...]}
+ */
+public class TimeRangeBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 10;
+  private static final long SECOND = 1_000_000_000L;
+
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.out.printf("%10s %8s %-20s %8s %12s %12s %10s%n", "tasks", "format", "range", "matches",
+        "index (ms)", "scan (ms)", "speedup");
+    for (int size : sizes) {
+      for (String format : new String[] {"json", "binary"}) {
+        System.setProperty("tasktracker.format", format);
+        Path directory = BenchSupport.scratchDirectory();
+        try {
+          new FileHandler(directory).saveTasks(BenchSupport.tasks(size));
+          long first = BenchSupport.task(1).getCreatedAtNanos();
+          long middle = BenchSupport.task(size / 2).getCreatedAtNanos();
+          long hour = 3600 * SECOND;
+          long tenth = size / 10 * 37 * SECOND;
+          Object[][] ranges = {
+              {"created, 1 hour", TaskFilter.ALL.createdBetween(middle, middle + hour)},
+              {"created, 1 week", TaskFilter.ALL.createdBetween(middle, middle + 168 * hour)},
+              {"created, 10%", TaskFilter.ALL.createdBetween(middle, middle + tenth)},
+              {"updated, 1 hour, done", TaskFilter.ALL.updatedBetween(middle, middle + hour)
+                  .withStatus(Task.Status.DONE)},
+              {"created before start", TaskFilter.ALL.createdBetween(Long.MIN_VALUE, first)},
+          };
+          for (Object[] range : ranges) {
+            TaskFilter filter = (TaskFilter) range[1];
+            int[] matches = new int[2];
+            double indexed = measure(() -> {
+              int[] found = new int[1];
+              new FileHandler(directory).forEachTask(filter, task -> found[0]++);
+              matches[0] = found[0];
+            });
+            double scan = measure(() -> {
+              int found = 0;
+              for (Task task : new FileHandler(directory).loadTasks()) {
+                if (filter.matches(task)) {
+                  found++;
+                }
+              }
+              matches[1] = found;
+            });
+            if (matches[0] != matches[1]) {
+              throw new IllegalStateException("The index found " + matches[0] + " tasks for "
+                  + range[0] + ", the scan " + matches[1]);
+            }
+            System.out.printf("%10d %8s %-20s %8d %12.3f %12.1f %9.0fx%n", size, format,
+                range[0], matches[0], indexed, scan, scan / indexed);
+          }
+          System.out.printf("%10d %8s index file %.1f MB%n", size, format,
+              Files.size(directory.resolve("tasks.idx")) / 1e6);
+        } finally {
+          BenchSupport.delete(directory);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs an action repeatedly and returns its mean time after warming up.
+   */
+  private static double measure(Runnable action) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      action.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      action.run();
+    }
+    return (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+  }
+}
@@ -0,0 +1,105 @@
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Measures the time and heap allocation of handling one timestamp the way the JSON path did before
+ * tasks kept epoch nanoseconds, with {@link LocalDateTime#parse}, {@link LocalDateTime#toString()}
+ * and {@link LocalDateTime#now()}, against the fixed-format {@link TaskTime} code used now.
+ *
+ * <p>Usage: {@code java -cp out TimestampBenchmark [timestamps]}
+ */
+public class TimestampBenchmark {
+
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int MEASURED_ROUNDS = 10;
+
+  public static void main(String[] args) throws Exception {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    List<Task> tasks = BenchSupport.tasks(size);
+    String[] texts = new String[size];
+    long[] nanos = new long[size];
+    for (int i = 0; i < size; i++) {
+      texts[i] = tasks.get(i).getCreatedAt().toString();
+      nanos[i] = tasks.get(i).getCreatedAtNanos();
+      // Both parsers must agree on every value
+      if (TaskTime.parse(texts[i]) != TaskTime.toEpochNanos(LocalDateTime.parse(texts[i]))) {
+        throw new IllegalStateException("Parsers differ on " + texts[i]);
+      }
+    }
+
+    System.out.printf("%-26s %12s %14s%n", "operation", "ns/op", "bytes/op");
+    measure("LocalDateTime.parse", size, () -> {
+      long sum = 0;
+      for (String text : texts) {
+        sum += LocalDateTime.parse(text).getNano();
+      }
+      return sum;
+    });
+    measure("TaskTime.parse", size, () -> {
+      long sum = 0;
+      for (String text : texts) {
+        sum += TaskTime.parse(text);
+      }
+      return sum;
+    });
+
+    StringBuilder builder = new StringBuilder(32);
+    measure("LocalDateTime.toString", size, () -> {
+      long length = 0;
+      for (long value : nanos) {
+        builder.setLength(0);
+        length += builder.append(TaskTime.toLocalDateTime(value)).length();
+      }
+      return length;
+    });
+    measure("TaskTime.appendIso", size, () -> {
+      long length = 0;
+      for (long value : nanos) {
+        builder.setLength(0);
+        length += TaskTime.appendIso(builder, value).length();
+      }
+      return length;
+    });
+
+    measure("LocalDateTime.now", size, () -> {
+      long sum = 0;
+      for (int i = 0; i < size; i++) {
+        sum += LocalDateTime.now().getNano();
+      }
+      return sum;
+    });
+    measure("TaskTime.now", size, () -> {
+      long sum = 0;
+      for (int i = 0; i < size; i++) {
+        sum += TaskTime.now();
+      }
+      return sum;
+    });
+  }
+
+  /**
+   * Runs a round of work repeatedly and prints its average time and allocation per operation.
+   */
+  private static void measure(String name, int size, Round round) throws Exception {
+    long sink = 0;
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      sink += round.run();
+    }
+
+    long allocated = BenchSupport.allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      sink += round.run();
+    }
+    long nanos = System.nanoTime() - start;
+    allocated = BenchSupport.allocatedBytes() - allocated;
+
+    long operations = (long) size * MEASURED_ROUNDS;
+    System.out.printf("%-26s %12.1f %14.1f%s%n", name, (double) nanos / operations,
+        (double) allocated / operations, sink == 42 ? " " : "");
+  }
+
+  private interface Round {
+    long run() throws Exception;
+  }
+}
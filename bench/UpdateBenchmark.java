@@ -0,0 +1,60 @@
+import java.nio.file.Path;
+
+/**
+ * Measures the cost of saving a single changed task: a full rewrite of the JSON and binary files
+ * against an in-place record write in the slotted format.
+ *
+ * <p>Usage: {@code java -cp out UpdateBenchmark [sizes...]}
+ */
+public class UpdateBenchmark {
+
+  private static final int WARMUP_UPDATES = 20;
+  private static final int MEASURED_UPDATES = 50;
+
+  public static void main(String[] args) throws Exception {
+    int[] sizes = {10_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    System.out.printf("%10s %8s %16s%n", "tasks", "format", "update (ms)");
+    for (int size : sizes) {
+      for (String format : new String[] {"json", "binary", "slotted"}) {
+        Path directory = BenchSupport.scratchDirectory();
+        try {
+          System.setProperty("tasktracker.format", format);
+          FileHandler fileHandler = new FileHandler(directory);
+          fileHandler.saveTasks(BenchSupport.tasks(size));
+          TaskRepository tasks = fileHandler.loadTasks();
+          Task.Status[] statuses = Task.Status.values();
+
+          long nanos = 0;
+          for (int i = 0; i < WARMUP_UPDATES + MEASURED_UPDATES; i++) {
+            Task task = tasks.get(1 + (int) ((i * 7919L) % size));
+            tasks.setStatus(task, statuses[(task.getStatus().ordinal() + 1) % statuses.length]);
+            long start = System.nanoTime();
+            fileHandler.saveTask(tasks, task);
+            if (i >= WARMUP_UPDATES) {
+              nanos += System.nanoTime() - start;
+            }
+          }
+
+          // The changes must survive a reload
+          TaskRepository reloaded = fileHandler.loadTasks();
+          for (Task task : tasks) {
+            if (reloaded.get(task.getId()).getStatus() != task.getStatus()) {
+              throw new IllegalStateException("Lost update of task " + task.getId());
+            }
+          }
+
+          System.out.printf("%10d %8s %16.3f%n", size, format, nanos / 1e6 / MEASURED_UPDATES);
+        } finally {
+          BenchSupport.delete(directory);
+        }
+      }
+    }
+  }
+}
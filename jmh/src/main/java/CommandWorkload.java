@@ -0,0 +1,79 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import tasktracker.jmh.Workload;
+
+/**
+ * Runs one CLI command through {@link TaskTracker#runCommand} against tasks in memory, saving
+ * through a file handler on a scratch directory in the JSON format, as the CLI does. Commands that
+ * take an ID go through the tasks in turn. The task list keeps its size: a task added by
+ * {@code add} is dropped from memory again and a task removed by {@code delete} put back, both
+ * O(1) next to the save each of them makes. Standard output is discarded until
+ * {@link #tearDown}.
+ */
+public final class CommandWorkload implements Workload {
+
+  private final PrintStream console = System.out;
+  private Path directory;
+  private TaskRepository tasks;
+  private String[] command;
+  private int size;
+  private int next;
+
+  @Override
+  public void setUp(int tasks, String commandLine) throws Exception {
+    System.setProperty("tasktracker.format", "json");
+    directory = BenchSupport.scratchDirectory();
+    FileHandler fileHandler = new FileHandler(directory);
+    fileHandler.saveTasks(BenchSupport.tasks(tasks));
+    this.tasks = fileHandler.loadTasks();
+    this.size = this.tasks.size();
+    TaskTracker.setFileHandler(fileHandler);
+
+    // A null argument stands for the ID of the next task
+    switch (commandLine) {
+      case "add":
+        command = new String[] {"add", "Benchmark task"};
+        break;
+      case "update":
+        command = new String[] {"update", null, "Updated by the benchmark"};
+        break;
+      case "mark-in-progress":
+      case "mark-done":
+      case "delete":
+        command = new String[] {commandLine, null};
+        break;
+      default:
+        command = commandLine.split(" ");
+        break;
+    }
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  @Override
+  public Object run() {
+    String[] args = command.clone();
+    int id = 1 + next++ % size;
+    for (int i = 1; i < args.length; i++) {
+      if (args[i] == null) {
+        args[i] = Integer.toString(id);
+      }
+    }
+
+    Task deleted = args[0].equals("delete") ? tasks.get(id) : null;
+    boolean applied = TaskTracker.runCommand(tasks, args);
+    if (args[0].equals("add")) {
+      tasks.remove(tasks.last().getId());
+    } else if (deleted != null) {
+      tasks.add(deleted);
+    }
+    return applied;
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    System.setOut(console);
+    TaskTracker.setFileHandler(new FileHandler());
+    BenchSupport.delete(directory);
+  }
+}
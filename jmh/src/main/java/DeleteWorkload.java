@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import tasktracker.jmh.Workload;
+
+/**
+ * Deletes {@link #DELETES} tasks by distinct random IDs, either from a {@link TaskRepository} or
+ * from a {@code List<Task>} after a linear scan, as given by the variant. Each run uses the tasks
+ * up, so {@link #reset()} fills the store again before it.
+ */
+public final class DeleteWorkload implements Workload {
+
+  /**
+   * Number of tasks deleted by one run.
+   */
+  public static final int DELETES = 2000;
+
+  private List<Task> source;
+  private boolean useList;
+  private TaskRepository repository;
+  private List<Task> list;
+  private int[] ids;
+
+  @Override
+  public void setUp(int tasks, String store) {
+    source = BenchSupport.tasks(tasks);
+    useList = store.equals("list");
+    List<Integer> shuffled = new ArrayList<>(tasks);
+    for (int id = 1; id <= tasks; id++) {
+      shuffled.add(id);
+    }
+    Collections.shuffle(shuffled, new Random(42));
+    ids = shuffled.subList(0, Math.min(DELETES, tasks)).stream().mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  @Override
+  public void reset() {
+    if (useList) {
+      list = new ArrayList<>(source);
+    } else {
+      repository = new TaskRepository(source.size());
+      repository.addAll(source);
+    }
+  }
+
+  @Override
+  public Object run() {
+    int removed = 0;
+    for (int id : ids) {
+      if (useList) {
+        removed += list.remove(LookupWorkload.find(list, id)) ? 1 : 0;
+      } else {
+        removed += repository.remove(id) != null ? 1 : 0;
+      }
+    }
+    return removed;
+  }
+
+  @Override
+  public void tearDown() {
+    // Nothing outside the heap
+  }
+}
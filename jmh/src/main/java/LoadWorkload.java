@@ -0,0 +1,30 @@
+import java.nio.file.Path;
+import tasktracker.jmh.Workload;
+
+/**
+ * Loads the whole task list through a file handler on a scratch directory holding a task file in
+ * the format given as the variant.
+ */
+public final class LoadWorkload implements Workload {
+
+  private Path directory;
+  private FileHandler fileHandler;
+
+  @Override
+  public void setUp(int tasks, String format) throws Exception {
+    System.setProperty("tasktracker.format", format);
+    this.directory = BenchSupport.scratchDirectory();
+    this.fileHandler = new FileHandler(directory);
+    fileHandler.saveTasks(BenchSupport.tasks(tasks));
+  }
+
+  @Override
+  public Object run() {
+    return fileHandler.loadTasks();
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    BenchSupport.delete(directory);
+  }
+}
@@ -0,0 +1,54 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import tasktracker.jmh.Workload;
+
+/**
+ * Finds a task by a random ID, either in a {@link TaskRepository} or by the linear scan over a
+ * {@code List<Task>} that the command handlers used before, as given by the variant.
+ */
+public final class LookupWorkload implements Workload {
+
+  // Random IDs cycled through, a power of two
+  private static final int IDS = 4096;
+
+  private TaskRepository repository;
+  private List<Task> list;
+  private int[] ids;
+  private int next;
+
+  @Override
+  public void setUp(int tasks, String store) {
+    List<Task> source = BenchSupport.tasks(tasks);
+    if (store.equals("list")) {
+      list = new ArrayList<>(source);
+    } else {
+      repository = new TaskRepository(tasks);
+      repository.addAll(source);
+    }
+    ids = new Random(42).ints(IDS, 1, tasks + 1).toArray();
+  }
+
+  @Override
+  public Object run() {
+    int id = ids[next++ & (IDS - 1)];
+    return repository != null ? repository.get(id) : find(list, id);
+  }
+
+  @Override
+  public void tearDown() {
+    // Nothing outside the heap
+  }
+
+  /**
+   * Scans a list for a task, as the command handlers did before the repository.
+   */
+  static Task find(List<Task> tasks, int id) {
+    for (Task task : tasks) {
+      if (task.getId() == id) {
+        return task;
+      }
+    }
+    return null;
+  }
+}
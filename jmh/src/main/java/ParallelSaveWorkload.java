@@ -0,0 +1,62 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import tasktracker.jmh.Workload;
+
+/**
+ * Saves the whole task list as JSON through a file handler that serializes it in slices on the
+ * number of threads given as the variant, however short the list. Setting up checks that this
+ * writes the same file and index as the streaming writer on one thread.
+ */
+public final class ParallelSaveWorkload implements Workload {
+
+  private Path directory;
+  private FileHandler fileHandler;
+  private List<Task> tasks;
+
+  @Override
+  public void setUp(int tasks, String threads) throws Exception {
+    System.setProperty("tasktracker.format", "json");
+    System.setProperty("tasktracker.parallelSaveTasks", "0");
+    this.tasks = BenchSupport.tasks(tasks);
+
+    // The thread count is read when the file handler is created
+    Path reference = BenchSupport.scratchDirectory();
+    this.directory = BenchSupport.scratchDirectory();
+    try {
+      System.setProperty("tasktracker.threads", "1");
+      new FileHandler(reference).saveTasks(this.tasks);
+      System.setProperty("tasktracker.threads", threads);
+      this.fileHandler = new FileHandler(directory);
+      fileHandler.saveTasks(this.tasks);
+      if (!sameFiles(reference, directory)) {
+        throw new IllegalStateException(threads + " threads wrote a different file or index");
+      }
+    } finally {
+      BenchSupport.delete(reference);
+    }
+  }
+
+  private static boolean sameFiles(Path expected, Path actual) throws Exception {
+    Path expectedFile = expected.resolve("tasks.json");
+    Path actualFile = actual.resolve("tasks.json");
+    long[] expectedRanges = TaskIndexFile.read(expected.resolve("tasks.idx"), expectedFile)
+        .ranges(null);
+    long[] actualRanges = TaskIndexFile.read(actual.resolve("tasks.idx"), actualFile)
+        .ranges(null);
+    return Arrays.equals(Files.readAllBytes(expectedFile), Files.readAllBytes(actualFile))
+        && Arrays.equals(expectedRanges, actualRanges);
+  }
+
+  @Override
+  public Object run() {
+    fileHandler.saveTasks(tasks);
+    return fileHandler;
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    BenchSupport.delete(directory);
+  }
+}
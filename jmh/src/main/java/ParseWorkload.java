@@ -0,0 +1,32 @@
+import java.io.StringReader;
+import java.io.StringWriter;
+import tasktracker.jmh.Workload;
+
+/**
+ * Parses a JSON task array held in memory with a {@link TaskJsonReader}, building every task.
+ */
+public final class ParseWorkload implements Workload {
+
+  private String json;
+
+  @Override
+  public void setUp(int tasks, String variant) throws Exception {
+    StringWriter text = new StringWriter();
+    new TaskJsonWriter(text).writeTasks(BenchSupport.tasks(tasks));
+    json = text.toString();
+  }
+
+  @Override
+  public Object run() throws Exception {
+    TaskRepository tasks = new TaskRepository();
+    try (TaskJsonReader reader = new TaskJsonReader(new StringReader(json))) {
+      reader.readTasks(tasks::add);
+    }
+    return tasks;
+  }
+
+  @Override
+  public void tearDown() {
+    // Nothing outside the heap
+  }
+}
@@ -0,0 +1,33 @@
+import java.nio.file.Path;
+import java.util.List;
+import tasktracker.jmh.Workload;
+
+/**
+ * Saves the whole task list through a file handler on a scratch directory, in the format given as
+ * the variant.
+ */
+public final class SaveWorkload implements Workload {
+
+  private Path directory;
+  private FileHandler fileHandler;
+  private List<Task> tasks;
+
+  @Override
+  public void setUp(int tasks, String format) throws Exception {
+    System.setProperty("tasktracker.format", format);
+    this.directory = BenchSupport.scratchDirectory();
+    this.fileHandler = new FileHandler(directory);
+    this.tasks = BenchSupport.tasks(tasks);
+  }
+
+  @Override
+  public Object run() {
+    fileHandler.saveTasks(tasks);
+    return fileHandler;
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    BenchSupport.delete(directory);
+  }
+}
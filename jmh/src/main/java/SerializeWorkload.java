@@ -0,0 +1,32 @@
+import java.util.List;
+import tasktracker.jmh.Workload;
+
+/**
+ * Serializes every task to JSON into one reused builder, as {@link TaskJsonWriter} does for each
+ * task it writes.
+ */
+public final class SerializeWorkload implements Workload {
+
+  private final StringBuilder builder = new StringBuilder(256);
+  private List<Task> tasks;
+
+  @Override
+  public void setUp(int tasks, String variant) {
+    this.tasks = BenchSupport.tasks(tasks);
+  }
+
+  @Override
+  public Object run() {
+    long length = 0;
+    for (Task task : tasks) {
+      builder.setLength(0);
+      length += TaskJsonWriter.appendTask(builder, task).length();
+    }
+    return length;
+  }
+
+  @Override
+  public void tearDown() {
+    // Nothing outside the heap
+  }
+}
@@ -0,0 +1,51 @@
+package tasktracker.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Each CLI command as {@code TaskTracker.runCommand} executes it against tasks in memory, saving
+ * through a file handler on a scratch directory in the JSON format, with its output discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CommandBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int tasks;
+
+  @Param({"add", "update", "mark-in-progress", "mark-done", "list", "list done", "delete"})
+  public String command;
+
+  private Workload workload;
+
+  @Setup
+  public void setUp() throws Exception {
+    workload = Workload.create("CommandWorkload", tasks, command);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    workload.tearDown();
+  }
+
+  @Benchmark
+  public Object run() throws Exception {
+    return workload.run();
+  }
+}
@@ -0,0 +1,54 @@
+package tasktracker.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Serializing every task to JSON and parsing a JSON task array in memory, without any file I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JsonBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int tasks;
+
+  private Workload workload;
+
+  @Setup
+  public void setUp(BenchmarkParams params) throws Exception {
+    boolean serialize = params.getBenchmark().endsWith(".serialize");
+    workload = Workload.create(serialize ? "SerializeWorkload" : "ParseWorkload", tasks, "json");
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    workload.tearDown();
+  }
+
+  @Benchmark
+  public Object serialize() throws Exception {
+    return workload.run();
+  }
+
+  @Benchmark
+  public Object parse() throws Exception {
+    return workload.run();
+  }
+}
@@ -0,0 +1,51 @@
+package tasktracker.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving a long task list as JSON with a growing number of threads serializing it in slices
+ * (tasktracker.threads), from one (the streaming writer) up to eight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelSaveBenchmark {
+
+  @Param({"1000000"})
+  public int tasks;
+
+  @Param({"1", "2", "4", "8"})
+  public String threads;
+
+  private Workload workload;
+
+  @Setup
+  public void setUp() throws Exception {
+    workload = Workload.create("ParallelSaveWorkload", tasks, threads);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    workload.tearDown();
+  }
+
+  @Benchmark
+  public Object save() throws Exception {
+    return workload.run();
+  }
+}
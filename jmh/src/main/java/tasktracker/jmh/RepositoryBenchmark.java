@@ -0,0 +1,74 @@
+package tasktracker.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Finding and deleting tasks by ID in a {@code TaskRepository} against the linear scans over a
+ * {@code List<Task>} the command handlers used before. A lookup is timed on its own; deletions use
+ * the tasks up, so each measured invocation deletes {@code DeleteWorkload.DELETES} tasks from a
+ * store filled again before it, and the time is reported per deletion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RepositoryBenchmark {
+
+  // Matches DeleteWorkload.DELETES, which this package cannot refer to
+  private static final int DELETES = 2000;
+
+  @Param({"100000", "1000000"})
+  public int tasks;
+
+  @Param({"list", "repository"})
+  public String store;
+
+  private Workload workload;
+
+  @Setup
+  public void setUp(BenchmarkParams params) throws Exception {
+    boolean delete = params.getBenchmark().endsWith(".delete");
+    workload = Workload.create(delete ? "DeleteWorkload" : "LookupWorkload", tasks, store);
+  }
+
+  @Setup(Level.Iteration)
+  public void fill() throws Exception {
+    workload.reset();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    workload.tearDown();
+  }
+
+  @Benchmark
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  public Object lookup() throws Exception {
+    return workload.run();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OperationsPerInvocation(DELETES)
+  @Warmup(iterations = 5)
+  @Measurement(iterations = 20)
+  public Object delete() throws Exception {
+    return workload.run();
+  }
+}
@@ -0,0 +1,58 @@
+package tasktracker.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Saving and loading the whole task list in each task file format, through a file handler on a
+ * scratch directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StorageBenchmark {
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int tasks;
+
+  @Param({"json", "binary", "slotted"})
+  public String format;
+
+  private Workload workload;
+
+  @Setup
+  public void setUp(BenchmarkParams params) throws Exception {
+    boolean save = params.getBenchmark().endsWith(".save");
+    workload = Workload.create(save ? "SaveWorkload" : "LoadWorkload", tasks, format);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    workload.tearDown();
+  }
+
+  @Benchmark
+  public Object save() throws Exception {
+    return workload.run();
+  }
+
+  @Benchmark
+  public Object load() throws Exception {
+    return workload.run();
+  }
+}
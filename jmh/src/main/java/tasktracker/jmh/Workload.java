@@ -0,0 +1,56 @@
+package tasktracker.jmh;
+
+/**
+ * One operation measured by a benchmark, such as loading the task file or running a command. The
+ * CLI's classes live in the default package, which JMH does not accept benchmarks in and which
+ * code in a named package cannot refer to, so each workload is written next to them in the
+ * default package and the benchmarks load it by class name and call it through this interface.
+ * Every call site only ever sees one implementation, so the JIT inlines the call.
+ */
+public interface Workload {
+
+  /**
+   * Prepares the data the operation runs on.
+   *
+   * @param tasks The number of synthetic tasks.
+   * @param variant The task file format, the command line for command workloads, or the thread
+   *     count for parallel saves.
+   */
+  void setUp(int tasks, String variant) throws Exception;
+
+  /**
+   * Runs the operation once.
+   *
+   * @return Whatever the operation produced, for JMH to consume so it cannot be optimized away.
+   */
+  Object run() throws Exception;
+
+  /**
+   * Restores the data to its state after {@link #setUp}, for operations that use it up, such as
+   * deleting tasks. Called by benchmarks before each iteration that needs it.
+   */
+  default void reset() throws Exception {
+    // Most operations leave the data as they found it
+  }
+
+  /**
+   * Removes what {@link #setUp} created, such as the scratch directory.
+   */
+  void tearDown() throws Exception;
+
+  /**
+   * Creates a workload and prepares its data.
+   *
+   * @param className The name of the implementing class in the default package.
+   * @param tasks The number of synthetic tasks.
+   * @param variant The task file format, the command line for command workloads, or the thread
+   *     count for parallel saves.
+   * @return The prepared workload.
+   */
+  static Workload create(String className, int tasks, String variant) throws Exception {
+    Workload workload =
+        (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+    workload.setUp(tasks, variant);
+    return workload;
+  }
+}
@@ -0,0 +1,296 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer that takes task changes off the caller's thread and saves them in groups. A
+ * dedicated thread waits for the first queued change, lets further changes join for the group
+ * commit window, and then persists the whole group through
+ * {@link FileHandler#saveChanges(java.util.function.Supplier, List)}: one log append, one run of
+ * in-place writes, or one save of the whole list, followed by at most one sync.
+ *
+ * <p>Enqueuing returns at once with a future that completes when the group holding the change is
+ * on disk, or completes exceptionally if writing it failed, so callers that need durability can
+ * wait for it and the others simply carry on. Changed tasks are copied when they are enqueued.
+ * When the whole list has to be written, it is copied while holding its monitor, so code that
+ * changes the list while the writer runs must hold the same monitor.
+ *
+ * <p>If another process wrote the task files since the list was loaded, a group is not dropped:
+ * the writer loads the tasks again, applies the changes of the group and of those queued since
+ * on top, replaces the contents of the list with the result, and writes the group again, just as
+ * {@link TaskTracker#runCommandWithRetry} runs a command again. Changes put a task in its new state
+ * or delete it, so applying them twice does no harm. After {@code MAX_ATTEMPTS} conflicts, this is
+ * done once more while holding the exclusive lock. Tasks renumbered on the way are reported
+ * through {@link #takeNotices()} rather than printed from the writer thread.
+ */
+public final class AsyncTaskWriter implements AutoCloseable {
+
+  private static final int MAX_ATTEMPTS = 5;
+
+  private final FileHandler fileHandler;
+  private final TaskRepository tasks;
+  private final long windowNanos;
+  private final Thread thread;
+
+  // Guarded by this: the changes of the next group and the future they complete
+  private List<TaskChange> queue = new ArrayList<>();
+  private CompletableFuture<Void> queued = new CompletableFuture<>();
+  // Completes when the group taken last is on disk
+  private CompletableFuture<Void> writing = CompletableFuture.completedFuture(null);
+  private boolean flushRequested;
+  private boolean closed;
+  // Guarded by this: notices about renumbered tasks not taken yet
+  private List<String> notices = new ArrayList<>();
+
+  /**
+   * Starts a writer for the given list.
+   *
+   * @param fileHandler The file handler that writes the groups.
+   * @param tasks The full list of tasks, also the monitor guarding changes to it. Its contents are
+   *        replaced when a group has to be applied to tasks loaded again.
+   * @param windowMillis How long changes may join a group after the first one, in milliseconds.
+   */
+  public AsyncTaskWriter(FileHandler fileHandler, TaskRepository tasks, long windowMillis) {
+    this.fileHandler = fileHandler;
+    this.tasks = tasks;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+    this.thread = new Thread(this::run, "task-writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Enqueues a task that was added or changed.
+   *
+   * @param task The task in its new state; a copy is queued, so it may change again right away.
+   * @return A future that completes once the change is on disk.
+   */
+  public CompletableFuture<Void> saveTask(Task task) {
+    return enqueue(TaskChange.put(task.copy()));
+  }
+
+  /**
+   * Enqueues the deletion of a task.
+   *
+   * @param id The ID of the deleted task.
+   * @return A future that completes once the deletion is on disk.
+   */
+  public CompletableFuture<Void> deleteTask(int id) {
+    return enqueue(TaskChange.delete(id));
+  }
+
+  /**
+   * Writes everything queued so far without waiting for the rest of the window.
+   *
+   * @return A future that completes once the queued changes are on disk.
+   */
+  public synchronized CompletableFuture<Void> flush() {
+    if (queue.isEmpty()) {
+      return writing;
+    }
+    flushRequested = true;
+    notifyAll();
+    return queued;
+  }
+
+  /**
+   * Takes the notices about tasks that were renumbered because another process added tasks under
+   * their IDs, so the caller can show them between its own output, e.g. before the next prompt.
+   *
+   * @return The notices since the last call, oldest first; empty if there are none.
+   */
+  public synchronized List<String> takeNotices() {
+    if (notices.isEmpty()) {
+      return List.of();
+    }
+    List<String> taken = notices;
+    notices = new ArrayList<>();
+    return taken;
+  }
+
+  /**
+   * Writes the remaining changes and stops the writer thread.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private synchronized CompletableFuture<Void> enqueue(TaskChange change) {
+    if (closed) {
+      throw new IllegalStateException("The task writer is closed");
+    }
+    queue.add(change);
+    if (queue.size() == 1) {
+      notifyAll();
+    }
+    return queued;
+  }
+
+  /**
+   * Writer thread: collects one group at a time and writes it.
+   */
+  private void run() {
+    while (true) {
+      List<TaskChange> group;
+      CompletableFuture<Void> done;
+      synchronized (this) {
+        try {
+          while (queue.isEmpty() && !closed) {
+            wait();
+          }
+          // Group commit: give other changes the rest of the window to join
+          long deadline = System.nanoTime() + windowNanos;
+          long remaining;
+          while (!closed && !flushRequested && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+          }
+        } catch (InterruptedException e) {
+          // Stop waiting and write what is queued
+          closed = true;
+        }
+        if (queue.isEmpty()) {
+          queued.complete(null);
+          return;
+        }
+        group = queue;
+        done = queued;
+        writing = done;
+        queue = new ArrayList<>();
+        queued = new CompletableFuture<>();
+        flushRequested = false;
+      }
+
+      try {
+        save(group);
+        done.complete(null);
+      } catch (IOException | RuntimeException e) {
+        System.err.println("Error saving tasks: " + e.getMessage());
+        done.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * Writes a group, applying it to the tasks loaded again whenever another process wrote the task
+   * files in the meantime.
+   */
+  private void save(List<TaskChange> group) throws IOException {
+    for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+      try {
+        fileHandler.saveChanges(this::copyTasks, group);
+        return;
+      } catch (FileHandler.ConflictException e) {
+        // Back off a little, so writers that keep colliding spread out
+        try {
+          Thread.sleep(ThreadLocalRandom.current().nextInt(attempt * 5 + 1));
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+        }
+        group = merge(fileHandler.loadTasks(), group);
+      }
+    }
+
+    // Still losing the race, so load and write without letting anyone in between
+    List<TaskChange> retried = group;
+    IOException[] failure = new IOException[1];
+    fileHandler.runExclusively(() -> {
+      try {
+        fileHandler.saveChanges(this::copyTasks, merge(fileHandler.loadTasks(), retried));
+      } catch (IOException e) {
+        failure[0] = e;
+      }
+    });
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+  }
+
+  /**
+   * Applies the changes of a group and those queued since to tasks that were loaded again, and
+   * makes the result the contents of the list.
+   *
+   * @param loaded The tasks as stored now.
+   * @param group The changes of the group being written.
+   * @return The group to write instead, with the tasks renumbered by {@link #apply} under their
+   *         new IDs.
+   */
+  private List<TaskChange> merge(TaskRepository loaded, List<TaskChange> group) {
+    IntIntMap renumbered = new IntIntMap();
+    List<String> renumberings = new ArrayList<>();
+    synchronized (tasks) {
+      List<TaskChange> merged = apply(loaded, group, renumbered, renumberings);
+      synchronized (this) {
+        queue = apply(loaded, queue, renumbered, renumberings);
+        notices.addAll(renumberings);
+      }
+      tasks.replaceWith(loaded);
+      return merged;
+    }
+  }
+
+  /**
+   * Applies changes to a list in order. A task added in this session can collide with a task that
+   * another process added under the same ID meanwhile, which has a different creation time; it is
+   * given the next free ID instead, and so are its later changes.
+   *
+   * @param tasks The list to change.
+   * @param changes The changes to apply.
+   * @param renumbered The new IDs of renumbered tasks by their old ones, added to as needed.
+   * @param renumberings Receives a notice for every task renumbered here.
+   * @return The changes as applied, under the new IDs.
+   */
+  private static List<TaskChange> apply(TaskRepository tasks, List<TaskChange> changes,
+      IntIntMap renumbered, List<String> renumberings) {
+    List<TaskChange> applied = new ArrayList<>(changes.size());
+    for (TaskChange change : changes) {
+      int id = renumbered.get(change.getId());
+      if (id == IntIntMap.MISSING) {
+        id = change.getId();
+      }
+      if (change.isDelete()) {
+        tasks.remove(id);
+        applied.add(id == change.getId() ? change : TaskChange.delete(id));
+        continue;
+      }
+
+      Task task = change.getTask();
+      Task existing = tasks.get(id);
+      if (existing != null && existing.getCreatedAtNanos() != task.getCreatedAtNanos()) {
+        id = tasks.nextId();
+        renumbered.put(change.getId(), id);
+        renumberings.add("Task " + change.getId() + " is now task " + id
+            + ": another process added a task with the same ID.");
+      }
+      // The list gets a copy of its own, since commands change tasks while the group is written
+      tasks.add(task.copy(id));
+      applied.add(id == change.getId() ? change : TaskChange.put(task.copy(id)));
+    }
+    return applied;
+  }
+
+  /**
+   * Copies the list while holding its monitor, so it can be written while it keeps changing.
+   */
+  private Collection<Task> copyTasks() {
+    synchronized (tasks) {
+      List<Task> copy = new ArrayList<>(tasks.size());
+      for (Task task : tasks) {
+        copy.add(task.copy());
+      }
+      return copy;
+    }
+  }
+}
@@ -1,182 +1,1193 @@
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 
 /**
  * Handles all file-related operations for the Task Tracker application, including reading and
  * writing tasks to a JSON file. This class abstracts away the file I/O logic from the main
  * application flow, ensuring separation of concerns and easier maintenance.
+ *
+ * <p>In the "log" storage mode (see {@link TrackerConfig#storageMode()}) single-task changes are
+ * appended to a {@link TaskLog} next to the JSON snapshot instead of rewriting it, and the log is
+ * folded into a new snapshot once it grows past the compaction threshold.
+ *
+ * <p>The snapshot itself is the JSON file, its {@link TaskBinaryFormat} counterpart or a
+ * {@link TaskSlotFile}, depending on {@link TrackerConfig#format()}. The lock file records which
+ * of them was written last, and only that one is read, so switching formats simply takes effect
+ * with the next save and the files left behind in other formats are ignored. In the slotted format,
+ * a single changed task is written over its own record instead of rewriting the file.
+ *
+ * <p>Several processes may use the same data directory. Reads hold a shared {@link FileLock} on
+ * {@code tasks.lock} and writes an exclusive one, and the lock file holds a version counter that
+ * every write increments. A write from a handler whose tasks were loaded at an older version throws
+ * a {@link ConflictException} instead of overwriting the other process's change, so the caller can
+ * reload and apply its own change again.
+ *
+ * <p>The lock file also holds the ID sequence: the ID the next new task gets. It only ever grows,
+ * so IDs of deleted tasks are not reused, and {@link #appendTask} can add a task to the log or the
+ * slot file without loading or scanning the tasks already stored.
+ *
+ * <p>Task descriptions are indexed for {@link #searchTasks} by a {@link TaskSearchIndex}, which
+ * every single-task change updates as it is written. The lock file records the version of the task
+ * files the index reflects; a write that does not update it, such as saving the whole list, leaves
+ * the index out of date, and the next search rebuilds it.
  */
 public class FileHandler {
 
   // Constants for file paths and names
   private static final String DIRECTORY_PATH = "data";
   private static final String FILE_NAME = "tasks.json";
-  // Full path to the tasks file
-  private static final Path FILE_PATH = Paths.get(DIRECTORY_PATH, FILE_NAME);
+  private static final String BINARY_FILE_NAME = "tasks.bin";
+  private static final String SLOT_FILE_NAME = "tasks.slots";
+  private static final String LOG_FILE_NAME = "tasks.log";
+  private static final String INDEX_FILE_NAME = "tasks.idx";
+  private static final String LOCK_FILE_NAME = "tasks.lock";
+  private static final String SEARCH_INDEX_FILE_NAME = "tasks.terms";
+  private static final String SEARCH_LOG_FILE_NAME = "tasks.terms.log";
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+  private static final String TEMP_SUFFIX = ".tmp";
+  // Formats as numbered in the lock file, from 1; 0 means not recorded yet
+  private static final String[] FORMATS = {"json", "binary", "slotted"};
+
+  // Directory holding all task files
+  private final Path directory;
+  // Full path to the tasks file, in each of the supported formats
+  private final Path filePath;
+  private final Path binaryPath;
+  private final TaskSlotFile slotFile;
+  private final Path slotPath;
+  // Configured format: "json", "binary" or "slotted"
+  private final String format;
+  // Record offsets and status bit sets of the tasks file
+  private final Path indexPath;
+  // Changes not yet folded into the tasks file
+  private final TaskLog taskLog;
+  private final boolean logMode;
+  private final long compactionThreshold;
+  // Terms of the task descriptions, for searching
+  private final TaskSearchIndex searchIndex;
+  private final int threads;
+  private final long parallelLoadBytes;
+  private final long parallelSaveTasks;
+  private final boolean fsync;
+  // While a batch runs, single-task saves are held back until the next flush
+  private boolean batching;
+  private boolean batchChanged;
+  // Receives single-task changes instead of writing them on the caller's thread
+  private AsyncTaskWriter asyncWriter;
+  // Lock file holding the version of the task files and the ID sequence
+  private final Path lockPath;
+  // File locks only exclude other processes, so the threads of this one take turns here first
+  private final java.util.concurrent.locks.ReentrantLock processLock =
+      new java.util.concurrent.locks.ReentrantLock();
+  private FileChannel lockChannel;
+  private boolean lockedExclusively;
+  // Version of the task files and ID sequence while the lock is held; an ID of 0 means unknown,
+  // as in lock files written before the sequence was kept there
+  private long lockedVersion;
+  private int lockedNextId;
+  // Version of the task files the search index reflects while the lock is held, 0 for none, and
+  // whether it reflected the version a write started from
+  private long lockedIndexVersion;
+  private boolean searchIndexCurrent;
+  // Format of the task file written last while the lock is held, numbered as in FORMATS
+  private long lockedFormat;
+  // Version of the task files when this handler last loaded or wrote them, -1 before that
+  private long knownVersion = -1;
+
+  /**
+   * Thrown when the task files were written by another process since this handler read them, so
+   * writing the tasks in memory would overwrite that change.
+   */
+  public static final class ConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    ConflictException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Creates a file handler that stores tasks in the default data directory.
+   */
+  public FileHandler() {
+    this(Paths.get(DIRECTORY_PATH));
+  }
+
+  /**
+   * Creates a file handler that stores tasks in the given directory.
+   *
+   * @param directory The directory holding the tasks file.
+   */
+  public FileHandler(Path directory) {
+    this.directory = directory;
+    this.filePath = directory.resolve(FILE_NAME);
+    this.binaryPath = directory.resolve(BINARY_FILE_NAME);
+    this.slotPath = directory.resolve(SLOT_FILE_NAME);
+    this.fsync = TrackerConfig.fsync();
+    this.slotFile = new TaskSlotFile(slotPath, fsync);
+    this.format = TrackerConfig.format();
+    this.indexPath = directory.resolve(INDEX_FILE_NAME);
+    this.taskLog = new TaskLog(directory.resolve(LOG_FILE_NAME), fsync);
+    this.logMode = TrackerConfig.storageMode().equals("log");
+    this.compactionThreshold = TrackerConfig.compactionThreshold();
+    this.searchIndex = new TaskSearchIndex(directory.resolve(SEARCH_INDEX_FILE_NAME),
+        directory.resolve(SEARCH_LOG_FILE_NAME), fsync);
+    this.threads = TrackerConfig.threads();
+    this.parallelLoadBytes = TrackerConfig.parallelLoadBytes();
+    this.parallelSaveTasks = TrackerConfig.parallelSaveTasks();
+    this.lockPath = directory.resolve(LOCK_FILE_NAME);
+  }
+
+  /**
+   * Gets the directory holding the task files.
+   *
+   * @return The data directory.
+   */
+  public Path getDirectory() {
+    return directory;
+  }
 
   /**
    * Ensures that the data directory exists.
    */
-  private static void ensureDataDirectoryExists() {
+  private void ensureDataDirectoryExists() {
     try {
-      java.nio.file.Files.createDirectories(FILE_PATH.getParent());
+      java.nio.file.Files.createDirectories(filePath.getParent());
     } catch (java.io.IOException e) {
       System.err.println("Error creating data directory: " + e.getMessage());
     }
   }
 
   /**
-   * Saves the list of tasks to a JSON file.
+   * Persists a task that was just added or changed. In log mode only that task is appended to the
+   * log, and in the slotted format only its record is overwritten; otherwise the whole list is
+   * saved. A task without unsaved changes is not written at all.
    *
-   * @param tasks The list of Task objects to be saved.
+   * @param tasks The full list of tasks, already containing the change.
+   * @param task The task that was added or changed.
    */
-  public void saveTasks(java.util.List<Task> tasks) {
+  public void saveTask(java.util.Collection<Task> tasks, Task task) {
+    if (!task.isDirty()) {
+      return;
+    }
+    if (batching) {
+      batchChanged = true;
+      return;
+    }
+    if (asyncWriter != null) {
+      asyncWriter.saveTask(task);
+      task.markClean();
+      return;
+    }
     try {
-      // If the directory doesn't exist, create it
-      ensureDataDirectoryExists();
+      locked(true, true, nextIdOf(tasks), () -> {
+        if (!logMode && !canWriteInPlace()) {
+          writeTasks(tasks);
+        } else if (logMode) {
+          long logSize = taskLog.appendPut(task);
+          task.markClean();
+          compactIfNeeded(tasks, logSize);
+        } else {
+          slotFile.put(task);
+          task.markClean();
+          compactSlotsIfNeeded(tasks);
+        }
+        updateSearchIndex(() -> searchIndex.appendPut(task));
+        return null;
+      });
+    } catch (IOException e) {
+      System.err.println("Error saving task: " + e.getMessage());
+    }
+  }
 
-      // If there are no tasks, write an empty JSON array to the file
-      if (tasks.isEmpty()) {
-        Files.writeString(FILE_PATH, "[]");
-        return;
-      }
+  /**
+   * Persists the deletion of a task. In log mode only a delete record is appended to the log, and
+   * in the slotted format only the task's record is freed; otherwise the whole list is saved.
+   *
+   * @param tasks The full list of tasks, from which the task has already been removed.
+   * @param task The task that was deleted.
+   */
+  public void deleteTask(java.util.Collection<Task> tasks, Task task) {
+    if (batching) {
+      batchChanged = true;
+      return;
+    }
+    if (asyncWriter != null) {
+      asyncWriter.deleteTask(task.getId());
+      return;
+    }
+    try {
+      locked(true, true, nextIdOf(tasks), () -> {
+        if (!logMode && !canWriteInPlace()) {
+          writeTasks(tasks);
+        } else if (logMode) {
+          compactIfNeeded(tasks, taskLog.appendDelete(task.getId()));
+        } else {
+          slotFile.delete(task.getId());
+          compactSlotsIfNeeded(tasks);
+        }
+        updateSearchIndex(() -> searchIndex.appendDelete(task.getId()));
+        return null;
+      });
+    } catch (IOException e) {
+      System.err.println("Error deleting task: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Hands every later {@link #saveTask} and {@link #deleteTask} to a background writer, which saves
+   * them in groups; null writes them on the caller's thread again.
+   *
+   * @param writer The writer to enqueue changes to, or null.
+   */
+  public void setAsyncWriter(AsyncTaskWriter writer) {
+    this.asyncWriter = writer;
+  }
 
-      // Create a JSON array string from the list of tasks
-      StringBuilder sb = new StringBuilder();
-      sb.append("[");
-      for (int i = 0; i < tasks.size(); i++) {
-        sb.append(tasks.get(i).toJson());
-        // Son eleman değilse virgül ekle
-        if (i < tasks.size() - 1) {
-          sb.append(",");
+  /**
+   * Persists a group of changes with as few writes and syncs as possible: in log mode as one
+   * append, in the slotted format as in-place writes through one channel, each followed by a single
+   * sync when fsync is on. Otherwise, or when the log or the slot file is due for compaction, the
+   * whole list is saved once.
+   *
+   * @param tasks Supplies the full list in its current state, only called if it has to be written.
+   * @param changes The changes, in the order they were made.
+   * @throws IOException if the changes could not be written.
+   */
+  void saveChanges(java.util.function.Supplier<java.util.Collection<Task>> tasks,
+      java.util.List<TaskChange> changes) throws IOException {
+    // The list was loaded, which recorded its sequence, so the added tasks are all that is new
+    int nextId = 0;
+    for (TaskChange change : changes) {
+      if (!change.isDelete()) {
+        nextId = Math.max(nextId, change.getId() + 1);
+      }
+    }
+    locked(true, true, nextId, () -> {
+      if (!logMode && !canWriteInPlace()) {
+        writeTasks(tasks.get());
+      } else if (logMode) {
+        if (taskLog.appendAll(changes) >= compactionThreshold) {
+          writeTasks(tasks.get());
+        }
+      } else {
+        try {
+          slotFile.apply(changes);
+        } catch (IOException e) {
+          // Some records may be written and others not, so the next save rewrites the file
+          slotFile.forget();
+          throw e;
+        }
+        if (slotFile.needsCompaction()) {
+          writeTasks(tasks.get());
         }
       }
-      sb.append("]");
+      updateSearchIndex(() -> searchIndex.appendAll(changes));
+      return null;
+    });
+  }
 
-      // Write the JSON string to the file, creating or overwriting as needed
-      Files.writeString(FILE_PATH, sb.toString(), StandardOpenOption.CREATE,
-          StandardOpenOption.TRUNCATE_EXISTING);
+  /**
+   * Starts a batch: from now on {@link #saveTask} and {@link #deleteTask} only note that the list
+   * changed, and the changes are written together by {@link #flush} or {@link #endBatch}.
+   */
+  public void beginBatch() {
+    batching = true;
+  }
 
+  /**
+   * Saves the whole list if it changed since the batch began or since the last flush.
+   *
+   * @param tasks The full list of tasks, containing every change of the batch.
+   * @return True if the list was saved.
+   */
+  public boolean flush(java.util.Collection<Task> tasks) {
+    if (!batchChanged) {
+      return false;
+    }
+    batchChanged = false;
+    saveTasks(tasks);
+    return true;
+  }
+
+  /**
+   * Ends a batch, saving its remaining changes. Later changes are saved one by one again.
+   *
+   * @param tasks The full list of tasks, containing every change of the batch.
+   * @return True if the list was saved.
+   */
+  public boolean endBatch(java.util.Collection<Task> tasks) {
+    try {
+      return flush(tasks);
+    } finally {
+      batching = false;
+    }
+  }
+
+  /**
+   * Checks whether single tasks can be written over their records in the slot file. That needs the
+   * slot file to be the one the tasks were loaded from, and no log records that a later load would
+   * replay over the newer records.
+   */
+  private boolean canWriteInPlace() throws IOException {
+    return format.equals("slotted") && slotFile.isLoaded() && taskLog.size() == 0;
+  }
+
+  /**
+   * Rewrites the slot file once freed slots make up most of it.
+   */
+  private void compactSlotsIfNeeded(java.util.Collection<Task> tasks) throws IOException {
+    if (slotFile.needsCompaction()) {
+      writeTasks(tasks);
+    }
+  }
+
+  /**
+   * Folds the log into a new snapshot once it has grown past the compaction threshold.
+   */
+  private void compactIfNeeded(java.util.Collection<Task> tasks, long logSize)
+      throws IOException {
+    if (logSize >= compactionThreshold) {
+      writeTasks(tasks);
+    }
+  }
+
+  /**
+   * Saves the list of tasks to the task file in the configured format, along with its
+   * {@link TaskIndexFile}. Since the file then holds every change, the log is emptied afterwards;
+   * should the process die in between, replaying the log again is harmless.
+   *
+   * <p>The file is written under a temporary name, forced to disk and then renamed over the old
+   * one, so a crash at any point leaves either the old or the new file, never a mix. With
+   * {@link TrackerConfig#fsync()} the directory is forced as well, making the rename itself
+   * durable.
+   *
+   * @param tasks The list of Task objects to be saved.
+   */
+  public void saveTasks(java.util.Collection<Task> tasks) {
+    try {
+      locked(true, true, nextIdOf(tasks), () -> {
+        writeTasks(tasks);
+        return null;
+      });
     } catch (IOException e) {
       System.err.println("Error saving tasks: " + e.getMessage());
     }
   }
 
   /**
-   * Loads the list of tasks from the JSON file.
+   * Gets the lowest ID a new task may get next to the given tasks: the sequence of a
+   * {@link TaskRepository}, which is O(1), or one above the highest ID of any other collection.
+   */
+  private static int nextIdOf(java.util.Collection<Task> tasks) {
+    if (tasks instanceof TaskRepository) {
+      return ((TaskRepository) tasks).nextId();
+    }
+    int nextId = 1;
+    for (Task task : tasks) {
+      nextId = Math.max(nextId, task.getId() + 1);
+    }
+    return nextId;
+  }
+
+  private void writeTasks(java.util.Collection<Task> tasks) throws IOException {
+    // If the directory doesn't exist, create it
+    ensureDataDirectoryExists();
+
+    // A partial list only ever comes with log mode, so the files already hold its changes
+    if (tasks instanceof TaskRepository && ((TaskRepository) tasks).isPartial()) {
+      tasks = loadTasks();
+    }
+
+    long[] offsets = writeSnapshot(format, tasks);
+    taskLog.clear();
+    for (Task task : tasks) {
+      task.markClean();
+    }
+    if (offsets != null) {
+      writeIndex(pathOf(format), tasks, offsets);
+    }
+  }
+
+  /**
+   * Writes the index of a task file that was just saved. Without an index, listings simply read
+   * the whole file, so a failure here is reported but not treated as a failed save.
+   */
+  private void writeIndex(Path path, java.util.Collection<Task> tasks, long[] offsets) {
+    try {
+      replaceAtomically(indexPath, temporary -> {
+        TaskIndexFile.write(temporary, path, tasks, offsets);
+        return null;
+      });
+    } catch (IOException e) {
+      System.err.println("Error writing task index: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes the current tasks, including changes still in the log, to the task file of the given
+   * format. The conversion is lossless in both directions.
+   *
+   * @param format One of "json", "binary" or "slotted".
+   * @return The file that was written, or null if it could not be written.
+   */
+  public Path convertTo(String format) {
+    try {
+      // The new file becomes the one that is read, so nobody may write in between
+      return locked(true, false, () -> {
+        TaskRepository tasks = loadTasks();
+        return locked(true, true, tasks.nextId(), () -> {
+          Path path = pathOf(format);
+          long[] offsets = writeSnapshot(format, tasks);
+          if (offsets != null) {
+            writeIndex(path, tasks, offsets);
+          }
+          // Only the file changed, not the tasks
+          updateSearchIndex(() -> { });
+          return path;
+        });
+      });
+    } catch (IOException e) {
+      System.err.println("Error converting tasks: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Writes the tasks to the task file of the given format.
+   *
+   * @return The byte offset of each task's record, or null for the slotted format, which is not
+   *         indexed because its records move when they are updated in place.
+   */
+  private long[] writeSnapshot(String format, java.util.Collection<Task> tasks)
+      throws IOException {
+    long[] offsets = writeSnapshotFile(format, tasks);
+    // A crash before this leaves the previous file as the one that is read, as if nothing was saved
+    long written = java.util.Arrays.asList(FORMATS).indexOf(format) + 1;
+    if (lockedFormat != written) {
+      lockedFormat = written;
+      writeHeader(fsync);
+    }
+    return offsets;
+  }
+
+  private long[] writeSnapshotFile(String format, java.util.Collection<Task> tasks)
+      throws IOException {
+    switch (format) {
+      case "binary":
+        return replaceAtomically(binaryPath, temporary -> TaskBinaryFormat.write(temporary, tasks));
+      case "slotted":
+        try {
+          return replaceAtomically(slotPath, temporary -> {
+            slotFile.write(temporary, tasks);
+            return null;
+          });
+        } catch (IOException e) {
+          // The positions learnt while writing belong to a file that never replaced the old one
+          slotFile.forget();
+          throw e;
+        }
+      default:
+        return replaceAtomically(filePath, temporary -> writeJson(temporary, tasks));
+    }
+  }
+
+  /**
+   * Work done while holding the lock of the task files.
+   */
+  @FunctionalInterface
+  private interface LockedAction<T> {
+    T run() throws IOException;
+  }
+
+  /**
+   * Runs an action under the lock of the task files: shared for reads, exclusive for writes. A
+   * write first checks that nobody else wrote since this handler last loaded or wrote the files,
+   * and then increments the version before the action changes anything, so a crash in the middle
+   * makes other processes reload rather than miss the change. Nested calls within the same thread
+   * keep the lock they are in, which must be exclusive for a write.
    *
-   * @return A list of Task objects loaded from the file, or an empty list if the file is empty or
-   *         doesn't exist.
+   * @param exclusive Whether to take the lock exclusively.
+   * @param write Whether the action writes the task files, which needs the version check.
+   * @param action The action to run.
+   * @return Whatever the action returned.
+   * @throws ConflictException if the action would write over another process's change.
    */
-  public java.util.List<Task> loadTasks() {
-    java.util.List<Task> tasks = new java.util.ArrayList<>();
+  private <T> T locked(boolean exclusive, boolean write, LockedAction<T> action)
+      throws IOException {
+    return locked(exclusive, write, 0, action);
+  }
 
+  /**
+   * Runs an action under the lock of the task files like {@link #locked(boolean, boolean,
+   * LockedAction)}, raising the ID sequence along with the version for a write that stores tasks
+   * up to the given ID.
+   *
+   * @param nextId The lowest ID a new task may get after the write, or 0 to keep the sequence.
+   */
+  private <T> T locked(boolean exclusive, boolean write, int nextId, LockedAction<T> action)
+      throws IOException {
+    processLock.lock();
+    boolean outermost = processLock.getHoldCount() == 1;
+    FileLock fileLock = null;
     try {
-      // Check if file exists
-      if (!Files.exists(FILE_PATH)) {
-        return tasks; // Return empty list if file doesn't exist
+      if (outermost) {
+        ensureDataDirectoryExists();
+        lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileLock = lockChannel.lock(0, Long.MAX_VALUE, !exclusive);
+        lockedExclusively = exclusive;
+      } else if ((exclusive || write) && !lockedExclusively) {
+        throw new IllegalStateException("Cannot write the task files while reading them");
       }
 
-      // Read the entire file as a single string
-      String jsonContent = Files.readString(FILE_PATH);
+      if (outermost) {
+        readHeader();
+      }
+      if (write) {
+        if (knownVersion >= 0 && lockedVersion != knownVersion) {
+          throw new ConflictException("The tasks were changed by another process");
+        }
+        searchIndexCurrent = lockedIndexVersion != 0 && lockedIndexVersion == lockedVersion;
+        lockedVersion++;
+        lockedNextId = Math.max(lockedNextId, nextId);
+        writeHeader(fsync);
+        knownVersion = lockedVersion;
+      }
+      return action.run();
+    } finally {
+      if (outermost) {
+        lockedExclusively = false;
+        try {
+          if (fileLock != null) {
+            fileLock.release();
+          }
+        } finally {
+          if (lockChannel != null) {
+            lockChannel.close();
+            lockChannel = null;
+          }
+        }
+      }
+      processLock.unlock();
+    }
+  }
 
-      // Handle empty array
-      if (jsonContent.trim().equals("[]")) {
-        return tasks;
+  /**
+   * Reads the version, the ID sequence, the version of the search index and the format of the task
+   * file from the lock file: 8 bytes each, any of which is missing in a lock file that has not been
+   * written yet or was written before it was kept there.
+   */
+  private void readHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(4 * Long.BYTES);
+    while (header.hasRemaining() && lockChannel.read(header, header.position()) >= 0) {
+      // Keep reading until the header is complete or the file ends
+    }
+    header.flip();
+    lockedVersion = header.remaining() >= Long.BYTES ? header.getLong() : 0;
+    lockedNextId = header.remaining() >= Long.BYTES ? (int) header.getLong() : 0;
+    lockedIndexVersion = header.remaining() >= Long.BYTES ? header.getLong() : 0;
+    lockedFormat = header.remaining() >= Long.BYTES ? header.getLong() : 0;
+  }
+
+  /**
+   * Writes the header read by {@link #readHeader()}.
+   *
+   * @param force Whether to force it to disk.
+   */
+  private void writeHeader(boolean force) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(4 * Long.BYTES).putLong(lockedVersion)
+        .putLong(lockedNextId).putLong(lockedIndexVersion).putLong(lockedFormat).flip();
+    while (buffer.hasRemaining()) {
+      lockChannel.write(buffer, buffer.position());
+    }
+    if (force) {
+      lockChannel.force(false);
+    }
+  }
+
+  /**
+   * Changes to the search index that go along with a write.
+   */
+  @FunctionalInterface
+  private interface SearchIndexUpdate {
+    void apply() throws IOException;
+  }
+
+  /**
+   * Records the change a write just made in the search index, if the index reflected the files as
+   * the write found them, and marks it as reflecting the new version. Otherwise the index stays out
+   * of date until the next search rebuilds it, which is also the outcome of a failed update, so a
+   * failure is reported but does not fail the write.
+   *
+   * @param update Appends the change to the index.
+   */
+  private void updateSearchIndex(SearchIndexUpdate update) {
+    if (!searchIndexCurrent) {
+      return;
+    }
+    try {
+      update.apply();
+      lockedIndexVersion = lockedVersion;
+      // Losing this in a crash only makes the next search rebuild the index
+      writeHeader(false);
+    } catch (IOException e) {
+      System.err.println("Error updating search index: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes a file that is built by a {@link TaskFileWriter}.
+   */
+  @FunctionalInterface
+  private interface TaskFileWriter<T> {
+    T write(Path path) throws IOException;
+  }
+
+  /**
+   * Replaces a file without ever exposing a partly written one: the content is written to a
+   * temporary file next to the target, forced to disk, and moved over the target in one atomic
+   * rename.
+   *
+   * @param target The file to replace.
+   * @param writer Writes the new content to the path it is given.
+   * @return Whatever the writer returned.
+   */
+  private <T> T replaceAtomically(Path target, TaskFileWriter<T> writer) throws IOException {
+    Path temporary = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+    try {
+      T result = writer.write(temporary);
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+      try {
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      if (fsync) {
+        syncDirectory();
       }
+      return result;
+    } finally {
+      // Only left over if writing failed
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Forces the directory entry changes, such as a rename, to disk.
+   */
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Not every platform can open a directory; the rename is atomic all the same
+    }
+  }
+
+  private Path pathOf(String format) {
+    switch (format) {
+      case "binary":
+        return binaryPath;
+      case "slotted":
+        return slotPath;
+      default:
+        return filePath;
+    }
+  }
 
-      // Remove opening and closing brackets
-      jsonContent = jsonContent.trim();
-      if (jsonContent.startsWith("[")) {
-        jsonContent = jsonContent.substring(1);
+  /**
+   * Writes the tasks to a JSON file as a single array, streaming them through a
+   * {@link TaskJsonWriter} instead of building the whole text in memory first. A long list is
+   * serialized in slices on several threads (see {@link TrackerConfig#parallelSaveTasks()}).
+   *
+   * @return The byte offset of each task's object, in list order.
+   */
+  private long[] writeJson(Path path, java.util.Collection<Task> tasks) throws IOException {
+    if (threads > 1 && tasks.size() >= parallelSaveTasks) {
+      java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(threads);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        return TaskJsonWriter.writeTasksParallel(channel, tasks.toArray(new Task[0]), pool);
+      } finally {
+        pool.shutdown();
       }
-      if (jsonContent.endsWith("]")) {
-        jsonContent = jsonContent.substring(0, jsonContent.length() - 1);
+    }
+
+    // Write the JSON array to the file, creating or overwriting as needed
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(
+        Files.newOutputStream(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+      return new TaskJsonWriter(out).writeTasks(tasks);
+    }
+  }
+
+  /**
+   * Loads the list of tasks from the task file. A JSON file is streamed through a
+   * {@link TaskJsonReader}, so tasks are built in a single pass without reading the whole file into
+   * memory first; a large one is parsed in slices on several threads (see
+   * {@link TrackerConfig#parallelLoadBytes()}). Any changes still in the log are replayed on top,
+   * whatever the storage mode, so switching modes never loses data.
+   *
+   * @return The tasks loaded from the file, indexed by ID, or an empty repository if the file is
+   *         empty or doesn't exist.
+   */
+  public TaskRepository loadTasks() {
+    while (true) {
+      TaskRepository tasks = new TaskRepository();
+      boolean complete;
+      try {
+        complete = locked(false, false, () -> {
+          // Read the snapshot if there is one
+          readSnapshot(tasks::add);
+
+          // Replay the log by ID, keeping the original order of the tasks
+          boolean replayed = taskLog.size() == 0 || taskLog.replay(tasks);
+          tasks.advanceNextId(lockedNextId);
+          knownVersion = lockedVersion;
+          return replayed;
+        });
+      } catch (IOException e) {
+        System.err.println("Error loading tasks: " + e.getMessage());
+        return tasks;
       }
 
-      // Split by "},{" to separate individual task objects
-      String[] taskStrings = jsonContent.split("\\}\\s*,\\s*\\{");
+      // Drop a torn record left by a crash before anything is appended after it, and record the
+      // ID sequence if the lock file lacks it, unless another process got there first, in which
+      // case its files are read again
+      try {
+        if (!complete) {
+          saveTasks(tasks);
+        } else if (lockedNextId == 0) {
+          locked(true, true, tasks.nextId(), () -> {
+            updateSearchIndex(() -> { });
+            return null;
+          });
+        }
+      } catch (ConflictException e) {
+        continue;
+      } catch (IOException e) {
+        System.err.println("Error saving task sequence: " + e.getMessage());
+      }
+      return tasks;
+    }
+  }
 
-      // Reconstruct and parse each task
-      for (String taskStr : taskStrings) {
-        // Add back the curly braces if they were removed by split
-        if (!taskStr.startsWith("{")) {
-          taskStr = "{" + taskStr;
+  /**
+   * Loads a single task for a command that changes only that one, without parsing the others: in
+   * log mode, with a JSON or binary snapshot whose {@link TaskIndexFile} is up to date, the task's
+   * record is located through the index and decoded alone, and the log records of the same ID are
+   * applied on top. Changes to the task are then appended to the log as usual; should the log be
+   * due for compaction, the full list is read from the files at that point.
+   *
+   * @param id The ID of the task.
+   * @return A partial repository holding the task, or nothing if there is no such task; or null if
+   *         the task cannot be loaded on its own and {@link #loadTasks()} has to be used instead.
+   */
+  public TaskRepository loadTask(int id) {
+    if (!logMode) {
+      return null;
+    }
+    try {
+      return locked(false, false, () -> {
+        // An unknown sequence is recorded by a full load first
+        Path path = snapshotPath();
+        if (lockedNextId == 0 || path != null && path.equals(slotPath)) {
+          return null;
+        }
+        TaskRepository tasks = new TaskRepository();
+        if (path != null) {
+          long[] range = TaskIndexFile.find(indexPath, path, id);
+          if (range == null) {
+            return null;
+          }
+          if (range.length > 0) {
+            MappedTaskReader.readRecords(path, path.equals(binaryPath), range, tasks::add);
+          }
         }
-        if (!taskStr.endsWith("}")) {
-          taskStr = taskStr + "}";
+        if (!taskLog.replay(id, tasks)) {
+          return null;
         }
+        tasks.advanceNextId(lockedNextId);
+        tasks.markPartial();
+        knownVersion = lockedVersion;
+        return tasks;
+      });
+    } catch (IOException e) {
+      System.err.println("Error loading task: " + e.getMessage());
+      return null;
+    }
+  }
 
-        // Parse the JSON object and create a Task
+  /**
+   * Adds a new task without loading the tasks already stored: its ID is taken from the sequence in
+   * the lock file and the task is appended as one log record in log mode, or as one record at the
+   * end of the slot file, so the cost does not depend on the number of tasks. Tasks this handler
+   * loaded earlier do not contain the new one, so {@link #isStale()} reports them as out of date.
+   *
+   * @param description The description of the new task.
+   * @return The added task, or null if it cannot be added this way and the tasks have to be loaded
+   *         instead: the sequence is not recorded yet, the log is due for compaction or ends with a
+   *         torn record, or the files are in a format that has to be rewritten as a whole.
+   */
+  public Task appendTask(String description) {
+    if (batching || asyncWriter != null || !(logMode || format.equals("slotted"))) {
+      return null;
+    }
+    Task[] added = new Task[1];
+    try {
+      return locked(true, false, () -> {
+        if (lockedNextId == 0 || !canAppend()) {
+          return null;
+        }
+        added[0] = new Task(lockedNextId, description);
+        // Appending overwrites nothing, so it cannot conflict with a newer version either
+        long known = knownVersion;
+        knownVersion = -1;
         try {
-          int id = Integer.parseInt(extractValue(taskStr, "id"));
-          String description = extractValue(taskStr, "description");
-          // Unescape quotes in description
-          description = description.replace("\\\"", "\"");
-          String statusStr = extractValue(taskStr, "status");
-          Task.Status status = Task.Status.valueOf(statusStr);
-          String createdAtStr = extractValue(taskStr, "createdAt");
-          String updatedAtStr = extractValue(taskStr, "updatedAt");
-
-          java.time.LocalDateTime createdAt = java.time.LocalDateTime.parse(createdAtStr);
-          java.time.LocalDateTime updatedAt = java.time.LocalDateTime.parse(updatedAtStr);
-
-          Task task = new Task(id, description, status, createdAt, updatedAt);
-          tasks.add(task);
-        } catch (Exception e) {
-          System.err.println("Error parsing task JSON: " + e.getMessage());
+          // The sequence is raised before the record is written, so a crash never reuses the ID
+          return locked(true, true, lockedNextId + 1, () -> {
+            if (logMode) {
+              taskLog.appendPut(added[0]);
+            } else if (!slotFile.append(added[0])) {
+              throw new IOException("The slot file changed while it was locked");
+            }
+            added[0].markClean();
+            updateSearchIndex(() -> searchIndex.appendPut(added[0]));
+            return added[0];
+          });
+        } finally {
+          // Tasks loaded before are missing the new one, so they stay as out of date as they were
+          knownVersion = known;
         }
-      }
+      });
     } catch (IOException e) {
-      System.err.println("Error loading tasks: " + e.getMessage());
+      System.err.println("Error saving task: " + e.getMessage());
+      return added[0];
     }
+  }
 
-    return tasks;
+  /**
+   * Checks whether a new task can be appended without reading the tasks already stored.
+   */
+  private boolean canAppend() throws IOException {
+    if (logMode) {
+      return taskLog.size() < compactionThreshold && taskLog.endsWithCompleteRecord();
+    }
+    return slotPath.equals(snapshotPath()) && taskLog.size() == 0 && slotFile.canAppend();
   }
 
   /**
-   * Extracts a value associated with a key from a JSON object string.
+   * Checks whether another process wrote the task files since this handler last read or wrote
+   * them, so the tasks in memory are out of date.
    *
-   * @param json The JSON object string.
-   * @param key The key whose value should be extracted.
-   * @return The value as a string, or null if the key is not found.
+   * @return True if the tasks should be loaded again.
    */
-  private String extractValue(String json, String key) {
-    String searchKey = "\"" + key + "\":\"";
-    int startIndex = json.indexOf(searchKey);
+  public boolean isStale() {
+    try {
+      return locked(false, false, () -> knownVersion >= 0 && lockedVersion != knownVersion);
+    } catch (IOException e) {
+      System.err.println("Error reading task version: " + e.getMessage());
+      return false;
+    }
+  }
 
-    if (startIndex == -1) {
-      // Key might not have a quoted value (e.g., numbers, booleans)
-      searchKey = "\"" + key + "\":";
-      startIndex = json.indexOf(searchKey);
-      if (startIndex == -1) {
+  /**
+   * Runs an action while holding the exclusive lock of the task files, so no other process reads
+   * or writes them until it returns. Loads and saves made by the action don't wait for the lock,
+   * and a save after a load within the action never conflicts.
+   *
+   * @param action The action to run.
+   */
+  public void runExclusively(Runnable action) {
+    try {
+      locked(true, false, () -> {
+        action.run();
         return null;
+      });
+    } catch (IOException e) {
+      System.err.println("Error locking task files: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Streams the tasks with the given status to the consumer without building a list, for
+   * read-only commands. The task file is memory-mapped and decoded in place, so even a file of
+   * several gigabytes needs little heap; with an up-to-date {@link TaskIndexFile}, only the records
+   * in the requested status are decoded at all. If the log still holds changes, the tasks are
+   * loaded and replayed as usual instead.
+   *
+   * @param status The status to select, or null for every task.
+   * @param consumer Receives the selected tasks in order.
+   * @return The total number of tasks, selected or not.
+   */
+  public int forEachTask(Task.Status status, java.util.function.Consumer<Task> consumer) {
+    return forEachTask(TaskFilter.of(status), consumer);
+  }
+
+  /**
+   * Streams the tasks selected by a filter like {@link #forEachTask(Task.Status,
+   * java.util.function.Consumer)}. With a time range and an up-to-date {@link TaskIndexFile}, the
+   * records in the range are found by binary search over the index's sorted times, so only they are
+   * decoded.
+   *
+   * @param filter The status and time ranges to select.
+   * @param consumer Receives the selected tasks in order.
+   * @return The total number of tasks, selected or not.
+   */
+  public int forEachTask(TaskFilter filter, java.util.function.Consumer<Task> consumer) {
+    int total;
+    try {
+      total = locked(false, false, () -> taskLog.size() > 0 ? -1 : streamTasks(filter, consumer));
+    } catch (IOException e) {
+      System.err.println("Error loading tasks: " + e.getMessage());
+      return 0;
+    }
+    return total >= 0 ? total : loadTasks().forEachTask(filter, consumer);
+  }
+
+  /**
+   * Streams the tasks of the task file, which must have no changes left in the log.
+   */
+  private int streamTasks(TaskFilter filter, java.util.function.Consumer<Task> consumer)
+      throws IOException {
+    Path path = snapshotPath();
+    if (path == null) {
+      return 0;
+    }
+    boolean binary = path.equals(binaryPath);
+    java.util.function.Consumer<Task> selected = filter.hasTimeRange() ? task -> {
+      if (filter.matches(task)) {
+        consumer.accept(task);
+      }
+    } : consumer;
+    if (filter.hasTimeRange()) {
+      long[] ranges = TaskIndexFile.find(indexPath, path, filter);
+      int size = TaskIndexFile.count(indexPath, path);
+      if (ranges != null && size >= 0) {
+        MappedTaskReader.readRecords(path, binary, ranges, selected);
+        return size;
       }
+    }
+    TaskIndexFile index = TaskIndexFile.read(indexPath, path);
+    if (index != null) {
+      MappedTaskReader.readRecords(path, binary, index.ranges(filter.getStatus()), selected);
+      return index.size();
+    }
+
+    // No usable index: decode every record and filter here
+    int[] total = new int[1];
+    java.util.function.Consumer<Task> filtered = task -> {
+      total[0]++;
+      if (filter.matches(task)) {
+        consumer.accept(task);
+      }
+    };
+    if (binary) {
+      TaskBinaryFormat.read(path, filtered);
+    } else if (path.equals(slotPath)) {
+      slotFile.read(filtered);
+    } else {
+      MappedTaskReader.readJson(path, filtered);
+    }
+    return total[0];
+  }
+
+  /**
+   * Streams the tasks whose descriptions match a search query. With an up-to-date
+   * {@link TaskSearchIndex}, the matching IDs come from the index and only those tasks are read,
+   * through the {@link TaskIndexFile} where there is one. Otherwise, the first time or after the
+   * whole list was saved, the tasks are loaded, the index is rebuilt from them and they are matched
+   * in memory.
+   *
+   * @param query The query.
+   * @param consumer Receives the matching tasks in ascending order of ID.
+   * @return The number of matching tasks.
+   */
+  public int searchTasks(TaskQuery query, java.util.function.Consumer<Task> consumer) {
+    try {
+      int found = locked(false, false, () -> {
+        if (!isSearchIndexUsable()) {
+          return -1;
+        }
+        int[] ids = searchIndex.search(query);
+        TaskRepository tasks = readTasks(ids);
+        int count = 0;
+        for (int id : ids) {
+          Task task = tasks.get(id);
+          if (task != null) {
+            consumer.accept(task);
+            count++;
+          }
+        }
+        return count;
+      });
+      if (found >= 0) {
+        return found;
+      }
+
+      return locked(true, false, () -> {
+        TaskRepository tasks = loadTasks();
+        rebuildSearchIndex(tasks);
+        java.util.List<Task> matches = new java.util.ArrayList<>();
+        for (Task task : tasks) {
+          if (query.matches(task)) {
+            matches.add(task);
+          }
+        }
+        matches.sort(java.util.Comparator.comparingInt(Task::getId));
+        matches.forEach(consumer);
+        return matches.size();
+      });
+    } catch (IOException e) {
+      System.err.println("Error searching tasks: " + e.getMessage());
+      return 0;
+    }
+  }
+
+  /**
+   * Checks whether the search index reflects the current task files and its log is still small
+   * enough to be read on every search.
+   */
+  private boolean isSearchIndexUsable() throws IOException {
+    return lockedIndexVersion != 0 && lockedIndexVersion == lockedVersion
+        && Files.exists(searchIndex.segmentPath()) && searchIndex.logSize() < compactionThreshold;
+  }
 
-      // Extract unquoted value (number, boolean, etc.)
-      int valueStart = startIndex + searchKey.length();
-      int valueEnd = json.indexOf(",", valueStart);
-      if (valueEnd == -1) {
-        valueEnd = json.indexOf("}", valueStart);
+  /**
+   * Writes a new search index segment for the given tasks and marks it as reflecting the current
+   * version. Must be called under the exclusive lock. A failure is reported, and the next search
+   * tries again.
+   */
+  private void rebuildSearchIndex(java.util.Collection<Task> tasks) {
+    try {
+      ensureDataDirectoryExists();
+      replaceAtomically(searchIndex.segmentPath(), temporary -> {
+        TaskSearchIndex.write(temporary, tasks);
+        return null;
+      });
+      searchIndex.clearLog();
+      lockedIndexVersion = lockedVersion;
+      writeHeader(false);
+    } catch (IOException e) {
+      System.err.println("Error writing search index: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Reads only the tasks with the given IDs: their records are located through the
+   * {@link TaskIndexFile} if it is up to date, and otherwise picked out while reading the task
+   * file, and the log records of the same IDs are applied on top.
+   *
+   * @param ids The IDs, in ascending order.
+   * @return The tasks found.
+   */
+  private TaskRepository readTasks(int[] ids) throws IOException {
+    TaskRepository tasks = new TaskRepository(ids.length);
+    if (ids.length == 0) {
+      return tasks;
+    }
+    Path path = snapshotPath();
+    if (path != null) {
+      long[] ranges = path.equals(slotPath) ? null : TaskIndexFile.find(indexPath, path, ids);
+      if (ranges != null) {
+        MappedTaskReader.readRecords(path, path.equals(binaryPath), ranges, tasks::add);
+      } else {
+        readSnapshot(task -> {
+          if (java.util.Arrays.binarySearch(ids, task.getId()) >= 0) {
+            tasks.add(task);
+          }
+        });
       }
-      return json.substring(valueStart, valueEnd).trim();
     }
+    if (!taskLog.replay(ids, tasks)) {
+      // Records are idempotent, so replaying the complete ones again from the start is harmless
+      taskLog.replay(task -> {
+        if (java.util.Arrays.binarySearch(ids, task.getId()) >= 0) {
+          tasks.add(task);
+        }
+      }, tasks::remove);
+    }
+    return tasks;
+  }
 
-    // For quoted values
-    int valueStart = startIndex + searchKey.length();
-    int valueEnd = valueStart;
+  /**
+   * Reads every task from the current task file.
+   */
+  private void readSnapshot(java.util.function.Consumer<Task> consumer) throws IOException {
+    Path path = snapshotPath();
+    if (path == null) {
+      return;
+    }
 
-    // Find the closing quote, handling escaped quotes
-    while (valueEnd < json.length()) {
-      if (json.charAt(valueEnd) == '"' && json.charAt(valueEnd - 1) != '\\') {
-        break;
+    if (path.equals(binaryPath)) {
+      TaskBinaryFormat.read(path, consumer);
+    } else if (path.equals(slotPath)) {
+      slotFile.read(consumer);
+    } else if (!readJsonParallel(path, consumer)) {
+      try (TaskJsonReader reader = new TaskJsonReader(Files.newBufferedReader(path))) {
+        reader.readTasks(consumer);
       }
-      valueEnd++;
     }
+  }
+
+  /**
+   * Parses a large JSON task file in slices on {@link TrackerConfig#threads()} threads.
+   *
+   * @return False if the file is too small for that to pay off or could not be read in slices, in
+   *         which case it has to be read sequentially.
+   */
+  private boolean readJsonParallel(Path path, java.util.function.Consumer<Task> consumer)
+      throws IOException {
+    if (threads < 2 || Files.size(path) < parallelLoadBytes) {
+      return false;
+    }
+    java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(threads);
+    try {
+      return MappedTaskReader.readJsonParallel(path, pool, consumer);
+    } finally {
+      pool.shutdown();
+    }
+  }
 
-    return json.substring(valueStart, valueEnd);
+  /**
+   * Picks the task file recorded in the lock file as written last. Task files from before the
+   * format was recorded there are picked by modification time instead, the newest one first and
+   * the configured format on a tie, until the next save records it.
+   *
+   * @return The file to read, or null if there is none yet.
+   */
+  private Path snapshotPath() throws IOException {
+    if (lockedFormat > 0 && lockedFormat <= FORMATS.length) {
+      Path path = pathOf(FORMATS[(int) lockedFormat - 1]);
+      return Files.exists(path) ? path : null;
+    }
+    Path newest = pathOf(format);
+    if (!Files.exists(newest)) {
+      newest = null;
+    }
+    for (Path other : new Path[] {filePath, binaryPath, slotPath}) {
+      if (other.equals(newest) || !Files.exists(other)) {
+        continue;
+      }
+      if (newest == null
+          || Files.getLastModifiedTime(other).compareTo(Files.getLastModifiedTime(newest)) > 0) {
+        newest = other;
+      }
+    }
+    return newest;
   }
 }
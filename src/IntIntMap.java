@@ -0,0 +1,173 @@
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys to non-negative int values, stored in two primitive arrays so that no
+ * key or value is ever boxed. It uses open addressing with linear probing and backward-shift
+ * deletion, so lookups, inserts and removals are O(1) on average and no tombstones build up.
+ */
+public class IntIntMap {
+
+  /** Returned by {@link #get(int)} and {@link #remove(int)} when the key is absent. */
+  public static final int MISSING = -1;
+
+  // Marks an unused slot; this key cannot be stored
+  private static final int EMPTY = Integer.MIN_VALUE;
+  private static final int MIN_CAPACITY = 16;
+
+  private int[] keys;
+  private int[] values;
+  private int size;
+  // Number of bits taken from the hash, log2 of the capacity
+  private int bits;
+
+  /**
+   * Creates an empty map.
+   */
+  public IntIntMap() {
+    this(MIN_CAPACITY / 2);
+  }
+
+  /**
+   * Creates an empty map that can hold the given number of entries without resizing.
+   *
+   * @param expectedSize The number of entries expected.
+   */
+  public IntIntMap(int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Gets the value stored for a key.
+   *
+   * @param key The key to look up.
+   * @return The value, or {@link #MISSING} if the key is absent.
+   */
+  public int get(int key) {
+    for (int slot = slotOf(key);; slot = (slot + 1) & (keys.length - 1)) {
+      if (keys[slot] == key) {
+        return values[slot];
+      }
+      if (keys[slot] == EMPTY) {
+        return MISSING;
+      }
+    }
+  }
+
+  /**
+   * Stores a value for a key, replacing any previous value.
+   *
+   * @param key The key; {@code Integer.MIN_VALUE} is reserved.
+   * @param value The value (cannot be negative).
+   */
+  public void put(int key, int value) {
+    if (key == EMPTY) {
+      throw new IllegalArgumentException("Key " + key + " is reserved");
+    }
+    if (value < 0) {
+      throw new IllegalArgumentException("Value cannot be negative");
+    }
+
+    int slot = slotOf(key);
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & (keys.length - 1);
+    }
+    keys[slot] = key;
+    values[slot] = value;
+
+    // Keep the load factor at or below one half
+    if (++size > keys.length / 2) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /**
+   * Removes a key.
+   *
+   * @param key The key to remove.
+   * @return The value it had, or {@link #MISSING} if it was absent.
+   */
+  public int remove(int key) {
+    int mask = keys.length - 1;
+    int slot = slotOf(key);
+    while (keys[slot] != key) {
+      if (keys[slot] == EMPTY) {
+        return MISSING;
+      }
+      slot = (slot + 1) & mask;
+    }
+    int removed = values[slot];
+    size--;
+
+    // Shift later entries of the probe run back so lookups never stop at the hole
+    int hole = slot;
+    for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+      int home = slotOf(keys[next]);
+      // Move the entry unless its home lies cyclically between the hole and its slot
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        keys[hole] = keys[next];
+        values[hole] = values[next];
+        hole = next;
+      }
+    }
+    keys[hole] = EMPTY;
+    return removed;
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return The number of keys stored.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Removes every entry, keeping the current capacity.
+   */
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    size = 0;
+  }
+
+  private int slotOf(int key) {
+    // Fibonacci hashing spreads runs of sequential ids across the table
+    return (key * 0x9E3779B9) >>> (32 - bits);
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int slot = slotOf(oldKeys[i]);
+        while (keys[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+    bits = Integer.numberOfTrailingZeros(capacity);
+  }
+
+  private static int capacityFor(int expectedSize) {
+    long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 2);
+    if (needed > 1 << 30) {
+      throw new IllegalArgumentException("Too many entries: " + expectedSize);
+    }
+    return Integer.highestOneBit((int) needed - 1) << 1;
+  }
+}
@@ -0,0 +1,342 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Read-only access to task files through {@link FileChannel#map}. Records are decoded straight
+ * from the mapped pages, so reading a file never needs a heap the size of the file, and the pages
+ * stay in the OS page cache for the next invocation.
+ *
+ * <p>Files larger than one mapping window are read through successive windows, each starting at
+ * the first byte the previous one could not fully decode. Large JSON files can also be cut into
+ * slices that are parsed on several threads (see {@link #readJsonParallel}).
+ */
+final class MappedTaskReader {
+
+  // Largest region mapped at once; any single record must fit in it
+  private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+  // Smallest slice of a JSON file worth parsing on a thread of its own
+  private static final long MIN_SLICE_SIZE = 1024 * 1024;
+  // Slices per thread, so threads that finish early can take over the rest
+  private static final int SLICES_PER_THREAD = 4;
+  // Where TaskJsonWriter starts every object after the first; a quote followed by "id" cannot end
+  // a string in valid JSON, so the bytes never match inside a description
+  private static final byte[] OBJECT_BOUNDARY = "},{\"id\":".getBytes(StandardCharsets.UTF_8);
+  private static final int SCAN_BLOCK_SIZE = 64 * 1024;
+
+  private MappedTaskReader() {}
+
+  /**
+   * Reads every task from a binary task file.
+   *
+   * @param path The file to read.
+   * @param consumer Receives the tasks in file order.
+   */
+  static void readBinary(Path path, Consumer<Task> consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long windowStart = 0;
+      MappedByteBuffer window = map(channel, windowStart, size);
+      TaskBinaryFormat.readHeader(window);
+
+      while (windowStart + window.position() < size) {
+        int recordStart = window.position();
+        Task task;
+        try {
+          task = TaskBinaryFormat.readTask(window);
+        } catch (BufferUnderflowException e) {
+          // The record runs past the window: map a new one starting at the record
+          if (windowStart + window.limit() == size) {
+            throw new IOException("Truncated task record in " + path);
+          }
+          if (recordStart == 0) {
+            throw new IOException("Task record larger than the mapping window in " + path);
+          }
+          windowStart += recordStart;
+          window = map(channel, windowStart, size);
+          continue;
+        }
+        consumer.accept(task);
+      }
+    }
+  }
+
+  /**
+   * Reads every task from a JSON task file, decoding UTF-8 directly from the mapping.
+   *
+   * @param path The file to read.
+   * @param consumer Receives the tasks in file order.
+   */
+  static void readJson(Path path, Consumer<Task> consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        TaskJsonReader reader = new TaskJsonReader(new MappedReader(channel))) {
+      reader.readTasks(consumer);
+    }
+  }
+
+  /**
+   * Reads every task from a JSON task file by parsing slices of it concurrently. The file is cut
+   * into byte ranges at object boundaries as {@link TaskJsonWriter} writes them, each range is
+   * parsed on the pool, and the tasks are passed on in file order once every slice is done.
+   *
+   * @param path The file to read.
+   * @param pool The pool that parses the slices.
+   * @param consumer Receives the tasks in file order, on the calling thread.
+   * @return False if the file could not be cut into slices or a slice could not be parsed, e.g.
+   *         because the file was formatted by hand; nothing has been passed to the consumer then,
+   *         and the file should be read by {@link #readJson} instead.
+   */
+  static boolean readJsonParallel(Path path, ForkJoinPool pool, Consumer<Task> consumer)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long[] starts = sliceStarts(channel, size,
+          (int) Math.min((long) pool.getParallelism() * SLICES_PER_THREAD, size / MIN_SLICE_SIZE));
+      if (starts.length < 2) {
+        return false;
+      }
+
+      List<Callable<List<Task>>> slices = new ArrayList<>(starts.length);
+      for (int i = 0; i < starts.length; i++) {
+        long start = starts[i];
+        long end = i + 1 < starts.length ? starts[i + 1] : size;
+        boolean first = i == 0;
+        boolean last = i + 1 == starts.length;
+        slices.add(() -> readSlice(channel, start, end, first, last));
+      }
+
+      List<List<Task>> results = new ArrayList<>(starts.length);
+      for (Future<List<Task>> slice : pool.invokeAll(slices)) {
+        try {
+          results.add(slice.get());
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+          }
+          // The sequential reader reports the problem where it is
+          return false;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new java.io.InterruptedIOException("Interrupted while loading " + path);
+        }
+      }
+      for (List<Task> tasks : results) {
+        tasks.forEach(consumer);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Finds where each slice of a JSON file starts: the first at the start of the file, the others
+   * at the comma before the first object boundary past an even share of the file.
+   *
+   * @return The start offsets, in increasing order; fewer than asked for if the boundaries run out.
+   */
+  private static long[] sliceStarts(FileChannel channel, long size, int count)
+      throws IOException {
+    long[] starts = new long[Math.max(count, 1)];
+    int found = 1;
+    for (int i = 1; i < count; i++) {
+      long target = Math.max(size / count * i, starts[found - 1] + 1);
+      long boundary = findBoundary(channel, target, size);
+      if (boundary < 0) {
+        break;
+      }
+      starts[found++] = boundary + 1;
+    }
+    return java.util.Arrays.copyOf(starts, found);
+  }
+
+  /**
+   * Finds the first object boundary at or after an offset.
+   *
+   * @return The offset of the boundary's closing brace, or -1 if there is none.
+   */
+  private static long findBoundary(FileChannel channel, long from, long size) throws IOException {
+    ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+    for (long position = from; position < size;
+        position += SCAN_BLOCK_SIZE - OBJECT_BOUNDARY.length + 1) {
+      block.clear();
+      while (block.hasRemaining() && channel.read(block, position + block.position()) > 0) {
+        // Fill the block
+      }
+      byte[] bytes = block.array();
+      for (int i = 0; i + OBJECT_BOUNDARY.length <= block.position(); i++) {
+        if (bytes[i] == '}' && matchesBoundary(bytes, i)) {
+          return position + i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static boolean matchesBoundary(byte[] bytes, int offset) {
+    for (int i = 1; i < OBJECT_BOUNDARY.length; i++) {
+      if (bytes[offset + i] != OBJECT_BOUNDARY[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses one slice of a JSON file, on a pool thread.
+   */
+  private static List<Task> readSlice(FileChannel channel, long start, long end, boolean first,
+      boolean last) throws IOException {
+    List<Task> tasks = new ArrayList<>();
+    try (MappedReader mapped = new MappedReader(channel);
+        TaskJsonReader reader = new TaskJsonReader(mapped)) {
+      mapped.seek(start, end);
+      reader.readSlice(first, last, tasks::add);
+    }
+    return tasks;
+  }
+
+  /**
+   * Reads only the records in the given byte ranges, e.g. those a {@link TaskIndexFile} lists for
+   * one status. Pages holding no selected record are never touched.
+   *
+   * @param path The file to read.
+   * @param binary Whether the file is in the binary format rather than JSON.
+   * @param ranges Start and end offsets of the records to read, in pairs and in increasing order.
+   * @param consumer Receives the tasks in offset order.
+   */
+  static void readRecords(Path path, boolean binary, long[] ranges, Consumer<Task> consumer)
+      throws IOException {
+    if (!binary) {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+          MappedReader mapped = new MappedReader(channel);
+          TaskJsonReader reader = new TaskJsonReader(mapped)) {
+        for (int i = 0; i < ranges.length; i += 2) {
+          // Decode no further than the record, not a whole buffer of the records after it
+          mapped.seek(ranges[i], ranges[i + 1]);
+          reader.discardBuffered();
+          try {
+            consumer.accept(reader.readTask());
+          } catch (IllegalArgumentException e) {
+            System.err.println("Error parsing task JSON: " + e.getMessage());
+          }
+        }
+      }
+      return;
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long windowStart = 0;
+      MappedByteBuffer window = null;
+      for (int i = 0; i < ranges.length; i += 2) {
+        long offset = ranges[i];
+        while (true) {
+          if (window == null || offset < windowStart || offset >= windowStart + window.limit()) {
+            windowStart = offset;
+            window = map(channel, windowStart, size);
+          }
+          window.position((int) (offset - windowStart));
+          Task task;
+          try {
+            task = TaskBinaryFormat.readTask(window);
+          } catch (BufferUnderflowException e) {
+            if (windowStart == offset) {
+              throw new IOException("Truncated task record in " + path);
+            }
+            // The record runs past the window: map a new one starting at the record
+            window = null;
+            continue;
+          }
+          consumer.accept(task);
+          break;
+        }
+      }
+    }
+  }
+
+  private static MappedByteBuffer map(FileChannel channel, long start, long size)
+      throws IOException {
+    return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+  }
+
+  /**
+   * Character stream over a mapped file. Closing it leaves the channel to its owner.
+   */
+  private static final class MappedReader extends Reader {
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    // Offset at which reading reports the end of the stream
+    private long end;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    MappedReader(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.end = size;
+      this.window = map(channel, 0, size);
+    }
+
+    /**
+     * Restricts reading to the given byte range, whose start must be the start of a character.
+     */
+    void seek(long start, long end) throws IOException {
+      decoder.reset();
+      this.end = end;
+      if (start < windowStart || end > windowStart + window.capacity()) {
+        windowStart = start;
+        window = map(channel, windowStart, size);
+      }
+      window.limit((int) Math.min(window.capacity(), end - windowStart));
+      window.position((int) (start - windowStart));
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      CharBuffer out = CharBuffer.wrap(chars, offset, length);
+      while (out.position() == offset) {
+        boolean lastWindow = windowStart + window.limit() == end;
+        CoderResult result = decoder.decode(window, out, lastWindow);
+        if (result.isError()) {
+          result.throwException();
+        }
+        if (out.position() > offset || !result.isUnderflow()) {
+          break;
+        }
+        if (lastWindow) {
+          decoder.flush(out);
+          return out.position() > offset ? out.position() - offset : -1;
+        }
+        // Continue with the next window, including any partial character left in this one
+        windowStart += window.position();
+        window = map(channel, windowStart, end);
+      }
+      return out.position() - offset;
+    }
+
+    @Override
+    public void close() {
+      // The channel is closed by readJson
+    }
+  }
+}
@@ -2,15 +2,22 @@ import java.time.LocalDateTime;
 
 /**
  * Represents a single task in the Task Tracker system. This class serves as the data model, holding
- * the state and validation logic for tasks.
+ * the state and validation logic for tasks. Timestamps are kept as epoch nanoseconds (see
+ * {@link TaskTime}) and only turned into LocalDateTime objects when asked for; the rare ones
+ * outside the years 1677 to 2262 are kept as LocalDateTime objects as well.
  */
 public class Task {
 
   private int id;
   private String description;
   private Status status;
-  private LocalDateTime createdAt;
-  private LocalDateTime updatedAt;
+  private long createdAt;
+  private long updatedAt;
+  // Timestamps the longs cannot hold: the creation time at index 0, the update time at 1; null
+  // while both fit, as they nearly always do
+  private LocalDateTime[] outOfRange;
+  // True while the task has changes that have not been saved yet
+  private boolean dirty;
 
   /**
    * Defines the possible lifecycle states of a task.
@@ -21,7 +28,24 @@ public class Task {
     /** Task is currently being worked on. */
     IN_PROGRESS,
     /** Task is completed. */
-    DONE
+    DONE;
+
+    private static final Status[] VALUES = values();
+
+    /**
+     * Parses a status filter as typed on the command line ("todo", "in-progress", "done").
+     *
+     * @param filter The filter text, in any case.
+     * @return The matching status, or null if the text names no status.
+     */
+    public static Status fromFilter(String filter) {
+      for (Status status : VALUES) {
+        if (status.name().replace('_', '-').equalsIgnoreCase(filter)) {
+          return status;
+        }
+      }
+      return null;
+    }
   }
 
   // --- CONSTRUCTORS ---
@@ -39,9 +63,10 @@ public class Task {
 
     this.status = Status.TODO; // Varsayılan
 
-    LocalDateTime now = LocalDateTime.now();
+    long now = TaskTime.now();
     this.createdAt = now;
     this.updatedAt = now;
+    this.dirty = true;
   }
 
   /**
@@ -56,6 +81,23 @@ public class Task {
    */
   public Task(int id, String description, Status status, LocalDateTime createdAt,
       LocalDateTime updatedAt) {
+    this(id, description, status, TaskTime.toEpochNanos(createdAt),
+        TaskTime.toEpochNanos(updatedAt));
+    keepOutOfRange(0, this.createdAt, createdAt);
+    keepOutOfRange(1, this.updatedAt, updatedAt);
+  }
+
+  /**
+   * Reconstructs an existing task from storage with timestamps already in epoch nanoseconds, as
+   * the task files hold them.
+   *
+   * @param id The unique identifier.
+   * @param description The task description.
+   * @param status The current status of the task.
+   * @param createdAt The original creation time in epoch nanoseconds.
+   * @param updatedAt The last update time in epoch nanoseconds.
+   */
+  public Task(int id, String description, Status status, long createdAt, long updatedAt) {
     this.id = id;
     this.description = description;
     this.status = status;
@@ -98,7 +140,8 @@ public class Task {
    * @return The creation timestamp.
    */
   public LocalDateTime getCreatedAt() {
-    return createdAt;
+    LocalDateTime exact = outOfRange == null ? null : outOfRange[0];
+    return exact != null ? exact : TaskTime.toLocalDateTime(createdAt);
   }
 
   /**
@@ -107,9 +150,59 @@ public class Task {
    * @return The last update timestamp.
    */
   public LocalDateTime getUpdatedAt() {
+    LocalDateTime exact = outOfRange == null ? null : outOfRange[1];
+    return exact != null ? exact : TaskTime.toLocalDateTime(updatedAt);
+  }
+
+  /**
+   * Appends the creation time in ISO-8601 form, as {@link LocalDateTime#toString()} would.
+   *
+   * @param out The builder to append to.
+   * @return The same builder.
+   */
+  public StringBuilder appendCreatedAt(StringBuilder out) {
+    return outOfRange == null ? TaskTime.appendIso(out, createdAt) : out.append(getCreatedAt());
+  }
+
+  /**
+   * Appends the last update time in ISO-8601 form, as {@link LocalDateTime#toString()} would.
+   *
+   * @param out The builder to append to.
+   * @return The same builder.
+   */
+  public StringBuilder appendUpdatedAt(StringBuilder out) {
+    return outOfRange == null ? TaskTime.appendIso(out, updatedAt) : out.append(getUpdatedAt());
+  }
+
+  /**
+   * Gets the time when the task was created, without creating a LocalDateTime.
+   *
+   * @return The creation time in epoch nanoseconds, or one of the values {@link TaskTime} uses
+   *         for times outside the range of a long.
+   */
+  public long getCreatedAtNanos() {
+    return createdAt;
+  }
+
+  /**
+   * Gets the time when the task was last updated, without creating a LocalDateTime.
+   *
+   * @return The last update time in epoch nanoseconds, or one of the values {@link TaskTime} uses
+   *         for times outside the range of a long.
+   */
+  public long getUpdatedAtNanos() {
     return updatedAt;
   }
 
+  /**
+   * Gets whether the task has changed since it was loaded or last saved.
+   *
+   * @return True if the task has unsaved changes.
+   */
+  public boolean isDirty() {
+    return dirty;
+  }
+
   // --- SETTER METHODS ---
 
   /**
@@ -136,7 +229,9 @@ public class Task {
     }
     this.description = description;
 
-    this.updatedAt = LocalDateTime.now();
+    this.updatedAt = TaskTime.now();
+    keepOutOfRange(1, updatedAt, null);
+    this.dirty = true;
   }
 
   /**
@@ -150,27 +245,80 @@ public class Task {
       throw new IllegalArgumentException("Status cannot be null");
     }
     this.status = status;
-    this.updatedAt = LocalDateTime.now();
+    this.updatedAt = TaskTime.now();
+    keepOutOfRange(1, updatedAt, null);
+    this.dirty = true;
   }
 
   public void setCreatedAt(LocalDateTime createdAt) {
-    this.createdAt = createdAt;
+    this.createdAt = TaskTime.toEpochNanos(createdAt);
+    keepOutOfRange(0, this.createdAt, createdAt);
+    this.dirty = true;
   }
 
   public void setUpdatedAt(LocalDateTime updatedAt) {
-    this.updatedAt = updatedAt;
+    this.updatedAt = TaskTime.toEpochNanos(updatedAt);
+    keepOutOfRange(1, this.updatedAt, updatedAt);
+    this.dirty = true;
+  }
+
+  /**
+   * Keeps a timestamp as a LocalDateTime if its epoch nanoseconds only stand for a time outside
+   * their range, and drops the one kept before otherwise.
+   *
+   * @param index 0 for the creation time, 1 for the update time.
+   * @param nanos The time in epoch nanoseconds.
+   * @param time The exact time.
+   */
+  private void keepOutOfRange(int index, long nanos, LocalDateTime time) {
+    LocalDateTime exact = TaskTime.isInRange(nanos) ? null : time;
+    if (outOfRange == null && exact == null) {
+      return;
+    }
+    if (outOfRange == null) {
+      outOfRange = new LocalDateTime[2];
+    }
+    outOfRange[index] = exact;
+    if (outOfRange[0] == null && outOfRange[1] == null) {
+      outOfRange = null;
+    }
   }
 
   /**
-   * Converts the task to a JSON string representation.
+   * Copies the task, timestamps included, e.g. to queue it for saving while it keeps changing.
+   *
+   * @return The copy, with no unsaved changes.
+   */
+  public Task copy() {
+    return copy(id);
+  }
+
+  /**
+   * Copies the task under another ID, e.g. when another process already gave its ID to a task.
+   *
+   * @param newId The ID of the copy.
+   * @return The copy, with no unsaved changes.
+   */
+  public Task copy(int newId) {
+    Task copy = new Task(newId, description, status, createdAt, updatedAt);
+    copy.outOfRange = outOfRange == null ? null : outOfRange.clone();
+    return copy;
+  }
+
+  /**
+   * Marks the task as saved, clearing its dirty flag.
+   */
+  public void markClean() {
+    this.dirty = false;
+  }
+
+  /**
+   * Converts the task to a JSON string representation. Code writing many tasks should use
+   * {@link TaskJsonWriter} directly, which reuses its buffers.
    *
    * @return A JSON string representation of this task.
    */
   public String toJson() {
-    String jsonTemplate = "{\"id\":%d,\"description\":\"%s\",\"status\":\"%s\","
-        + "\"createdAt\":\"%s\"," + "\"updatedAt\":\"%s\"}";
-
-    return String.format(jsonTemplate, id, description.replace("\"", "\\\""), status.name(),
-        createdAt, updatedAt);
+    return TaskJsonWriter.appendTask(new StringBuilder(128), this).toString();
   }
 }
@@ -0,0 +1,177 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary encoding of the task list, used instead of JSON when the "binary" format is
+ * selected (see {@link TrackerConfig#format()}). The file starts with a header followed by one
+ * record per task, in list order:
+ *
+ * <pre>
+ * header:  "TTRK" magic, 1 byte format version
+ * record:  varint id, 1 byte status ordinal, 8 byte createdAt, 8 byte updatedAt,
+ *          varint description length, UTF-8 description bytes
+ * </pre>
+ *
+ * Timestamps are nanoseconds since the epoch, as {@link Task} holds them (see {@link TaskTime}),
+ * so every value written by {@link Task#toJson()} converts back exactly.
+ */
+public final class TaskBinaryFormat {
+
+  static final byte[] MAGIC = {'T', 'T', 'R', 'K'};
+  static final int VERSION = 1;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Task.Status[] STATUSES = Task.Status.values();
+
+  private TaskBinaryFormat() {}
+
+  /**
+   * Writes the tasks to a binary file, replacing its previous content.
+   *
+   * @param path The file to write.
+   * @param tasks The tasks to store.
+   * @return The byte offset of each task's record, in list order.
+   */
+  public static long[] write(Path path, java.util.Collection<Task> tasks) throws IOException {
+    long[] offsets = new long[tasks.size()];
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+      out.write(MAGIC);
+      out.writeByte(VERSION);
+      long offset = MAGIC.length + 1;
+      int record = 0;
+      for (Task task : tasks) {
+        offsets[record++] = offset;
+        offset += writeTask(out, task);
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   * Reads every task from a binary file. The file is memory-mapped and decoded in place by
+   * {@link MappedTaskReader}.
+   *
+   * @param path The file to read.
+   * @param consumer Receives the tasks in file order.
+   * @throws IOException if the file cannot be read or is not a valid task file.
+   */
+  public static void read(Path path, Consumer<Task> consumer) throws IOException {
+    MappedTaskReader.readBinary(path, consumer);
+  }
+
+  /**
+   * Checks the header at the current position of a buffer and moves past it.
+   *
+   * @param buffer The file content, positioned at its start.
+   * @throws IOException if the buffer does not start with a supported header.
+   */
+  static void readHeader(ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() < MAGIC.length + 1) {
+      throw new IOException("Not a binary task file");
+    }
+    for (byte expected : MAGIC) {
+      if (buffer.get() != expected) {
+        throw new IOException("Not a binary task file");
+      }
+    }
+    int version = buffer.get() & 0xFF;
+    if (version != VERSION) {
+      throw new IOException("Unsupported binary task file version: " + version);
+    }
+  }
+
+  /**
+   * Decodes the record at the current position of a buffer and moves past it.
+   *
+   * @param buffer The file content, positioned at the start of a record.
+   * @return The decoded task.
+   * @throws BufferUnderflowException if the buffer ends before the record does.
+   * @throws IOException if the record is invalid.
+   */
+  static Task readTask(ByteBuffer buffer) throws IOException {
+    int id = readVarint(buffer);
+    int status = buffer.get() & 0xFF;
+    if (status >= STATUSES.length) {
+      throw new IOException("Invalid status in task " + id + ": " + status);
+    }
+    long createdAt = buffer.getLong();
+    long updatedAt = buffer.getLong();
+    byte[] description = new byte[readVarint(buffer)];
+    buffer.get(description);
+    return new Task(id, new String(description, StandardCharsets.UTF_8), STATUSES[status],
+        createdAt, updatedAt);
+  }
+
+  /**
+   * Writes one record and returns its length in bytes.
+   */
+  private static int writeTask(DataOutputStream out, Task task) throws IOException {
+    checkTimesInRange(task);
+    byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+    writeVarint(out, task.getId());
+    out.writeByte(task.getStatus().ordinal());
+    out.writeLong(task.getCreatedAtNanos());
+    out.writeLong(task.getUpdatedAtNanos());
+    writeVarint(out, description.length);
+    out.write(description);
+    return varintLength(task.getId()) + 1 + 2 * Long.BYTES + varintLength(description.length)
+        + description.length;
+  }
+
+  /**
+   * Checks that the timestamps of a task fit the epoch nanoseconds of a record, which only reach
+   * from the year 1677 to 2262, so that no time is silently stored as another.
+   *
+   * @param task The task to be written.
+   * @throws IOException if a timestamp is outside that range.
+   */
+  static void checkTimesInRange(Task task) throws IOException {
+    if (!TaskTime.isInRange(task.getCreatedAtNanos())
+        || !TaskTime.isInRange(task.getUpdatedAtNanos())) {
+      throw new IOException("Task " + task.getId()
+          + " has a timestamp outside the years 1677 to 2262, which only the json format can hold");
+    }
+  }
+
+  /**
+   * Writes a non-negative int using 7 bits per byte, low bits first; the high bit of each byte
+   * marks that more bytes follow.
+   */
+  private static void writeVarint(OutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  private static int varintLength(int value) {
+    int length = 1;
+    while ((value & ~0x7F) != 0) {
+      value >>>= 7;
+      length++;
+    }
+    return length;
+  }
+
+  private static int readVarint(ByteBuffer buffer) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift <= 28; shift += 7) {
+      int b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Varint too long");
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * One change to the task list as handed to the storage layer: a task that was added or changed,
+ * or the ID of a task that was deleted.
+ */
+final class TaskChange {
+
+  private final Task task;
+  private final int id;
+
+  private TaskChange(Task task, int id) {
+    this.task = task;
+    this.id = id;
+  }
+
+  /**
+   * Creates the change for a task that was added or changed.
+   *
+   * @param task The task in its new state.
+   * @return The change.
+   */
+  static TaskChange put(Task task) {
+    return new TaskChange(task, task.getId());
+  }
+
+  /**
+   * Creates the change for a task that was deleted.
+   *
+   * @param id The ID of the deleted task.
+   * @return The change.
+   */
+  static TaskChange delete(int id) {
+    return new TaskChange(null, id);
+  }
+
+  /**
+   * Gets whether the task was deleted.
+   *
+   * @return True for a deletion, false for an added or changed task.
+   */
+  boolean isDelete() {
+    return task == null;
+  }
+
+  /**
+   * Gets the task in its new state.
+   *
+   * @return The task, or null for a deletion.
+   */
+  Task getTask() {
+    return task;
+  }
+
+  /**
+   * Gets the ID of the task.
+   *
+   * @return The task ID.
+   */
+  int getId() {
+    return id;
+  }
+}
@@ -0,0 +1,354 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-running Task Tracker process that keeps the task list in memory and executes commands sent
+ * over a Unix domain socket in the data directory. While it runs, every CLI invocation forwards
+ * its arguments to the daemon and prints the reply, so no command has to load the task file.
+ *
+ * <p>Commands are executed one at a time and saved through the {@link FileHandler} exactly as
+ * they would be without the daemon, so stopping it never loses changes. If another process wrote
+ * the task files in the meantime, e.g. a batch, the daemon loads them again before the next
+ * command. Each connection is read on a thread of its own, so a client that stalls holds up
+ * nobody else, and both sides give up on the other after
+ * {@link TrackerConfig#daemonTimeoutMillis()}.
+ *
+ * <p>Protocol: the client sends the argument count followed by each argument as its length and
+ * UTF-8 bytes; the daemon answers with the length and bytes of the command's standard output, then
+ * the same for its standard error.
+ */
+public final class TaskDaemon {
+
+  private static final String SOCKET_FILE_NAME = "tasktracker.sock";
+  private static final int MAX_ARGUMENTS = 4096;
+  // Bound on the encoded arguments of one request; longer commands are run without the daemon
+  private static final int MAX_REQUEST_BYTES = 64 * 1024 * 1024;
+  // Closes the connections whose deadline passed
+  private static final ScheduledThreadPoolExecutor TIMER =
+      new ScheduledThreadPoolExecutor(1, daemonThreads("task-daemon-timer"));
+
+  static {
+    TIMER.setRemoveOnCancelPolicy(true);
+  }
+
+  private TaskDaemon() {}
+
+  /**
+   * Gets the socket path used by a daemon serving the given data directory.
+   *
+   * @param directory The data directory.
+   * @return The socket path.
+   */
+  public static Path socketPath(Path directory) {
+    return directory.resolve(SOCKET_FILE_NAME);
+  }
+
+  /**
+   * Loads the tasks once and serves commands until the process is stopped.
+   *
+   * @param fileHandler The file handler used to load and save tasks.
+   * @param socketPath The socket to listen on.
+   */
+  public static void serve(FileHandler fileHandler, Path socketPath) {
+    if (isRunning(socketPath)) {
+      System.out.println("A daemon is already running on " + socketPath);
+      return;
+    }
+
+    java.util.concurrent.atomic.AtomicReference<TaskRepository> tasks =
+        new java.util.concurrent.atomic.AtomicReference<>(fileHandler.loadTasks());
+    long timeout = TrackerConfig.daemonTimeoutMillis();
+    // System.err is swapped while a command runs, so the daemon's own errors go here
+    PrintStream console = System.err;
+    ExecutorService connections = Executors.newCachedThreadPool(daemonThreads("task-daemon"));
+
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      // A socket file left behind by a killed daemon would make bind fail
+      Files.createDirectories(socketPath.getParent());
+      Files.deleteIfExists(socketPath);
+      server.bind(UnixDomainSocketAddress.of(socketPath));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteSocket(socketPath)));
+
+      System.out.println(
+          "Serving " + tasks.get().size() + " tasks on " + socketPath + " (Ctrl+C to stop)");
+      while (true) {
+        SocketChannel client = server.accept();
+        connections.execute(() -> {
+          try (client) {
+            handle(client, fileHandler, tasks, timeout);
+          } catch (EOFException e) {
+            // The client hung up without a command, e.g. another daemon checking for this one
+          } catch (IOException e) {
+            console.println("Error serving command: " + e.getMessage());
+          }
+        });
+      }
+    } catch (IOException e) {
+      System.err.println("Error starting daemon: " + e.getMessage());
+    } finally {
+      connections.shutdownNow();
+    }
+  }
+
+  /**
+   * Sends a command to a running daemon and prints its reply. If the connection fails or times
+   * out once the whole command was sent, the daemon may or may not have run it, so this is
+   * reported as an error and the command must not be run again.
+   *
+   * @param socketPath The daemon's socket.
+   * @param args The command-line arguments to execute.
+   * @return True if the command reached a daemon, false if no daemon took it and it has to be run
+   *         without one.
+   */
+  public static boolean forward(Path socketPath, String[] args) {
+    if (!Files.exists(socketPath)) {
+      return false;
+    }
+    ByteBuffer request = encodeRequest(args);
+    if (request == null) {
+      return false;
+    }
+    long timeout = TrackerConfig.daemonTimeoutMillis();
+
+    SocketChannel channel;
+    try {
+      channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+    } catch (IOException e) {
+      // Stale socket file: nobody is listening, so run the command locally
+      return false;
+    }
+
+    try (channel) {
+      try {
+        withDeadline(channel, timeout, "Sending the command", () -> {
+          while (request.hasRemaining()) {
+            channel.write(request);
+          }
+          return null;
+        });
+      } catch (IOException e) {
+        // The daemon never got the whole command, so it cannot have run it
+        return false;
+      }
+
+      withDeadline(channel, timeout, "Waiting for the daemon", () -> {
+        DataInputStream reply =
+            new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        copy(reply, System.out);
+        copy(reply, System.err);
+        return null;
+      });
+    } catch (IOException e) {
+      System.err.println("Error: The command was sent to the daemon, but its outcome is unknown: "
+          + e.getMessage());
+    }
+    return true;
+  }
+
+  /**
+   * Encodes the arguments of a command as a request.
+   *
+   * @return The request, or null if it is too long for the daemon to accept.
+   */
+  private static ByteBuffer encodeRequest(String[] args) {
+    if (args.length < 1 || args.length > MAX_ARGUMENTS) {
+      return null;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream request = new DataOutputStream(bytes);
+    try {
+      request.writeInt(args.length);
+      for (String arg : args) {
+        byte[] encoded = arg.getBytes(StandardCharsets.UTF_8);
+        request.writeInt(encoded.length);
+        request.write(encoded);
+        if (bytes.size() > MAX_REQUEST_BYTES) {
+          return null;
+        }
+      }
+    } catch (IOException e) {
+      // Cannot happen when writing to memory
+      throw new java.io.UncheckedIOException(e);
+    }
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  /**
+   * Executes one command received from a client, capturing everything it prints. The tasks are
+   * loaded again first if another process changed them, and the new list replaces the old one.
+   * Reading the request and writing the reply each have to finish within the timeout, while the
+   * command itself waits for any other command to finish first.
+   */
+  private static void handle(SocketChannel client, FileHandler fileHandler,
+      java.util.concurrent.atomic.AtomicReference<TaskRepository> tasks, long timeout)
+      throws IOException {
+    String[] args = withDeadline(client, timeout, "Reading the request", () -> readRequest(client));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    // Commands share the tasks and System.out, so they run one at a time
+    synchronized (tasks) {
+      PrintStream originalOut = System.out;
+      PrintStream originalErr = System.err;
+      System.setOut(new PrintStream(out, true));
+      System.setErr(new PrintStream(err, true));
+      try {
+        if (fileHandler.isStale()) {
+          tasks.set(fileHandler.loadTasks());
+        }
+        tasks.set(TaskTracker.runCommandWithRetry(tasks.get(), args));
+      } catch (RuntimeException e) {
+        // A failing command must not take the daemon down with it
+        System.err.println("Error: " + e.getMessage());
+      } finally {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+      }
+    }
+
+    withDeadline(client, timeout, "Sending the reply", () -> {
+      DataOutputStream reply =
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+      reply.writeInt(out.size());
+      out.writeTo(reply);
+      reply.writeInt(err.size());
+      err.writeTo(reply);
+      reply.flush();
+      return null;
+    });
+  }
+
+  /**
+   * Reads the arguments of a command sent by {@link #forward}.
+   */
+  private static String[] readRequest(SocketChannel client) throws IOException {
+    DataInputStream request =
+        new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+    int count = request.readInt();
+    if (count < 1 || count > MAX_ARGUMENTS) {
+      throw new IOException("Invalid argument count: " + count);
+    }
+    String[] args = new String[count];
+    long remaining = MAX_REQUEST_BYTES;
+    for (int i = 0; i < count; i++) {
+      int length = request.readInt();
+      if (length < 0 || length > remaining) {
+        throw new IOException("Invalid argument length: " + length);
+      }
+      remaining -= length;
+      byte[] arg = new byte[length];
+      request.readFully(arg);
+      args[i] = new String(arg, StandardCharsets.UTF_8);
+    }
+    return args;
+  }
+
+  /**
+   * Reads or writes a connection.
+   */
+  @FunctionalInterface
+  private interface ConnectionIo<T> {
+    T run() throws IOException;
+  }
+
+  /**
+   * Runs blocking reads or writes on a connection, closing it if they take longer than the
+   * timeout, so that they fail instead of waiting for the other side forever.
+   *
+   * @param channel The connection.
+   * @param timeout The timeout in milliseconds.
+   * @param what What is being done, for the error message.
+   * @param io The reads or writes.
+   * @return Whatever the reads or writes returned.
+   * @throws SocketTimeoutException if the timeout expired.
+   */
+  private static <T> T withDeadline(SocketChannel channel, long timeout, String what,
+      ConnectionIo<T> io) throws IOException {
+    AtomicBoolean expired = new AtomicBoolean();
+    ScheduledFuture<?> closer = TIMER.schedule(() -> {
+      expired.set(true);
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // The blocked read or write fails all the same
+      }
+    }, timeout, TimeUnit.MILLISECONDS);
+    try {
+      return io.run();
+    } catch (IOException e) {
+      if (expired.get()) {
+        throw new SocketTimeoutException(what + " took longer than " + timeout + " ms");
+      }
+      throw e;
+    } finally {
+      closer.cancel(false);
+    }
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Copies one length-prefixed block of the reply to the given stream.
+   */
+  private static void copy(DataInputStream reply, PrintStream target) throws IOException {
+    byte[] bytes = new byte[reply.readInt()];
+    reply.readFully(bytes);
+    target.write(bytes, 0, bytes.length);
+    target.flush();
+  }
+
+  /**
+   * Checks whether a daemon is listening on the given socket.
+   *
+   * @param socketPath The daemon's socket.
+   * @return True if a daemon accepted a connection.
+   */
+  static boolean isRunning(Path socketPath) {
+    if (!Files.exists(socketPath)) {
+      return false;
+    }
+    try {
+      SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static void deleteSocket(Path socketPath) {
+    try {
+      Files.deleteIfExists(socketPath);
+    } catch (IOException e) {
+      System.err.println("Error removing daemon socket: " + e.getMessage());
+    }
+  }
+}
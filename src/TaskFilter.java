@@ -0,0 +1,196 @@
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selection of tasks for the {@code list} command: an optional status and optional ranges of the
+ * creation and update times. Times are epoch nanoseconds as kept by {@link TaskTime}, and each
+ * range includes its start and excludes its end.
+ */
+public final class TaskFilter {
+
+  /**
+   * Selects every task.
+   */
+  public static final TaskFilter ALL =
+      new TaskFilter(null, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+
+  private final Task.Status status;
+  private final long createdFrom;
+  private final long createdTo;
+  private final long updatedFrom;
+  private final long updatedTo;
+
+  /**
+   * Creates a filter.
+   *
+   * @param status The status to select, or null for every status.
+   * @param createdFrom The earliest creation time selected, inclusive.
+   * @param createdTo The creation time from which tasks are no longer selected, exclusive.
+   * @param updatedFrom The earliest update time selected, inclusive.
+   * @param updatedTo The update time from which tasks are no longer selected, exclusive.
+   */
+  public TaskFilter(Task.Status status, long createdFrom, long createdTo, long updatedFrom,
+      long updatedTo) {
+    this.status = status;
+    this.createdFrom = createdFrom;
+    this.createdTo = createdTo;
+    this.updatedFrom = updatedFrom;
+    this.updatedTo = updatedTo;
+  }
+
+  /**
+   * Creates a filter that selects by status only.
+   *
+   * @param status The status to select, or null for every task.
+   * @return The filter.
+   */
+  public static TaskFilter of(Task.Status status) {
+    return status == null ? ALL : ALL.withStatus(status);
+  }
+
+  /**
+   * Gets a copy of this filter that selects the given status.
+   *
+   * @param status The status to select, or null for every status.
+   * @return The new filter.
+   */
+  public TaskFilter withStatus(Task.Status status) {
+    return new TaskFilter(status, createdFrom, createdTo, updatedFrom, updatedTo);
+  }
+
+  /**
+   * Gets a copy of this filter that also requires a creation time in the given range.
+   *
+   * @param from The earliest creation time, inclusive.
+   * @param to The end of the range, exclusive.
+   * @return The new filter.
+   */
+  public TaskFilter createdBetween(long from, long to) {
+    return new TaskFilter(status, Math.max(createdFrom, from), Math.min(createdTo, to),
+        updatedFrom, updatedTo);
+  }
+
+  /**
+   * Gets a copy of this filter that also requires an update time in the given range.
+   *
+   * @param from The earliest update time, inclusive.
+   * @param to The end of the range, exclusive.
+   * @return The new filter.
+   */
+  public TaskFilter updatedBetween(long from, long to) {
+    return new TaskFilter(status, createdFrom, createdTo, Math.max(updatedFrom, from),
+        Math.min(updatedTo, to));
+  }
+
+  /**
+   * Gets the status to select.
+   *
+   * @return The status, or null for every status.
+   */
+  public Task.Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Gets the earliest creation time selected.
+   *
+   * @return The time in epoch nanoseconds, inclusive.
+   */
+  public long getCreatedFrom() {
+    return createdFrom;
+  }
+
+  /**
+   * Gets the creation time from which tasks are no longer selected.
+   *
+   * @return The time in epoch nanoseconds, exclusive.
+   */
+  public long getCreatedTo() {
+    return createdTo;
+  }
+
+  /**
+   * Gets the earliest update time selected.
+   *
+   * @return The time in epoch nanoseconds, inclusive.
+   */
+  public long getUpdatedFrom() {
+    return updatedFrom;
+  }
+
+  /**
+   * Gets the update time from which tasks are no longer selected.
+   *
+   * @return The time in epoch nanoseconds, exclusive.
+   */
+  public long getUpdatedTo() {
+    return updatedTo;
+  }
+
+  /**
+   * Checks whether the filter restricts the creation or update time.
+   *
+   * @return True if a time range is set.
+   */
+  public boolean hasTimeRange() {
+    return createdFrom != Long.MIN_VALUE || createdTo != Long.MAX_VALUE
+        || updatedFrom != Long.MIN_VALUE || updatedTo != Long.MAX_VALUE;
+  }
+
+  /**
+   * Checks whether a task is selected.
+   *
+   * @param task The task.
+   * @return True if the task has the status and its times are in the ranges.
+   */
+  public boolean matches(Task task) {
+    if (status != null && task.getStatus() != status) {
+      return false;
+    }
+    long created = task.getCreatedAtNanos();
+    long updated = task.getUpdatedAtNanos();
+    return created >= createdFrom && created < createdTo && updated >= updatedFrom
+        && updated < updatedTo;
+  }
+
+  /**
+   * Parses a point in time given on the command line: a date such as {@code 2024-05-01}, meaning
+   * its start, a date and time such as {@code 2024-05-01T09:30}, or an age such as {@code 90m},
+   * {@code 2h}, {@code 7d} or {@code 2w}, meaning that long before now.
+   *
+   * @param text The text to parse.
+   * @return The time in epoch nanoseconds, in the same local time as {@link TaskTime#now()}.
+   * @throws IllegalArgumentException if the text is none of these.
+   */
+  public static long parseTime(String text) {
+    try {
+      if (text.matches("\\d{1,4}[smhdw]")) {
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        return TaskTime.now() - unitNanos(text.charAt(text.length() - 1)) * amount;
+      }
+      if (text.indexOf('T') < 0) {
+        return TaskTime.toEpochNanos(LocalDate.parse(text).atStartOfDay());
+      }
+      return TaskTime.parse(text);
+    } catch (DateTimeException e) {
+      throw new IllegalArgumentException("Invalid time: " + text
+          + " (use a date like 2024-05-01, a time like 2024-05-01T09:30 or an age like 2h or 7d).");
+    }
+  }
+
+  private static long unitNanos(char unit) {
+    switch (unit) {
+      case 's':
+        return TimeUnit.SECONDS.toNanos(1);
+      case 'm':
+        return TimeUnit.MINUTES.toNanos(1);
+      case 'h':
+        return TimeUnit.HOURS.toNanos(1);
+      case 'd':
+        return TimeUnit.DAYS.toNanos(1);
+      default:
+        return TimeUnit.DAYS.toNanos(7);
+    }
+  }
+}
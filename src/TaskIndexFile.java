@@ -0,0 +1,460 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index stored next to the task file (data/tasks.idx). For every record of the task file it holds
+ * the byte offset at which the record starts and the task's ID, and for every status a bit set of
+ * the records in that status, so a status-filtered listing decodes only the matching records and
+ * a single task can be found without reading the others, see {@link #find}. The creation and
+ * update times of all records are kept sorted as well, each with the record it belongs to, so the
+ * records in a time range are found by binary search (see {@link #find(Path, Path, TaskFilter)}).
+ *
+ * <p>The index records the name, size and modification time of the task file it describes and is
+ * ignored as soon as they no longer match, for example after a crash between writing the task
+ * file and its index, or when the other file format has been written since.
+ */
+final class TaskIndexFile {
+
+  private static final byte[] MAGIC = {'T', 'I', 'D', 'X'};
+  private static final int VERSION = 3;
+  private static final Task.Status[] STATUSES = Task.Status.values();
+
+  private final long[] offsets;
+  private final long fileSize;
+  private final EnumMap<Task.Status, BitSet> recordsByStatus;
+
+  private TaskIndexFile(long[] offsets, long fileSize,
+      EnumMap<Task.Status, BitSet> recordsByStatus) {
+    this.offsets = offsets;
+    this.fileSize = fileSize;
+    this.recordsByStatus = recordsByStatus;
+  }
+
+  /**
+   * Writes the index for a task file that has just been written.
+   *
+   * @param indexPath The index file.
+   * @param taskFile The task file the index describes.
+   * @param tasks The tasks, in the order they were written.
+   * @param offsets The byte offset of each task's record in the task file.
+   */
+  static void write(Path indexPath, Path taskFile, Collection<Task> tasks, long[] offsets)
+      throws IOException {
+    EnumMap<Task.Status, BitSet> recordsByStatus = new EnumMap<>(Task.Status.class);
+    for (Task.Status status : STATUSES) {
+      recordsByStatus.put(status, new BitSet());
+    }
+    int record = 0;
+    for (Task task : tasks) {
+      recordsByStatus.get(task.getStatus()).set(record++);
+    }
+
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+      out.write(MAGIC);
+      out.writeByte(VERSION);
+      writeStamp(out, taskFile);
+      out.writeInt(offsets.length);
+      // IDs normally ascend in file order, since new tasks get higher IDs and go to the end
+      int previous = Integer.MIN_VALUE;
+      boolean sorted = true;
+      for (Task task : tasks) {
+        sorted &= task.getId() > previous;
+        previous = task.getId();
+      }
+      out.writeBoolean(sorted);
+      for (long offset : offsets) {
+        out.writeLong(offset);
+      }
+      for (Task task : tasks) {
+        out.writeInt(task.getId());
+      }
+      for (Task.Status status : STATUSES) {
+        long[] words = recordsByStatus.get(status).toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+          out.writeLong(word);
+        }
+      }
+
+      long[] created = new long[offsets.length];
+      long[] updated = new long[offsets.length];
+      record = 0;
+      for (Task task : tasks) {
+        created[record] = task.getCreatedAtNanos();
+        updated[record++] = task.getUpdatedAtNanos();
+      }
+      writeSortedTimes(out, created);
+      writeSortedTimes(out, updated);
+    }
+  }
+
+  /**
+   * Writes the times of all records in ascending order, followed by the record of each time.
+   */
+  private static void writeSortedTimes(DataOutputStream out, long[] times) throws IOException {
+    int[] records = sortedOrder(times);
+    for (int record : records) {
+      out.writeLong(times[record]);
+    }
+    for (int record : records) {
+      out.writeInt(record);
+    }
+  }
+
+  /**
+   * Sorts the positions of an array by the values there, keeping equal values in position order.
+   *
+   * @return The positions, ordered by value.
+   */
+  private static int[] sortedOrder(long[] values) {
+    int[] order = new int[values.length];
+    boolean sorted = true;
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+      sorted &= i == 0 || values[i - 1] <= values[i];
+    }
+    // Creation times usually ascend already, as new tasks go to the end
+    if (sorted) {
+      return order;
+    }
+
+    // Bottom-up merge sort, since the primitive sorts cannot carry the positions along
+    int[] merged = new int[order.length];
+    for (long width = 1; width < order.length; width *= 2) {
+      for (long low = 0; low < order.length; low += 2 * width) {
+        int i = (int) low;
+        int middle = (int) Math.min(low + width, order.length);
+        int j = middle;
+        int end = (int) Math.min(low + 2 * width, order.length);
+        int k = i;
+        while (i < middle && j < end) {
+          merged[k++] = values[order[j]] < values[order[i]] ? order[j++] : order[i++];
+        }
+        while (i < middle) {
+          merged[k++] = order[i++];
+        }
+        while (j < end) {
+          merged[k++] = order[j++];
+        }
+      }
+      int[] swap = order;
+      order = merged;
+      merged = swap;
+    }
+    return order;
+  }
+
+  /**
+   * Reads the index of a task file.
+   *
+   * @param indexPath The index file.
+   * @param taskFile The task file the index should describe.
+   * @return The index, or null if there is none or it does not match the task file.
+   */
+  static TaskIndexFile read(Path indexPath, Path taskFile) {
+    if (!Files.exists(indexPath)) {
+      return null;
+    }
+
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(indexPath)))) {
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!java.util.Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION
+          || !readStamp(in, taskFile)) {
+        return null;
+      }
+
+      long[] offsets = new long[in.readInt()];
+      in.readBoolean();
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = in.readLong();
+      }
+      in.skipNBytes((long) Integer.BYTES * offsets.length);
+      EnumMap<Task.Status, BitSet> recordsByStatus = new EnumMap<>(Task.Status.class);
+      for (Task.Status status : STATUSES) {
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+          words[i] = in.readLong();
+        }
+        recordsByStatus.put(status, BitSet.valueOf(words));
+      }
+      return new TaskIndexFile(offsets, Files.size(taskFile), recordsByStatus);
+    } catch (IOException e) {
+      // A damaged index only costs speed: fall back to reading the task file
+      return null;
+    }
+  }
+
+  /**
+   * Finds the record of a single task without reading the rest of the index: the index is mapped,
+   * and the ID is looked up by binary search, so only a few of its pages are touched.
+   *
+   * @param indexPath The index file.
+   * @param taskFile The task file the index should describe.
+   * @param id The ID of the task.
+   * @return The start (inclusive) and end (exclusive) offsets of the task's record, an empty array
+   *         if the task file holds no such task, or null if there is no index matching the file.
+   */
+  static long[] find(Path indexPath, Path taskFile, int id) {
+    return find(indexPath, taskFile, new int[] {id});
+  }
+
+  /**
+   * Finds the records of several tasks like {@link #find(Path, Path, int)}, e.g. the matches of a
+   * search.
+   *
+   * @param indexPath The index file.
+   * @param taskFile The task file the index should describe.
+   * @param ids The IDs of the tasks, in ascending order.
+   * @return Pairs of start (inclusive) and end (exclusive) offsets of the records found, in
+   *         increasing order, or null if there is no index matching the file.
+   */
+  static long[] find(Path indexPath, Path taskFile, int[] ids) {
+    try {
+      MappedByteBuffer index = map(indexPath, taskFile);
+      if (index == null) {
+        return null;
+      }
+
+      int count = index.getInt();
+      boolean sorted = index.get() != 0;
+      int offsetsStart = index.position();
+      int idsStart = offsetsStart + Long.BYTES * count;
+      int[] records = new int[Math.min(ids.length, count)];
+      int found = 0;
+      if (sorted) {
+        // Each ID is searched for above the previous one's record
+        int low = 0;
+        for (int id : ids) {
+          int high = count - 1;
+          while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = index.getInt(idsStart + Integer.BYTES * middle);
+            if (middleId < id) {
+              low = middle + 1;
+            } else if (middleId > id) {
+              high = middle - 1;
+            } else {
+              records[found++] = middle;
+              low = middle + 1;
+              break;
+            }
+          }
+        }
+      } else {
+        for (int i = 0; i < count && found < records.length; i++) {
+          if (java.util.Arrays.binarySearch(ids, index.getInt(idsStart + Integer.BYTES * i)) >= 0) {
+            records[found++] = i;
+          }
+        }
+      }
+
+      return ranges(index, offsetsStart, count, records, found, taskFile);
+    } catch (IOException | RuntimeException e) {
+      // A damaged index only costs speed: fall back to reading the task file
+      return null;
+    }
+  }
+
+  /**
+   * Finds the records in the time ranges of a filter without reading the rest of the index: the
+   * bounds are looked up by binary search in the sorted creation and update times, whichever range
+   * holds fewer records is taken, and records in the wrong status are skipped using the status bit
+   * sets. The other range is left to the caller, which has to apply the whole filter to the tasks
+   * it decodes.
+   *
+   * @param indexPath The index file.
+   * @param taskFile The task file the index should describe.
+   * @param filter The filter, which should have a time range.
+   * @return Pairs of start (inclusive) and end (exclusive) offsets of the records, in increasing
+   *         order, or null if there is no index matching the file.
+   */
+  static long[] find(Path indexPath, Path taskFile, TaskFilter filter) {
+    try {
+      MappedByteBuffer index = map(indexPath, taskFile);
+      if (index == null) {
+        return null;
+      }
+
+      int count = index.getInt();
+      index.get();
+      int offsetsStart = index.position();
+      int position = offsetsStart + (Long.BYTES + Integer.BYTES) * count;
+      int statusStart = -1;
+      for (Task.Status status : STATUSES) {
+        if (status == filter.getStatus()) {
+          statusStart = position;
+        }
+        position += Integer.BYTES + Long.BYTES * index.getInt(position);
+      }
+      int createdStart = position;
+      int updatedStart = createdStart + (Long.BYTES + Integer.BYTES) * count;
+
+      int createdLow = lowerBound(index, createdStart, count, filter.getCreatedFrom());
+      int createdHigh = lowerBound(index, createdStart, count, filter.getCreatedTo());
+      int updatedLow = lowerBound(index, updatedStart, count, filter.getUpdatedFrom());
+      int updatedHigh = lowerBound(index, updatedStart, count, filter.getUpdatedTo());
+      boolean byCreated = createdHigh - createdLow <= updatedHigh - updatedLow;
+      int timesStart = byCreated ? createdStart : updatedStart;
+      int low = byCreated ? createdLow : updatedLow;
+      int high = Math.max(low, byCreated ? createdHigh : updatedHigh);
+
+      int recordsStart = timesStart + Long.BYTES * count;
+      int words = statusStart < 0 ? 0 : index.getInt(statusStart);
+      int[] records = new int[high - low];
+      int found = 0;
+      for (int i = low; i < high; i++) {
+        int record = index.getInt(recordsStart + Integer.BYTES * i);
+        if (statusStart >= 0 && (record >>> 6 >= words || (index.getLong(statusStart
+            + Integer.BYTES + Long.BYTES * (record >>> 6)) & 1L << record) == 0)) {
+          continue;
+        }
+        records[found++] = record;
+      }
+      java.util.Arrays.sort(records, 0, found);
+      return ranges(index, offsetsStart, count, records, found, taskFile);
+    } catch (IOException | RuntimeException e) {
+      // A damaged index only costs speed: fall back to reading the task file
+      return null;
+    }
+  }
+
+  /**
+   * Counts the records of a task file without reading the rest of its index.
+   *
+   * @param indexPath The index file.
+   * @param taskFile The task file the index should describe.
+   * @return The number of records, or -1 if there is no index matching the file.
+   */
+  static int count(Path indexPath, Path taskFile) {
+    try {
+      MappedByteBuffer index = map(indexPath, taskFile);
+      return index == null ? -1 : index.getInt();
+    } catch (IOException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Maps an index file and checks that it describes the task file.
+   *
+   * @return The mapped index, positioned at the record count, or null if there is no index or it
+   *         does not match the task file.
+   */
+  private static MappedByteBuffer map(Path indexPath, Path taskFile) throws IOException {
+    if (!Files.exists(indexPath)) {
+      return null;
+    }
+    MappedByteBuffer index;
+    try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+      index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    byte[] magic = new byte[MAGIC.length];
+    index.get(magic);
+    if (!java.util.Arrays.equals(magic, MAGIC) || (index.get() & 0xFF) != VERSION) {
+      return null;
+    }
+    byte[] name = new byte[index.getShort() & 0xFFFF];
+    index.get(name);
+    if (!new String(name, StandardCharsets.UTF_8).equals(taskFile.getFileName().toString())
+        || index.getLong() != Files.size(taskFile)
+        || index.getLong() != Files.getLastModifiedTime(taskFile).to(TimeUnit.NANOSECONDS)) {
+      return null;
+    }
+    return index;
+  }
+
+  /**
+   * Finds the first of the sorted times that is not less than the given one.
+   */
+  private static int lowerBound(MappedByteBuffer index, int timesStart, int count, long time) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (index.getLong(timesStart + Long.BYTES * middle) < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Turns record numbers into byte ranges of the task file.
+   */
+  private static long[] ranges(MappedByteBuffer index, int offsetsStart, int count, int[] records,
+      int found, Path taskFile) throws IOException {
+    long[] ranges = new long[2 * found];
+    for (int i = 0; i < found; i++) {
+      int record = records[i];
+      ranges[2 * i] = index.getLong(offsetsStart + Long.BYTES * record);
+      ranges[2 * i + 1] = record + 1 < count
+          ? index.getLong(offsetsStart + Long.BYTES * (record + 1)) : Files.size(taskFile);
+    }
+    return ranges;
+  }
+
+  /**
+   * Gets the number of records in the task file.
+   *
+   * @return The record count.
+   */
+  int size() {
+    return offsets.length;
+  }
+
+  /**
+   * Gets the byte ranges of the records in a given status. A record ends where the next one
+   * starts, so a range may include separators that follow the record.
+   *
+   * @param status The status to select, or null for every record.
+   * @return Pairs of start (inclusive) and end (exclusive) offsets, in increasing order.
+   */
+  long[] ranges(Task.Status status) {
+    BitSet records;
+    if (status == null) {
+      records = new BitSet(offsets.length);
+      records.set(0, offsets.length);
+    } else {
+      records = recordsByStatus.get(status);
+    }
+
+    long[] ranges = new long[2 * records.cardinality()];
+    int i = 0;
+    for (int record = records.nextSetBit(0); record >= 0;
+        record = records.nextSetBit(record + 1)) {
+      ranges[i++] = offsets[record];
+      ranges[i++] = record + 1 < offsets.length ? offsets[record + 1] : fileSize;
+    }
+    return ranges;
+  }
+
+  private static void writeStamp(DataOutputStream out, Path taskFile) throws IOException {
+    out.writeUTF(taskFile.getFileName().toString());
+    out.writeLong(Files.size(taskFile));
+    out.writeLong(Files.getLastModifiedTime(taskFile).to(TimeUnit.NANOSECONDS));
+  }
+
+  private static boolean readStamp(DataInputStream in, Path taskFile) throws IOException {
+    return in.readUTF().equals(taskFile.getFileName().toString())
+        && in.readLong() == Files.size(taskFile)
+        && in.readLong() == Files.getLastModifiedTime(taskFile).to(TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,479 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader for the JSON task array written by {@link FileHandler}. The input is consumed
+ * character by character in a single pass and every task object is turned into a {@link Task} as
+ * soon as its closing brace is reached, so the file is never held in memory as a whole and no
+ * field is scanned more than once.
+ */
+public class TaskJsonReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final Task.Status[] STATUSES = Task.Status.values();
+
+  private final Reader in;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  // Number of characters consumed before the current buffer, used in error messages
+  private long consumed;
+  // Scratch space reused for every key and string value
+  private final StringBuilder text = new StringBuilder();
+  private boolean started;
+  private boolean finished;
+
+  /**
+   * Creates a reader over the given character stream. The reader does its own buffering, so the
+   * stream does not need to be wrapped beforehand.
+   *
+   * @param in The source of JSON text.
+   */
+  public TaskJsonReader(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * Reads every remaining task and hands each one to the consumer as soon as it has been parsed.
+   * Tasks with missing or invalid fields are reported and skipped, like the original loader did.
+   *
+   * @param consumer Receives the tasks in file order.
+   * @throws IOException if the stream cannot be read or is not a JSON array of objects.
+   */
+  public void readTasks(Consumer<Task> consumer) throws IOException {
+    while (true) {
+      Task task;
+      try {
+        task = next();
+      } catch (IllegalArgumentException e) {
+        System.err.println("Error parsing task JSON: " + e.getMessage());
+        continue;
+      }
+      if (task == null) {
+        return;
+      }
+      consumer.accept(task);
+    }
+  }
+
+  /**
+   * Reads the next task from the array.
+   *
+   * @return The next task, or null once the closing bracket (or an empty input) has been reached.
+   * @throws IllegalArgumentException if the task object is well-formed JSON but a field is missing
+   *         or invalid. The object has been consumed, so reading can continue with the next one.
+   * @throws IOException if the stream cannot be read or is not a JSON array of objects.
+   */
+  public Task next() throws IOException {
+    if (finished) {
+      return null;
+    }
+
+    int c = nextNonWhitespace();
+    if (!started) {
+      started = true;
+      // An empty file holds no tasks
+      if (c == -1) {
+        finished = true;
+        return null;
+      }
+      if (c != '[') {
+        throw syntaxError("Expected '['");
+      }
+      if (peekNonWhitespace() == ']') {
+        read();
+        finished = true;
+        return null;
+      }
+    } else if (c == ']') {
+      finished = true;
+      return null;
+    } else if (c != ',') {
+      throw syntaxError("Expected ',' or ']'");
+    }
+
+    return readTask();
+  }
+
+  /**
+   * Reads the tasks of one slice of a task array, as cut by
+   * {@link MappedTaskReader#readJsonParallel}: every slice but the first starts at the comma
+   * before its first object, and every slice but the last ends right after its last object, with
+   * no closing bracket. Invalid tasks are reported and skipped as in {@link #readTasks}.
+   *
+   * @param first Whether the slice starts the array.
+   * @param last Whether the slice ends the array.
+   * @param consumer Receives the tasks in slice order.
+   * @throws IOException if the slice does not hold whole task objects, e.g. when it was not cut
+   *         at an object boundary.
+   */
+  void readSlice(boolean first, boolean last, Consumer<Task> consumer) throws IOException {
+    if (nextNonWhitespace() != (first ? '[' : ',')) {
+      throw syntaxError(first ? "Expected '['" : "Expected ','");
+    }
+    started = true;
+    while (true) {
+      try {
+        consumer.accept(readTask());
+      } catch (IllegalArgumentException e) {
+        System.err.println("Error parsing task JSON: " + e.getMessage());
+      }
+      int c = nextNonWhitespace();
+      if (last ? c == ']' : c == -1) {
+        finished = true;
+        return;
+      }
+      if (c != ',') {
+        throw syntaxError(last ? "Expected ',' or ']'" : "Expected ','");
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Reads the next non-whitespace character. Used by {@link TaskLog}, whose records are not wrapped
+   * in an array.
+   *
+   * @return The character, or -1 at the end of the input.
+   */
+  int nextSymbol() throws IOException {
+    return nextNonWhitespace();
+  }
+
+  /**
+   * Forgets any characters read ahead from the stream, for use after the underlying stream has
+   * been repositioned (see {@link MappedTaskReader}).
+   */
+  void discardBuffered() {
+    consumed += position;
+    position = 0;
+    limit = 0;
+  }
+
+  /**
+   * Reads the next character as is, without skipping whitespace.
+   *
+   * @return The character, or -1 at the end of the input.
+   */
+  int nextChar() throws IOException {
+    return read();
+  }
+
+  /**
+   * Reads one task object, starting at its opening brace.
+   */
+  Task readTask() throws IOException {
+    if (nextNonWhitespace() != '{') {
+      throw syntaxError("Expected '{'");
+    }
+
+    int id = -1;
+    String description = null;
+    Task.Status status = null;
+    long createdAt = 0;
+    long updatedAt = 0;
+    // Only set for times outside the range of epoch nanoseconds
+    LocalDateTime exactCreatedAt = null;
+    LocalDateTime exactUpdatedAt = null;
+    boolean hasCreatedAt = false;
+    boolean hasUpdatedAt = false;
+    String problem = null;
+
+    if (peekNonWhitespace() == '}') {
+      read();
+    } else {
+      while (true) {
+        if (nextNonWhitespace() != '"') {
+          throw syntaxError("Expected a field name");
+        }
+        readString();
+        if (nextNonWhitespace() != ':') {
+          throw syntaxError("Expected ':'");
+        }
+
+        if (matches(text, "id")) {
+          id = readInt();
+        } else if (matches(text, "description")) {
+          readStringValue();
+          description = text.toString();
+        } else if (matches(text, "status")) {
+          readStringValue();
+          status = toStatus(text);
+          if (status == null && problem == null) {
+            problem = "Unknown status: " + text;
+          }
+        } else if (matches(text, "createdAt")) {
+          readStringValue();
+          try {
+            createdAt = TaskTime.parse(text);
+            exactCreatedAt = TaskTime.isInRange(createdAt) ? null : LocalDateTime.parse(text);
+            hasCreatedAt = true;
+          } catch (DateTimeParseException e) {
+            problem = problem == null ? e.getMessage() : problem;
+          }
+        } else if (matches(text, "updatedAt")) {
+          readStringValue();
+          try {
+            updatedAt = TaskTime.parse(text);
+            exactUpdatedAt = TaskTime.isInRange(updatedAt) ? null : LocalDateTime.parse(text);
+            hasUpdatedAt = true;
+          } catch (DateTimeParseException e) {
+            problem = problem == null ? e.getMessage() : problem;
+          }
+        } else {
+          skipValue();
+        }
+
+        int c = nextNonWhitespace();
+        if (c == '}') {
+          break;
+        }
+        if (c != ',') {
+          throw syntaxError("Expected ',' or '}'");
+        }
+      }
+    }
+
+    if (problem != null) {
+      throw new IllegalArgumentException(problem);
+    }
+    if (id < 0 || description == null || status == null || !hasCreatedAt || !hasUpdatedAt) {
+      throw new IllegalArgumentException("Task is missing required fields");
+    }
+    if (exactCreatedAt != null || exactUpdatedAt != null) {
+      return new Task(id, description, status,
+          exactCreatedAt != null ? exactCreatedAt : TaskTime.toLocalDateTime(createdAt),
+          exactUpdatedAt != null ? exactUpdatedAt : TaskTime.toLocalDateTime(updatedAt));
+    }
+    return new Task(id, description, status, createdAt, updatedAt);
+  }
+
+  /**
+   * Reads a non-negative integer value directly from the stream without building a String.
+   */
+  int readInt() throws IOException {
+    int c = nextNonWhitespace();
+    if (c < '0' || c > '9') {
+      throw syntaxError("Expected a number");
+    }
+    long value = c - '0';
+    c = peek();
+    while (c >= '0' && c <= '9') {
+      read();
+      value = value * 10 + (c - '0');
+      if (value > Integer.MAX_VALUE) {
+        throw syntaxError("Number out of range");
+      }
+      c = peek();
+    }
+    return (int) value;
+  }
+
+  /**
+   * Reads a quoted string value into the scratch buffer.
+   */
+  private void readStringValue() throws IOException {
+    if (nextNonWhitespace() != '"') {
+      throw syntaxError("Expected a string");
+    }
+    readString();
+  }
+
+  /**
+   * Reads the rest of a string whose opening quote has already been consumed, decoding escape
+   * sequences into the scratch buffer.
+   */
+  private void readString() throws IOException {
+    text.setLength(0);
+    while (true) {
+      int c = read();
+      if (c == -1) {
+        throw syntaxError("Unterminated string");
+      }
+      if (c == '"') {
+        return;
+      }
+      if (c != '\\') {
+        text.append((char) c);
+        continue;
+      }
+
+      c = read();
+      switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+          text.append((char) c);
+          break;
+        case 'b':
+          text.append('\b');
+          break;
+        case 'f':
+          text.append('\f');
+          break;
+        case 'n':
+          text.append('\n');
+          break;
+        case 'r':
+          text.append('\r');
+          break;
+        case 't':
+          text.append('\t');
+          break;
+        case 'u':
+          text.append(readHexChar());
+          break;
+        case -1:
+          throw syntaxError("Unterminated string");
+        default:
+          // Keep unknown escapes verbatim rather than rejecting the whole file
+          text.append('\\').append((char) c);
+      }
+    }
+  }
+
+  /**
+   * Reads the four hex digits of a \\u escape.
+   */
+  private char readHexChar() throws IOException {
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      int digit = Character.digit(read(), 16);
+      if (digit < 0) {
+        throw syntaxError("Invalid unicode escape");
+      }
+      value = (value << 4) | digit;
+    }
+    return (char) value;
+  }
+
+  /**
+   * Skips the value of a field this reader does not know about.
+   */
+  private void skipValue() throws IOException {
+    int c = nextNonWhitespace();
+    if (c == '"') {
+      readString();
+      return;
+    }
+    if (c == '{' || c == '[') {
+      int depth = 1;
+      while (depth > 0) {
+        c = read();
+        if (c == -1) {
+          throw syntaxError("Unexpected end of input");
+        } else if (c == '"') {
+          readString();
+        } else if (c == '{' || c == '[') {
+          depth++;
+        } else if (c == '}' || c == ']') {
+          depth--;
+        }
+      }
+      return;
+    }
+    // Number, true, false or null: runs until the next delimiter
+    while (true) {
+      c = peek();
+      if (c == -1 || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+        return;
+      }
+      read();
+    }
+  }
+
+  /**
+   * Compares the scratch buffer with a field name without allocating.
+   */
+  private static boolean matches(CharSequence actual, String expected) {
+    if (actual.length() != expected.length()) {
+      return false;
+    }
+    for (int i = 0; i < expected.length(); i++) {
+      if (actual.charAt(i) != expected.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Looks up the status whose name equals the scratch buffer.
+   *
+   * @return The matching status, or null if there is none.
+   */
+  private static Task.Status toStatus(CharSequence name) {
+    for (Task.Status status : STATUSES) {
+      if (matches(name, status.name())) {
+        return status;
+      }
+    }
+    return null;
+  }
+
+  private int nextNonWhitespace() throws IOException {
+    int c = read();
+    while (c != -1 && Character.isWhitespace(c)) {
+      c = read();
+    }
+    return c;
+  }
+
+  private int peekNonWhitespace() throws IOException {
+    int c = peek();
+    while (c != -1 && Character.isWhitespace(c)) {
+      read();
+      c = peek();
+    }
+    return c;
+  }
+
+  private int read() throws IOException {
+    if (position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position++];
+  }
+
+  private int peek() throws IOException {
+    if (position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position];
+  }
+
+  private boolean fill() throws IOException {
+    consumed += limit;
+    position = 0;
+    limit = 0;
+    int count = in.read(buffer, 0, buffer.length);
+    if (count <= 0) {
+      return false;
+    }
+    limit = count;
+    return true;
+  }
+
+  private MalformedJsonException syntaxError(String message) {
+    return new MalformedJsonException(message + " at character " + (consumed + position));
+  }
+
+  /**
+   * Signals input that is not valid task JSON, as opposed to a failure of the underlying stream.
+   */
+  static class MalformedJsonException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    MalformedJsonException(String message) {
+      super(message);
+    }
+  }
+}
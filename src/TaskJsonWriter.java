@@ -0,0 +1,280 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Streaming writer for the JSON task array read by {@link TaskJsonReader}. Every task is
+ * serialized into one reused builder and copied to the underlying writer from there, so saving a
+ * list allocates nothing per task and never holds more than one task's text at a time.
+ *
+ * <p>The output is identical to what {@link Task#toJson()} has always produced, except that every
+ * JSON control character in a description is now escaped, not only quotes and backslashes.
+ */
+public class TaskJsonWriter {
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  // Tasks serialized together by one thread of writeTasksParallel
+  private static final int SLICE_TASKS = 8192;
+  private static final int SLICES_PER_THREAD = 2;
+
+  private final Writer out;
+  // Scratch space reused for every task
+  private final StringBuilder text = new StringBuilder(256);
+  private char[] chars = new char[256];
+
+  /**
+   * Creates a writer over the given character stream. The stream should be buffered, since each
+   * task is passed on in a single write.
+   *
+   * @param out The destination of the JSON text.
+   */
+  public TaskJsonWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Writes the tasks as a single JSON array. The stream is left open.
+   *
+   * @param tasks The tasks to write, in order.
+   * @return The byte offset of each task's object in UTF-8, counted from the start of the array.
+   */
+  public long[] writeTasks(java.util.Collection<Task> tasks) throws IOException {
+    long[] offsets = new long[tasks.size()];
+    long offset = 1;
+    int record = 0;
+    out.write('[');
+    for (Task task : tasks) {
+      // Separate from the previous task
+      if (record > 0) {
+        out.write(',');
+        offset++;
+      }
+      offsets[record++] = offset;
+      offset += write(task);
+    }
+    out.write(']');
+    return offsets;
+  }
+
+  /**
+   * Writes the tasks as a single JSON array, byte for byte as {@link #writeTasks} does, from
+   * several threads: slices of the list are serialized on the pool into UTF-8 buffers of their
+   * own, and each round of slices is written with one gathering write while the next round is
+   * being serialized, so at most two rounds are held in memory.
+   *
+   * @param channel The file to write, positioned at its start.
+   * @param tasks The tasks to write, in order.
+   * @param pool The pool that serializes the slices.
+   * @return The byte offset of each task's object, counted from the start of the array.
+   */
+  static long[] writeTasksParallel(FileChannel channel, Task[] tasks, ForkJoinPool pool)
+      throws IOException {
+    long[] offsets = new long[tasks.length];
+    int sliceCount = (tasks.length + SLICE_TASKS - 1) / SLICE_TASKS;
+    int roundSlices = Math.max(1, pool.getParallelism() * SLICES_PER_THREAD);
+    long offset = 1;
+    writeFully(channel, ByteBuffer.wrap(new byte[] {'['}));
+
+    List<Future<Slice>> round = submitRound(tasks, 0, roundSlices, pool);
+    for (int first = 0; first < sliceCount; first += roundSlices) {
+      List<Future<Slice>> next = submitRound(tasks, first + roundSlices, roundSlices, pool);
+      ByteBuffer[] buffers = new ByteBuffer[round.size()];
+      for (int i = 0; i < buffers.length; i++) {
+        Slice slice = join(round.get(i));
+        int from = (first + i) * SLICE_TASKS;
+        for (int j = 0; j < slice.offsets.length; j++) {
+          offsets[from + j] = offset + slice.offsets[j];
+        }
+        offset += slice.bytes.length;
+        buffers[i] = ByteBuffer.wrap(slice.bytes);
+      }
+      writeFully(channel, buffers);
+      round = next;
+    }
+
+    writeFully(channel, ByteBuffer.wrap(new byte[] {']'}));
+    return offsets;
+  }
+
+  /**
+   * Starts serializing a round of slices.
+   *
+   * @return The pending slices, empty past the end of the list.
+   */
+  private static List<Future<Slice>> submitRound(Task[] tasks, int firstSlice, int slices,
+      ForkJoinPool pool) {
+    List<Future<Slice>> round = new ArrayList<>(slices);
+    for (int i = firstSlice; i < firstSlice + slices && (long) i * SLICE_TASKS < tasks.length;
+        i++) {
+      int from = i * SLICE_TASKS;
+      int to = Math.min(tasks.length, from + SLICE_TASKS);
+      round.add(pool.submit(() -> serialize(tasks, from, to)));
+    }
+    return round;
+  }
+
+  /**
+   * Serializes the tasks of one slice, each preceded by a comma unless it opens the array.
+   */
+  private static Slice serialize(Task[] tasks, int from, int to) {
+    StringBuilder text = new StringBuilder((to - from) * 160);
+    int[] offsets = new int[to - from];
+    int bytes = 0;
+    int counted = 0;
+    for (int i = from; i < to; i++) {
+      if (i > 0) {
+        text.append(',');
+      }
+      bytes += utf8Length(text, counted, text.length());
+      counted = text.length();
+      offsets[i - from] = bytes;
+      appendTask(text, tasks[i]);
+    }
+    return new Slice(text.toString().getBytes(StandardCharsets.UTF_8), offsets);
+  }
+
+  private static Slice join(Future<Slice> slice) throws IOException {
+    try {
+      return slice.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IOException("Error serializing tasks: " + e.getCause(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new java.io.InterruptedIOException("Interrupted while saving tasks");
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer... buffers) throws IOException {
+    ByteBuffer last = buffers[buffers.length - 1];
+    while (last.hasRemaining()) {
+      channel.write(buffers);
+    }
+  }
+
+  /**
+   * The UTF-8 text of a slice of tasks and the offset of each task's object in it.
+   */
+  private static final class Slice {
+    final byte[] bytes;
+    final int[] offsets;
+
+    Slice(byte[] bytes, int[] offsets) {
+      this.bytes = bytes;
+      this.offsets = offsets;
+    }
+  }
+
+  /**
+   * Writes a single task object.
+   *
+   * @param task The task to write.
+   * @return The length of the object in UTF-8 bytes.
+   */
+  public int write(Task task) throws IOException {
+    text.setLength(0);
+    appendTask(text, task);
+    int length = text.length();
+    if (chars.length < length) {
+      chars = new char[Math.max(length, chars.length * 2)];
+    }
+    text.getChars(0, length, chars, 0);
+    out.write(chars, 0, length);
+    return utf8Length(text, 0, length);
+  }
+
+  /**
+   * Appends the JSON object of a task to a builder.
+   *
+   * @param out The builder to append to.
+   * @param task The task to serialize.
+   * @return The same builder.
+   */
+  public static StringBuilder appendTask(StringBuilder out, Task task) {
+    out.append("{\"id\":").append(task.getId());
+    out.append(",\"description\":\"");
+    appendEscaped(out, task.getDescription());
+    out.append("\",\"status\":\"").append(task.getStatus().name());
+    out.append("\",\"createdAt\":\"");
+    task.appendCreatedAt(out);
+    out.append("\",\"updatedAt\":\"");
+    task.appendUpdatedAt(out);
+    return out.append("\"}");
+  }
+
+  /**
+   * Appends a string's characters with JSON escaping: quotes, backslashes and every control
+   * character below U+0020.
+   */
+  private static void appendEscaped(StringBuilder out, String value) {
+    int length = value.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\') {
+        continue;
+      }
+      // Copy the run of plain characters before the one that needs escaping
+      out.append(value, start, i);
+      start = i + 1;
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\b':
+          out.append("\\b");
+          break;
+        case '\f':
+          out.append("\\f");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+      }
+    }
+    out.append(value, start, length);
+  }
+
+  /**
+   * Counts the bytes a range of characters takes in UTF-8 without encoding it.
+   */
+  private static int utf8Length(CharSequence chars, int start, int end) {
+    int bytes = 0;
+    for (int i = start; i < end; i++) {
+      char c = chars.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < end
+          && Character.isLowSurrogate(chars.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else {
+        // Unpaired surrogates are written as '?'
+        bytes += Character.isSurrogate(c) ? 1 : 3;
+      }
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,277 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only write-ahead log of task mutations. Each change is written as one record at the end of
+ * the log instead of rewriting the whole task file:
+ *
+ * <pre>
+ * +{"id":3,"description":"...",...}   a task was added or changed (full task JSON)
+ * -3                                  the task with ID 3 was deleted
+ * </pre>
+ *
+ * Records are idempotent, so replaying a log on top of a snapshot that already contains some of
+ * its changes yields the same state.
+ */
+public class TaskLog {
+
+  private static final byte[] PUT_PREFIX = "+{\"id\":".getBytes(StandardCharsets.UTF_8);
+
+  private final Path path;
+  private final boolean fsync;
+
+  /**
+   * Creates a log stored at the given path.
+   *
+   * @param path The log file.
+   * @param fsync Whether every append is forced to disk before returning.
+   */
+  public TaskLog(Path path, boolean fsync) {
+    this.path = path;
+    this.fsync = fsync;
+  }
+
+  /**
+   * Appends a record stating that a task was added or changed.
+   *
+   * @param task The task in its new state.
+   * @return The size of the log after the append, in bytes.
+   */
+  public long appendPut(Task task) throws IOException {
+    StringBuilder record = new StringBuilder(128).append('+');
+    return append(TaskJsonWriter.appendTask(record, task).append('\n').toString());
+  }
+
+  /**
+   * Appends a record stating that a task was deleted.
+   *
+   * @param id The ID of the deleted task.
+   * @return The size of the log after the append, in bytes.
+   */
+  public long appendDelete(int id) throws IOException {
+    return append("-" + id + "\n");
+  }
+
+  /**
+   * Appends the records of several changes in order with a single write, so with fsync they are
+   * forced to disk together.
+   *
+   * @param changes The changes to append.
+   * @return The size of the log after the append, in bytes.
+   */
+  long appendAll(java.util.List<TaskChange> changes) throws IOException {
+    StringBuilder records = new StringBuilder(changes.size() * 160);
+    for (TaskChange change : changes) {
+      if (change.isDelete()) {
+        records.append('-').append(change.getId()).append('\n');
+      } else {
+        TaskJsonWriter.appendTask(records.append('+'), change.getTask()).append('\n');
+      }
+    }
+    return append(records.toString());
+  }
+
+  /**
+   * Applies every record in the log to the given tasks, keyed by ID.
+   *
+   * @param tasks The tasks from the snapshot, updated in place.
+   * @return False if the log ends with an incomplete record (e.g. after a crash during an append),
+   *         in which case every complete record before it has still been applied.
+   */
+  public boolean replay(TaskRepository tasks) throws IOException {
+    return replay(tasks::add, tasks::remove);
+  }
+
+  /**
+   * Applies every record in the log through the given callbacks, for stores other than a
+   * {@link TaskRepository}.
+   *
+   * @param put Receives every added or changed task.
+   * @param delete Receives the ID of every deleted task.
+   * @return False if the log ends with an incomplete record, as for
+   *         {@link #replay(TaskRepository)}.
+   */
+  boolean replay(java.util.function.Consumer<Task> put, java.util.function.IntConsumer delete)
+      throws IOException {
+    if (!Files.exists(path)) {
+      return true;
+    }
+
+    try (TaskJsonReader reader = new TaskJsonReader(Files.newBufferedReader(path))) {
+      int operation;
+      while ((operation = reader.nextSymbol()) != -1) {
+        if (operation == '+') {
+          Task task = null;
+          try {
+            task = reader.readTask();
+          } catch (IllegalArgumentException e) {
+            System.err.println("Error parsing task log record: " + e.getMessage());
+          }
+          endRecord(reader);
+          if (task != null) {
+            put.accept(task);
+          }
+        } else if (operation == '-') {
+          int id = reader.readInt();
+          endRecord(reader);
+          delete.accept(id);
+        } else {
+          throw new TaskJsonReader.MalformedJsonException(
+              "Unknown log record type '" + (char) operation + "'");
+        }
+      }
+      return true;
+    } catch (TaskJsonReader.MalformedJsonException e) {
+      System.err.println("Ignoring the rest of the task log: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Applies only the records of one task, for a lookup that does not load the others. Records are
+   * picked out by the ID at their start, which is where {@link #appendPut} and
+   * {@link #appendDelete} put it, and only the matching ones are parsed.
+   *
+   * @param id The ID of the task.
+   * @param tasks Holds the task as stored in the snapshot, if it is there; updated in place.
+   * @return False if the log ends with an incomplete record or holds a record this class would not
+   *         have written, in which case the whole log has to be replayed instead.
+   */
+  boolean replay(int id, TaskRepository tasks) throws IOException {
+    return replay(new int[] {id}, tasks);
+  }
+
+  /**
+   * Applies only the records of the given tasks, like {@link #replay(int, TaskRepository)}.
+   *
+   * @param ids The IDs of the tasks, in ascending order.
+   * @param tasks Holds those of the tasks stored in the snapshot; updated in place.
+   * @return False if the log ends with an incomplete record or holds a record this class would not
+   *         have written, in which case the whole log has to be replayed instead.
+   */
+  boolean replay(int[] ids, TaskRepository tasks) throws IOException {
+    if (!Files.exists(path)) {
+      return true;
+    }
+
+    byte[] log = Files.readAllBytes(path);
+    int start = 0;
+    while (start < log.length) {
+      int end = start;
+      while (end < log.length && log[end] != '\n') {
+        end++;
+      }
+      boolean put = startsWith(log, start, PUT_PREFIX);
+      if (end == log.length || !put && log[start] != '-') {
+        return false;
+      }
+      int idStart = put ? start + PUT_PREFIX.length : start + 1;
+      int idEnd = idStart;
+      long id = 0;
+      while (idEnd < end && idEnd - idStart < 10 && log[idEnd] >= '0' && log[idEnd] <= '9') {
+        id = id * 10 + log[idEnd++] - '0';
+      }
+      // An ID ends at the comma of a put record and at the end of a delete record
+      boolean complete = idEnd > idStart && (put ? log[idEnd] == ',' : idEnd == end);
+      if (complete && id <= Integer.MAX_VALUE
+          && java.util.Arrays.binarySearch(ids, (int) id) >= 0) {
+        if (put) {
+          String record = new String(log, start + 1, end - start - 1, StandardCharsets.UTF_8);
+          try (TaskJsonReader reader = new TaskJsonReader(new java.io.StringReader(record))) {
+            tasks.add(reader.readTask());
+          } catch (TaskJsonReader.MalformedJsonException | IllegalArgumentException e) {
+            return false;
+          }
+        } else {
+          tasks.remove((int) id);
+        }
+      }
+      start = end + 1;
+    }
+    return true;
+  }
+
+  private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+    if (bytes.length - offset < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the current size of the log.
+   *
+   * @return The size in bytes, or 0 if the log does not exist.
+   */
+  public long size() throws IOException {
+    return Files.exists(path) ? Files.size(path) : 0;
+  }
+
+  /**
+   * Checks that the log is empty or ends with a newline, so a record appended now is not glued to
+   * a torn one and skipped along with it by {@link #replay}.
+   *
+   * @return True if records can be appended without reading the log first.
+   */
+  boolean endsWithCompleteRecord() throws IOException {
+    if (!Files.exists(path)) {
+      return true;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size == 0) {
+        return true;
+      }
+      ByteBuffer last = ByteBuffer.allocate(1);
+      return channel.read(last, size - 1) == 1 && last.get(0) == '\n';
+    }
+  }
+
+  /**
+   * Empties the log, typically right after its records have been folded into a snapshot.
+   */
+  public void clear() throws IOException {
+    if (Files.exists(path)) {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        channel.truncate(0);
+        if (fsync) {
+          channel.force(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that a record is terminated by its newline. A missing newline means the append was
+   * interrupted, and the record must not be applied (a torn "-12" would otherwise delete task 1).
+   */
+  private static void endRecord(TaskJsonReader reader) throws IOException {
+    if (reader.nextChar() != '\n') {
+      throw new TaskJsonReader.MalformedJsonException("Incomplete log record");
+    }
+  }
+
+  private long append(String record) throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap(record.getBytes(StandardCharsets.UTF_8));
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      if (fsync) {
+        channel.force(false);
+      }
+      return channel.size();
+    }
+  }
+}
@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects one page of a listing, such as {@code list --sort=-created --offset=20 --limit=10}, from
+ * the tasks fed to it. Only the tasks that can still end up on the page are kept: in the order they
+ * arrive, those between the offset and the end of the page, and when sorted, the offset plus limit
+ * smallest ones in a bounded heap, so picking the top k of n tasks takes O(n log k) time and O(k)
+ * memory instead of sorting them all.
+ */
+final class TaskPage implements Consumer<Task> {
+
+  private final Comparator<Task> order;
+  private final int offset;
+  private final int limit;
+  // Number of tasks the page is taken from: the offset plus the limit, at most
+  private final long keep;
+  private final List<Task> rows = new ArrayList<>();
+  // Binary max-heap of the kept tasks: the largest on top, so it is the one a smaller newcomer
+  // replaces; null when the tasks are not sorted or not limited
+  private Task[] heap;
+  private int heapSize;
+  private int matched;
+
+  /**
+   * Creates an empty page.
+   *
+   * @param order The order of the listing, or null for the order in which the tasks arrive.
+   * @param offset The number of tasks to skip.
+   * @param limit The number of tasks on the page, or {@link Integer#MAX_VALUE} for all the rest.
+   */
+  TaskPage(Comparator<Task> order, int offset, int limit) {
+    this.order = order;
+    this.offset = offset;
+    this.limit = limit;
+    this.keep = limit == Integer.MAX_VALUE ? Long.MAX_VALUE : (long) offset + limit;
+    this.heap = order == null || keep == Long.MAX_VALUE
+        ? null : new Task[(int) Math.min(keep, 1024)];
+  }
+
+  /**
+   * Parses a sort order given on the command line.
+   *
+   * @param field One of "id", "created", "updated", "status" or "description", preceded by "-" for
+   *        descending order. Descriptions are compared ignoring case, and ties are broken by ID.
+   * @return The order.
+   * @throws IllegalArgumentException if the field is unknown.
+   */
+  static Comparator<Task> parseOrder(String field) {
+    boolean descending = field.startsWith("-");
+    Comparator<Task> order;
+    switch (descending ? field.substring(1) : field) {
+      case "id":
+        order = Comparator.comparingInt(Task::getId);
+        break;
+      case "created":
+        // Ties include times outside the range of the longs, which only the exact times order
+        order = Comparator.comparingLong(Task::getCreatedAtNanos)
+            .thenComparing(Task::getCreatedAt);
+        break;
+      case "updated":
+        order = Comparator.comparingLong(Task::getUpdatedAtNanos)
+            .thenComparing(Task::getUpdatedAt);
+        break;
+      case "status":
+        order = Comparator.comparing(Task::getStatus);
+        break;
+      case "description":
+        order = Comparator.comparing(Task::getDescription, String.CASE_INSENSITIVE_ORDER);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown sort field: " + field
+            + " (use id, created, updated, status or description, with - for descending).");
+    }
+    return (descending ? order.reversed() : order).thenComparingInt(Task::getId);
+  }
+
+  @Override
+  public void accept(Task task) {
+    int position = matched++;
+    if (heap != null) {
+      if (heapSize < keep) {
+        if (heapSize == heap.length) {
+          heap = Arrays.copyOf(heap, (int) Math.min(keep, 2L * heap.length));
+        }
+        siftUp(heapSize++, task);
+      } else if (order.compare(task, heap[0]) < 0) {
+        siftDown(0, task);
+      }
+    } else if (order != null || position >= offset && position < keep) {
+      rows.add(task);
+    }
+  }
+
+  /**
+   * Gets the number of tasks fed to the page, on it or not.
+   *
+   * @return The number of matching tasks.
+   */
+  int matched() {
+    return matched;
+  }
+
+  /**
+   * Gets the tasks on the page, once all tasks have been fed to it.
+   *
+   * @return The tasks in the order of the listing.
+   */
+  List<Task> rows() {
+    if (order == null) {
+      return rows;
+    }
+    Task[] sorted = heap != null ? Arrays.copyOf(heap, heapSize) : rows.toArray(new Task[0]);
+    Arrays.sort(sorted, order);
+    List<Task> all = Arrays.asList(sorted);
+    return all.subList(Math.min(offset, sorted.length),
+        (int) Math.min(sorted.length, (long) offset + limit));
+  }
+
+  /**
+   * Places a task at a free position of the heap and moves it up past every smaller parent.
+   */
+  private void siftUp(int position, Task task) {
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (order.compare(task, heap[parent]) <= 0) {
+        break;
+      }
+      heap[position] = heap[parent];
+      position = parent;
+    }
+    heap[position] = task;
+  }
+
+  /**
+   * Replaces the task at a position of the heap and moves the new one down past every larger child.
+   */
+  private void siftDown(int position, Task task) {
+    int half = heapSize >>> 1;
+    while (position < half) {
+      int child = 2 * position + 1;
+      if (child + 1 < heapSize && order.compare(heap[child + 1], heap[child]) > 0) {
+        child++;
+      }
+      if (order.compare(task, heap[child]) >= 0) {
+        break;
+      }
+      heap[position] = heap[child];
+      position = child;
+    }
+    heap[position] = task;
+  }
+}
@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A search over task descriptions, as typed after the {@code search} command. Descriptions and
+ * queries are split into the same terms by {@link #terms(String)}: runs of letters and digits, in
+ * lower case. Words in a row must all occur (AND), the word {@code OR} starts an alternative, and
+ * a word ending in {@code *} matches every term starting with it, so
+ * {@code search report urgent OR draft*} finds tasks with both "report" and "urgent" in their
+ * description, or any word starting with "draft".
+ */
+public final class TaskQuery {
+
+  // Alternatives, each a list of terms that must all match
+  private final List<List<Term>> clauses;
+  private final String text;
+
+  private TaskQuery(List<List<Term>> clauses, String text) {
+    this.clauses = clauses;
+    this.text = text;
+  }
+
+  /**
+   * One word of a query.
+   */
+  static final class Term {
+    final String text;
+    // Whether the word matches every term starting with it
+    final boolean prefix;
+
+    Term(String text, boolean prefix) {
+      this.text = text;
+      this.prefix = prefix;
+    }
+  }
+
+  /**
+   * Parses the words of a query.
+   *
+   * @param words The words, e.g. the arguments after {@code search}.
+   * @return The query.
+   * @throws IllegalArgumentException if the query or one of its alternatives has no terms.
+   */
+  public static TaskQuery parse(String... words) {
+    List<List<Term>> clauses = new ArrayList<>();
+    List<Term> clause = new ArrayList<>();
+    for (String word : words) {
+      if (word.equals("OR")) {
+        addClause(clauses, clause);
+        clause = new ArrayList<>();
+        continue;
+      }
+      boolean prefix = word.endsWith("*");
+      List<String> terms = termList(prefix ? word.substring(0, word.length() - 1) : word);
+      for (int i = 0; i < terms.size(); i++) {
+        // Only the end of the word is open, as in "e-mail*"
+        clause.add(new Term(terms.get(i), prefix && i == terms.size() - 1));
+      }
+    }
+    addClause(clauses, clause);
+    return new TaskQuery(clauses, String.join(" ", words));
+  }
+
+  private static void addClause(List<List<Term>> clauses, List<Term> clause) {
+    if (clause.isEmpty()) {
+      throw new IllegalArgumentException("Please provide words to search for.");
+    }
+    clauses.add(clause);
+  }
+
+  /**
+   * Splits a description into its distinct terms.
+   *
+   * @param description The description.
+   * @return The terms in lower case, in the order they first occur.
+   */
+  public static Set<String> terms(String description) {
+    return new LinkedHashSet<>(termList(description));
+  }
+
+  private static List<String> termList(String text) {
+    List<String> terms = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); ) {
+      int c = i < text.length() ? text.codePointAt(i) : ' ';
+      if (Character.isLetterOrDigit(c)) {
+        if (start < 0) {
+          start = i;
+        }
+      } else if (start >= 0) {
+        terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+      i += Character.charCount(c);
+    }
+    return terms;
+  }
+
+  /**
+   * Gets the alternatives of the query.
+   *
+   * @return Lists of terms that must all match, at least one list of them.
+   */
+  List<List<Term>> clauses() {
+    return clauses;
+  }
+
+  /**
+   * Checks whether a task's description matches the query, for tasks that are not in an index.
+   *
+   * @param task The task.
+   * @return True if the description matches.
+   */
+  public boolean matches(Task task) {
+    return matches(new HashSet<>(termList(task.getDescription())));
+  }
+
+  /**
+   * Checks whether a description with the given terms matches the query.
+   *
+   * @param terms The distinct terms of the description.
+   * @return True if every term of at least one alternative matches one of them.
+   */
+  boolean matches(Collection<String> terms) {
+    for (List<Term> clause : clauses) {
+      boolean all = true;
+      for (Term term : clause) {
+        if (term.prefix ? !anyStartsWith(terms, term.text) : !terms.contains(term.text)) {
+          all = false;
+          break;
+        }
+      }
+      if (all) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean anyStartsWith(Collection<String> terms, String prefix) {
+    for (String term : terms) {
+      if (term.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+}
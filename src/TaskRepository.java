@@ -0,0 +1,291 @@
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * In-memory store of the tasks, kept in their original order and indexed by ID. Lookups and
+ * deletions by ID are O(1): an {@link IntIntMap} maps each ID to the task's slot, and a deleted
+ * task simply leaves an empty slot behind that is skipped during iteration. Once more than half
+ * of the slots are empty they are compacted away, which keeps the cost amortized O(1).
+ *
+ * <p>The IDs of the tasks in each status are also kept in a bit set, so listing one status only
+ * touches the matching tasks. Status changes must therefore go through
+ * {@link #setStatus(Task, Task.Status)} rather than {@link Task#setStatus(Task.Status)}.
+ */
+public class TaskRepository extends AbstractCollection<Task> {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private Task[] slots;
+  // Slots in use, including empty ones left by deletions; always ends with a task
+  private int end;
+  private int size;
+  private final IntIntMap slotsById;
+  private final EnumMap<Task.Status, BitSet> idsByStatus = new EnumMap<>(Task.Status.class);
+  // ID for the next new task; never lowered, so IDs of deleted tasks are not handed out again
+  private int nextId = 1;
+  // True if only some of the stored tasks were loaded into this repository
+  private boolean partial;
+
+  /**
+   * Creates an empty repository.
+   */
+  public TaskRepository() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Creates an empty repository that can hold the given number of tasks without resizing.
+   *
+   * @param expectedSize The number of tasks expected.
+   */
+  public TaskRepository(int expectedSize) {
+    slots = new Task[Math.max(MIN_CAPACITY, expectedSize)];
+    slotsById = new IntIntMap(expectedSize);
+    for (Task.Status status : Task.Status.values()) {
+      idsByStatus.put(status, new BitSet());
+    }
+  }
+
+  /**
+   * Adds a task at the end, or replaces the task with the same ID in place.
+   *
+   * @param task The task to store.
+   * @return Always true.
+   */
+  @Override
+  public boolean add(Task task) {
+    int slot = slotsById.get(task.getId());
+    if (slot != IntIntMap.MISSING) {
+      idsByStatus.get(slots[slot].getStatus()).clear(task.getId());
+      idsByStatus.get(task.getStatus()).set(task.getId());
+      slots[slot] = task;
+      return true;
+    }
+
+    if (end == slots.length) {
+      slots = Arrays.copyOf(slots, slots.length * 2);
+    }
+    slots[end] = task;
+    slotsById.put(task.getId(), end);
+    nextId = Math.max(nextId, task.getId() + 1);
+    idsByStatus.get(task.getStatus()).set(task.getId());
+    end++;
+    size++;
+    return true;
+  }
+
+  /**
+   * Replaces every task with those of another repository, e.g. with the tasks loaded again after
+   * another process changed them. The ID for the next new task is never lowered.
+   *
+   * @param other The repository whose tasks to hold from now on; the tasks are shared, not copied.
+   */
+  public void replaceWith(TaskRepository other) {
+    Arrays.fill(slots, 0, end, null);
+    end = 0;
+    size = 0;
+    slotsById.clear();
+    for (BitSet ids : idsByStatus.values()) {
+      ids.clear();
+    }
+    for (Task task : other) {
+      add(task);
+    }
+    nextId = Math.max(nextId, other.nextId);
+    partial = other.partial;
+  }
+
+  /**
+   * Finds a task by its ID.
+   *
+   * @param id The task ID.
+   * @return The task, or null if there is no task with that ID.
+   */
+  public Task get(int id) {
+    int slot = slotsById.get(id);
+    return slot == IntIntMap.MISSING ? null : slots[slot];
+  }
+
+  /**
+   * Removes a task by its ID.
+   *
+   * @param id The task ID.
+   * @return The removed task, or null if there was no task with that ID.
+   */
+  public Task remove(int id) {
+    int slot = slotsById.remove(id);
+    if (slot == IntIntMap.MISSING) {
+      return null;
+    }
+
+    Task removed = slots[slot];
+    slots[slot] = null;
+    idsByStatus.get(removed.getStatus()).clear(id);
+    size--;
+
+    // Drop empty slots at the end so the last task is always at end - 1
+    while (end > 0 && slots[end - 1] == null) {
+      end--;
+    }
+    if (end - size > size) {
+      compact();
+    }
+    return removed;
+  }
+
+  /**
+   * Changes the status of a task held by this repository, keeping the status index up to date.
+   *
+   * @param task The task to change.
+   * @param status The new status (cannot be null).
+   */
+  public void setStatus(Task task, Task.Status status) {
+    BitSet previous = idsByStatus.get(task.getStatus());
+    task.setStatus(status);
+    previous.clear(task.getId());
+    idsByStatus.get(status).set(task.getId());
+  }
+
+  /**
+   * Feeds the tasks with the given status to the consumer, in ID order, touching no other task.
+   *
+   * @param status The status to select, or null for every task in list order.
+   * @param consumer Receives the selected tasks.
+   * @return The total number of tasks, selected or not.
+   */
+  public int forEachTask(Task.Status status, Consumer<Task> consumer) {
+    if (status == null) {
+      forEach(consumer);
+      return size;
+    }
+    BitSet ids = idsByStatus.get(status);
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      consumer.accept(get(id));
+    }
+    return size;
+  }
+
+  /**
+   * Feeds the tasks selected by a filter to the consumer, using the status index for the status and
+   * checking the time ranges on each task of that status.
+   *
+   * @param filter The status and time ranges to select.
+   * @param consumer Receives the selected tasks.
+   * @return The total number of tasks, selected or not.
+   */
+  public int forEachTask(TaskFilter filter, Consumer<Task> consumer) {
+    if (!filter.hasTimeRange()) {
+      return forEachTask(filter.getStatus(), consumer);
+    }
+    return forEachTask(filter.getStatus(), task -> {
+      if (filter.matches(task)) {
+        consumer.accept(task);
+      }
+    });
+  }
+
+  /**
+   * Gets the ID for the next new task: above every ID this repository has held, and at least the
+   * value set by {@link #advanceNextId(int)}.
+   *
+   * @return The next unused task ID.
+   */
+  public int nextId() {
+    return nextId;
+  }
+
+  /**
+   * Raises the ID for the next new task, e.g. to the persisted sequence of the task files, so IDs
+   * of tasks deleted before the repository was loaded are not reused either.
+   *
+   * @param id The lowest ID the next new task may get.
+   */
+  public void advanceNextId(int id) {
+    nextId = Math.max(nextId, id);
+  }
+
+  /**
+   * Gets whether the repository holds only the tasks a command asked for rather than all stored
+   * ones, see {@link FileHandler#loadTask(int)}. Such a repository must never be saved as the full
+   * list.
+   *
+   * @return True if other tasks exist that were not loaded.
+   */
+  public boolean isPartial() {
+    return partial;
+  }
+
+  /**
+   * Marks the repository as holding only some of the stored tasks.
+   */
+  void markPartial() {
+    partial = true;
+  }
+
+  /**
+   * Gets the task that was added last among the remaining tasks.
+   *
+   * @return The last task, or null if the repository is empty.
+   */
+  public Task last() {
+    return end == 0 ? null : slots[end - 1];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<Task> iterator() {
+    return new Iterator<Task>() {
+      private int next = skipEmpty(0);
+
+      @Override
+      public boolean hasNext() {
+        return next < end;
+      }
+
+      @Override
+      public Task next() {
+        if (next >= end) {
+          throw new NoSuchElementException();
+        }
+        Task task = slots[next];
+        next = skipEmpty(next + 1);
+        return task;
+      }
+    };
+  }
+
+  private int skipEmpty(int slot) {
+    while (slot < end && slots[slot] == null) {
+      slot++;
+    }
+    return slot;
+  }
+
+  /**
+   * Moves the tasks together, closing the empty slots, and updates their indexed positions.
+   */
+  private void compact() {
+    int target = 0;
+    for (int slot = 0; slot < end; slot++) {
+      Task task = slots[slot];
+      if (task != null) {
+        if (target != slot) {
+          slots[target] = task;
+          slotsById.put(task.getId(), target);
+        }
+        target++;
+      }
+    }
+    Arrays.fill(slots, target, end, null);
+    end = target;
+  }
+}
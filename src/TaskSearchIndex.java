@@ -0,0 +1,467 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index over task descriptions for the {@code search} command, kept in two files next to
+ * the task file: a segment (data/tasks.terms) mapping every term of {@link TaskQuery#terms} to the
+ * ascending IDs of the tasks that contain it, built from the whole list at once, and a log
+ * (data/tasks.terms.log) of the tasks added, changed or deleted since, appended to on every change
+ * like the {@link TaskLog}:
+ *
+ * <pre>
+ * segment:  "TTRM" magic, 1 byte format version, int term count,
+ *           int[count + 1] start of each term in the term bytes,
+ *           long[count + 1] start of each term's postings in the postings,
+ *           the terms in sorted order as UTF-8, the postings
+ * postings: varint ID count, varint first ID, varint gaps to each following ID
+ * log:      "+12 term term ..." (a task and its new terms) or "-12" (a deleted task), one per line
+ * </pre>
+ *
+ * The segment is memory-mapped and its terms found by binary search, so a query decodes only the
+ * postings of its own terms. Which version of the task files the index reflects is recorded by
+ * {@link FileHandler} in the lock file, so an index that missed a change is rebuilt, not used.
+ */
+final class TaskSearchIndex {
+
+  private static final byte[] MAGIC = {'T', 'T', 'R', 'M'};
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = MAGIC.length + 1 + Integer.BYTES;
+  private static final int[] NO_IDS = new int[0];
+
+  private final Path segmentPath;
+  private final Path logPath;
+  private final boolean fsync;
+
+  /**
+   * Creates an index stored at the given paths.
+   *
+   * @param segmentPath The segment file.
+   * @param logPath The log of changes since the segment was written.
+   * @param fsync Whether every append to the log is forced to disk before returning.
+   */
+  TaskSearchIndex(Path segmentPath, Path logPath, boolean fsync) {
+    this.segmentPath = segmentPath;
+    this.logPath = logPath;
+    this.fsync = fsync;
+  }
+
+  /**
+   * Gets the file the segment is stored in, for replacing it with {@link #write}.
+   *
+   * @return The segment file.
+   */
+  Path segmentPath() {
+    return segmentPath;
+  }
+
+  /**
+   * Writes a segment holding the given tasks.
+   *
+   * @param path The file to write.
+   * @param tasks The tasks, each ID at most once.
+   */
+  static void write(Path path, Collection<Task> tasks) throws IOException {
+    // Number the terms as they are first seen, and pair each with the IDs of its tasks
+    Map<String, Integer> termNumbers = new HashMap<>();
+    List<String> terms = new ArrayList<>();
+    long[] pairs = new long[Math.max(16, tasks.size() * 4)];
+    int pairCount = 0;
+    for (Task task : tasks) {
+      for (String term : TaskQuery.terms(task.getDescription())) {
+        Integer number = termNumbers.putIfAbsent(term, terms.size());
+        if (number == null) {
+          number = terms.size();
+          terms.add(term);
+        }
+        if (pairCount == pairs.length) {
+          pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[pairCount++] = (long) number << 32 | task.getId();
+      }
+    }
+
+    // Renumber the terms in sorted order, so sorting the pairs groups them by term and ID
+    String[] sorted = terms.toArray(new String[0]);
+    Arrays.sort(sorted);
+    int[] rank = new int[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      rank[termNumbers.get(sorted[i])] = i;
+    }
+    for (int i = 0; i < pairCount; i++) {
+      pairs[i] = (long) rank[(int) (pairs[i] >>> 32)] << 32 | (pairs[i] & 0xFFFFFFFFL);
+    }
+    Arrays.sort(pairs, 0, pairCount);
+
+    int[] termStarts = new int[sorted.length + 1];
+    byte[][] termBytes = new byte[sorted.length][];
+    long[] postingStarts = new long[sorted.length + 1];
+    ByteBuffer postings = ByteBuffer.allocate(Math.max(64, pairCount * 2));
+    int pair = 0;
+    for (int term = 0; term < sorted.length; term++) {
+      termBytes[term] = sorted[term].getBytes(StandardCharsets.UTF_8);
+      termStarts[term + 1] = termStarts[term] + termBytes[term].length;
+      int end = pair;
+      while (end < pairCount && (int) (pairs[end] >>> 32) == term) {
+        end++;
+      }
+      postings = ensureRemaining(postings, 5 * (end - pair + 1));
+      putVarint(postings, end - pair);
+      int previous = 0;
+      for (; pair < end; pair++) {
+        int id = (int) pairs[pair];
+        putVarint(postings, id - previous);
+        previous = id;
+      }
+      postingStarts[term + 1] = postings.position();
+    }
+
+    long size = HEADER_SIZE + (long) Integer.BYTES * termStarts.length
+        + (long) Long.BYTES * postingStarts.length + termStarts[sorted.length]
+        + postings.position();
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Search index too large: " + size + " bytes");
+    }
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024))) {
+      out.write(MAGIC);
+      out.writeByte(VERSION);
+      out.writeInt(sorted.length);
+      for (int start : termStarts) {
+        out.writeInt(start);
+      }
+      for (long start : postingStarts) {
+        out.writeLong(start);
+      }
+      for (byte[] bytes : termBytes) {
+        out.write(bytes);
+      }
+      out.write(postings.array(), 0, postings.position());
+    }
+  }
+
+  /**
+   * Finds the tasks whose descriptions match a query: the tasks in the segment's postings for the
+   * query's terms, except those the log changed or deleted since, which are matched against their
+   * new terms instead.
+   *
+   * @param query The query.
+   * @return The IDs of the matching tasks, in ascending order.
+   * @throws IOException if the segment cannot be read or is damaged.
+   */
+  int[] search(TaskQuery query) throws IOException {
+    int[] ids = NO_IDS;
+    try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+      Segment segment = new Segment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      for (List<TaskQuery.Term> clause : query.clauses()) {
+        ids = union(ids, segment.match(clause));
+      }
+    } catch (RuntimeException e) {
+      throw new IOException("Damaged search index: " + e, e);
+    }
+
+    Map<Integer, Set<String>> changed = readLog();
+    if (changed.isEmpty()) {
+      return ids;
+    }
+    int[] matches = new int[ids.length + changed.size()];
+    int count = 0;
+    for (int id : ids) {
+      if (!changed.containsKey(id)) {
+        matches[count++] = id;
+      }
+    }
+    for (Map.Entry<Integer, Set<String>> entry : changed.entrySet()) {
+      if (entry.getValue() != null && query.matches(entry.getValue())) {
+        matches[count++] = entry.getKey();
+      }
+    }
+    Arrays.sort(matches, 0, count);
+    return Arrays.copyOf(matches, count);
+  }
+
+  /**
+   * Appends a record stating that a task was added or changed.
+   *
+   * @param task The task in its new state.
+   */
+  void appendPut(Task task) throws IOException {
+    append(put(new StringBuilder(), task).toString());
+  }
+
+  /**
+   * Appends a record stating that a task was deleted.
+   *
+   * @param id The ID of the deleted task.
+   */
+  void appendDelete(int id) throws IOException {
+    append("-" + id + "\n");
+  }
+
+  /**
+   * Appends the records of several changes in order with a single write.
+   *
+   * @param changes The changes to append.
+   */
+  void appendAll(List<TaskChange> changes) throws IOException {
+    StringBuilder records = new StringBuilder(changes.size() * 64);
+    for (TaskChange change : changes) {
+      if (change.isDelete()) {
+        records.append('-').append(change.getId()).append('\n');
+      } else {
+        put(records, change.getTask());
+      }
+    }
+    append(records.toString());
+  }
+
+  /**
+   * Gets the current size of the log, which a new segment would fold in.
+   *
+   * @return The size in bytes, or 0 if the log does not exist.
+   */
+  long logSize() throws IOException {
+    return Files.exists(logPath) ? Files.size(logPath) : 0;
+  }
+
+  /**
+   * Empties the log, right after a new segment was written.
+   */
+  void clearLog() throws IOException {
+    Files.deleteIfExists(logPath);
+  }
+
+  private static StringBuilder put(StringBuilder out, Task task) {
+    out.append('+').append(task.getId());
+    for (String term : TaskQuery.terms(task.getDescription())) {
+      out.append(' ').append(term);
+    }
+    return out.append('\n');
+  }
+
+  /**
+   * Reads the log into the latest state of every task it mentions.
+   *
+   * @return The terms of each changed task by ID, or null for a deleted task.
+   */
+  private Map<Integer, Set<String>> readLog() throws IOException {
+    Map<Integer, Set<String>> changed = new LinkedHashMap<>();
+    if (!Files.exists(logPath)) {
+      return changed;
+    }
+    String log = new String(Files.readAllBytes(logPath), StandardCharsets.UTF_8);
+    int start = 0;
+    int end;
+    // A line without its newline was torn by a crash, and the index version was not raised
+    while ((end = log.indexOf('\n', start)) >= 0) {
+      String[] fields = log.substring(start + 1, end).split(" ");
+      Integer id = Integer.valueOf(fields[0]);
+      changed.remove(id);
+      if (log.charAt(start) == '+') {
+        changed.put(id, new HashSet<>(Arrays.asList(fields).subList(1, fields.length)));
+      } else {
+        changed.put(id, null);
+      }
+      start = end + 1;
+    }
+    return changed;
+  }
+
+  private void append(String records) throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+    try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      if (fsync) {
+        channel.force(false);
+      }
+    }
+  }
+
+  /**
+   * Read access to a mapped segment.
+   */
+  private static final class Segment {
+
+    private final MappedByteBuffer buffer;
+    private final int termCount;
+    private final int termStartsAt;
+    private final int postingStartsAt;
+    private final int termsAt;
+    private final int postingsAt;
+
+    Segment(MappedByteBuffer buffer) throws IOException {
+      this.buffer = buffer;
+      byte[] magic = new byte[MAGIC.length];
+      buffer.get(magic);
+      if (!Arrays.equals(magic, MAGIC) || (buffer.get() & 0xFF) != VERSION) {
+        throw new IOException("Not a search index");
+      }
+      termCount = buffer.getInt();
+      termStartsAt = HEADER_SIZE;
+      postingStartsAt = termStartsAt + Integer.BYTES * (termCount + 1);
+      termsAt = postingStartsAt + Long.BYTES * (termCount + 1);
+      postingsAt = termsAt + buffer.getInt(termStartsAt + Integer.BYTES * termCount);
+    }
+
+    /**
+     * Finds the tasks that contain every term of a clause.
+     */
+    int[] match(List<TaskQuery.Term> clause) {
+      int[] ids = null;
+      for (TaskQuery.Term term : clause) {
+        int[] postings = term.prefix ? prefixPostings(term.text) : postings(term.text);
+        ids = ids == null ? postings : intersect(ids, postings);
+        if (ids.length == 0) {
+          break;
+        }
+      }
+      return ids;
+    }
+
+    private int[] postings(String term) {
+      int index = lowerBound(term);
+      return index < termCount && term(index).equals(term) ? decode(index) : NO_IDS;
+    }
+
+    private int[] prefixPostings(String prefix) {
+      int[] ids = NO_IDS;
+      for (int index = lowerBound(prefix); index < termCount && term(index).startsWith(prefix);
+          index++) {
+        ids = union(ids, decode(index));
+      }
+      return ids;
+    }
+
+    /**
+     * Finds the first term that is not less than the key.
+     */
+    private int lowerBound(String key) {
+      int low = 0;
+      int high = termCount;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (term(middle).compareTo(key) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    private String term(int index) {
+      int start = buffer.getInt(termStartsAt + Integer.BYTES * index);
+      int end = buffer.getInt(termStartsAt + Integer.BYTES * (index + 1));
+      byte[] bytes = new byte[end - start];
+      buffer.get(termsAt + start, bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int[] decode(int index) {
+      buffer.position(postingsAt + (int) buffer.getLong(postingStartsAt + Long.BYTES * index));
+      int[] ids = new int[getVarint(buffer)];
+      int id = 0;
+      for (int i = 0; i < ids.length; i++) {
+        id += getVarint(buffer);
+        ids[i] = id;
+      }
+      return ids;
+    }
+  }
+
+  /**
+   * Merges two ascending ID lists.
+   */
+  private static int[] union(int[] a, int[] b) {
+    if (a.length == 0) {
+      return b;
+    }
+    if (b.length == 0) {
+      return a;
+    }
+    int[] merged = new int[a.length + b.length];
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < a.length || j < b.length) {
+      int next = j == b.length || i < a.length && a[i] <= b[j] ? a[i] : b[j];
+      if (i < a.length && a[i] == next) {
+        i++;
+      }
+      if (j < b.length && b[j] == next) {
+        j++;
+      }
+      merged[count++] = next;
+    }
+    return count == merged.length ? merged : Arrays.copyOf(merged, count);
+  }
+
+  /**
+   * Keeps the IDs that are in both ascending lists.
+   */
+  private static int[] intersect(int[] a, int[] b) {
+    int[] common = new int[Math.min(a.length, b.length)];
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        common[count++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(common, count);
+  }
+
+  private static ByteBuffer ensureRemaining(ByteBuffer buffer, int needed) {
+    if (buffer.remaining() >= needed) {
+      return buffer;
+    }
+    ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+        buffer.position() + needed));
+    return larger.put(buffer.flip());
+  }
+
+  private static void putVarint(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static int getVarint(ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+}
@@ -0,0 +1,287 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Interactive Task Tracker session: loads the tasks once and reads commands from the terminal
+ * until "exit" or end of input. Commands are the ones of the CLI, typed without the program name,
+ * and are remembered in a history that is appended to the history file when the session ends.
+ *
+ * <p>Changes are not saved by the command itself but handed to an {@link AsyncTaskWriter}, which
+ * writes everything changed within {@link TrackerConfig#saveDelayMillis()} of the first change in
+ * one go, so the prompt never waits for the disk. Commands run while holding the list's monitor,
+ * which the writer takes to copy the list; leaving the shell waits for the last write. When another
+ * process changed the task files, the shell writes its own changes first, which the writer applies
+ * to the tasks as stored now, and then loads them again before the next command.
+ */
+public final class TaskShell {
+
+  private static final String PROMPT = "task> ";
+  private static final String HISTORY_FILE_NAME = "shell.history";
+  private static final int MAX_HISTORY = 1000;
+
+  private final FileHandler fileHandler;
+  private final Path socketPath;
+  private final Path historyPath;
+  private final List<String> history = new ArrayList<>();
+  // Where the commands of this session start in the history
+  private int sessionStart;
+
+  // Loaded tasks, or null while a daemon serves the data directory
+  private TaskRepository tasks;
+  private AsyncTaskWriter writer;
+
+  private TaskShell(FileHandler fileHandler, Path socketPath) {
+    this.fileHandler = fileHandler;
+    this.socketPath = socketPath;
+    this.historyPath = fileHandler.getDirectory().resolve(HISTORY_FILE_NAME);
+  }
+
+  /**
+   * Runs an interactive session on standard input and output until the user leaves.
+   *
+   * @param fileHandler The file handler used to load and save tasks.
+   * @param socketPath The socket of a daemon that may be serving the data directory.
+   */
+  public static void run(FileHandler fileHandler, Path socketPath) {
+    new TaskShell(fileHandler, socketPath).run();
+  }
+
+  private void run() {
+    loadHistory();
+
+    // A running daemon already holds the list, so send it the commands instead
+    if (TaskDaemon.isRunning(socketPath)) {
+      System.out.println("Sending commands to the daemon on " + socketPath);
+    } else {
+      tasks = fileHandler.loadTasks();
+      writer = new AsyncTaskWriter(fileHandler, tasks, TrackerConfig.saveDelayMillis());
+      fileHandler.setAsyncWriter(writer);
+      System.out.println("Loaded " + tasks.size() + " tasks.");
+    }
+    System.out.println("Type a command, \"help\" for the list, or \"exit\" to leave.");
+
+    try (BufferedReader input =
+        new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+      while (true) {
+        printNotices();
+        System.out.print(PROMPT);
+        System.out.flush();
+        String line = input.readLine();
+        if (line == null) {
+          System.out.println();
+          break;
+        }
+        line = line.strip();
+        if (line.isEmpty()) {
+          continue;
+        }
+
+        // History expansion: "!!" repeats the last command, "!n" the n-th
+        if (line.startsWith("!")) {
+          line = expand(line);
+          if (line == null) {
+            continue;
+          }
+          System.out.println(line);
+        }
+        remember(line);
+
+        String[] args = TaskTracker.parseCommandLine(line);
+        if (args.length == 0) {
+          continue;
+        }
+        String command = args[0].toLowerCase();
+        if (command.equals("exit") || command.equals("quit")) {
+          break;
+        }
+        execute(command, args);
+      }
+    } catch (IOException e) {
+      System.err.println("Error reading input: " + e.getMessage());
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Executes one command of the session.
+   */
+  private void execute(String command, String[] args) {
+    switch (command) {
+      case "history":
+        for (int i = 0; i < history.size(); i++) {
+          System.out.printf("%5d  %s%n", i + 1, history.get(i));
+        }
+        return;
+      case "help":
+        TaskTracker.displayHelp();
+        System.out.println("Shell only: history, !! (repeat last), !n (repeat n-th), exit\n");
+        return;
+      case "batch":
+      case "serve":
+      case "shell":
+        System.out.println("Error: " + command + " cannot be run inside the shell.");
+        return;
+      default:
+        break;
+    }
+
+    if (tasks == null) {
+      if (!TaskDaemon.forward(socketPath, args)) {
+        System.err.println("Error: The daemon on " + socketPath + " did not take the command.");
+      }
+      return;
+    }
+
+    // Another process wrote the task files, so continue from its version
+    if (fileHandler.isStale()) {
+      reload();
+    }
+
+    // Conversion reads the task files, so they must hold every change first
+    if (command.equals("convert")) {
+      flush();
+    }
+
+    synchronized (tasks) {
+      TaskTracker.runCommand(tasks, args);
+    }
+  }
+
+  /**
+   * Waits until every change so far is on disk. Failures have already been reported by the writer.
+   *
+   * @return True if the changes were written.
+   */
+  private boolean flush() {
+    try {
+      writer.flush().join();
+      return true;
+    } catch (CompletionException e) {
+      // Printed by the writer, and the changes are still in memory for the next attempt
+      return false;
+    }
+  }
+
+  /**
+   * Loads the tasks again after another process changed them, once the changes of this session are
+   * on disk. If they could not be written, the tasks in memory are kept, so they are not lost.
+   */
+  private void reload() {
+    if (!flush()) {
+      return;
+    }
+    printNotices();
+    TaskRepository loaded = fileHandler.loadTasks();
+    synchronized (tasks) {
+      tasks.replaceWith(loaded);
+    }
+    System.out.println("Reloaded " + tasks.size() + " tasks changed by another process.");
+  }
+
+  /**
+   * Prints what the writer reported about renumbered tasks since the last call. The writer thread
+   * does not print them itself, so they never land in the middle of the prompt or a command.
+   */
+  private void printNotices() {
+    if (writer == null) {
+      return;
+    }
+    for (String notice : writer.takeNotices()) {
+      System.out.println(notice);
+    }
+  }
+
+  /**
+   * Writes the remaining changes, stops the writer and saves the history of the session.
+   */
+  private void close() {
+    if (writer != null) {
+      flush();
+      writer.close();
+      printNotices();
+      fileHandler.setAsyncWriter(null);
+    }
+    saveHistory();
+  }
+
+  /**
+   * Resolves "!!" and "!n" against the history.
+   *
+   * @return The command to run, or null if there is no such entry.
+   */
+  private String expand(String line) {
+    if (line.equals("!!")) {
+      if (history.isEmpty()) {
+        System.out.println("Error: The history is empty.");
+        return null;
+      }
+      return history.get(history.size() - 1);
+    }
+    try {
+      int index = Integer.parseInt(line.substring(1));
+      if (index >= 1 && index <= history.size()) {
+        return history.get(index - 1);
+      }
+    } catch (NumberFormatException e) {
+      // Reported below like an entry that does not exist
+    }
+    System.out.println("Error: No such history entry: " + line.substring(1));
+    return null;
+  }
+
+  private void loadHistory() {
+    if (!Files.exists(historyPath)) {
+      return;
+    }
+    try {
+      List<String> lines = Files.readAllLines(historyPath, StandardCharsets.UTF_8);
+      history.addAll(lines.subList(Math.max(0, lines.size() - MAX_HISTORY), lines.size()));
+      // Appending keeps the file growing, so cut it back now and then
+      if (lines.size() > 2 * MAX_HISTORY) {
+        Files.write(historyPath, history, StandardCharsets.UTF_8);
+      }
+      sessionStart = history.size();
+    } catch (IOException e) {
+      System.err.println("Error reading shell history: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Adds a command to the history of the session.
+   */
+  private void remember(String line) {
+    if (!history.isEmpty() && history.get(history.size() - 1).equals(line)) {
+      return;
+    }
+    history.add(line);
+    if (history.size() > MAX_HISTORY) {
+      history.remove(0);
+      sessionStart = Math.max(0, sessionStart - 1);
+    }
+  }
+
+  /**
+   * Appends the commands of this session to the history file.
+   */
+  private void saveHistory() {
+    if (sessionStart == history.size()) {
+      return;
+    }
+    try {
+      Files.createDirectories(historyPath.getParent());
+      Files.write(historyPath, history.subList(sessionStart, history.size()),
+          StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      System.err.println("Error writing shell history: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,458 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Task file made of fixed-size slots, used when the "slotted" format is selected (see
+ * {@link TrackerConfig#format()}). Every record occupies a run of whole slots, so a changed task
+ * can be overwritten in place with one positional write instead of rewriting the file:
+ *
+ * <pre>
+ * header:  "TSLT" magic, 1 byte format version, 3 bytes padding, 4 byte slot size
+ * record:  1 byte kind, 2 byte slot count, then depending on the kind:
+ *          task, body: 4 byte id, 1 byte status ordinal, 8 byte createdAt, 8 byte updatedAt,
+ *                      4 byte description length, UTF-8 description
+ *          moved:      4 byte slot of the body holding the task
+ *          free:       nothing
+ *          and padding up to the end of the last slot
+ * </pre>
+ *
+ * A task that outgrows its slots gets a body record at the end of the file, and its own record
+ * turns into a "moved" record pointing there. Tasks therefore keep their position in the file,
+ * which is the order they are listed in. Deleting a task only flips kind bytes to "free". Freed
+ * slots are not reused; once they outnumber the slots in use the whole file should be rewritten,
+ * see {@link #needsCompaction()}.
+ *
+ * <p>The positions of the tasks are learnt while the file is read or written, so in-place updates
+ * are only possible after one of those.
+ */
+final class TaskSlotFile {
+
+  static final byte[] MAGIC = {'T', 'S', 'L', 'T'};
+  static final int VERSION = 1;
+  static final int SLOT_SIZE = 128;
+
+  private static final int HEADER_SIZE = 12;
+  // Kind and slot count, shared by every kind of record
+  private static final int PREFIX_SIZE = 3;
+  private static final int RECORD_HEADER_SIZE = PREFIX_SIZE + 25;
+  private static final int MAX_SLOTS_PER_RECORD = 0xFFFF;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final byte KIND_FREE = 0;
+  private static final byte KIND_TASK = 1;
+  private static final byte KIND_MOVED = 2;
+  private static final byte KIND_BODY = 3;
+  private static final Task.Status[] STATUSES = Task.Status.values();
+
+  private final Path path;
+  private final boolean fsync;
+  // Slot and slot count of every task's own record, and of the body of moved tasks
+  private final IntIntMap firstSlots = new IntIntMap(16);
+  private final IntIntMap slotCounts = new IntIntMap(16);
+  private final IntIntMap bodySlots = new IntIntMap(16);
+  private final IntIntMap bodyCounts = new IntIntMap(16);
+  private int endSlot;
+  private int freeSlots;
+  private boolean loaded;
+  // Scratch space reused for every record
+  private ByteBuffer record = ByteBuffer.allocate(SLOT_SIZE);
+
+  /**
+   * Creates a handle for a slot file.
+   *
+   * @param path The file, which does not need to exist yet.
+   * @param fsync Whether every in-place write is forced to disk before returning.
+   */
+  TaskSlotFile(Path path, boolean fsync) {
+    this.path = path;
+    this.fsync = fsync;
+  }
+
+  /**
+   * Gets whether the slot of every task is known, so tasks can be written in place.
+   *
+   * @return True once the file has been read or written by this handle.
+   */
+  boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Gets whether freed slots make up more than half of the file, so a full rewrite pays off.
+   *
+   * @return True if the file should be rewritten.
+   */
+  boolean needsCompaction() {
+    return freeSlots > endSlot - freeSlots;
+  }
+
+  /**
+   * Reads every task in the file and remembers where each one is stored.
+   *
+   * @param consumer Receives the tasks in file order.
+   * @throws IOException if the file cannot be read or is not a valid slot file.
+   */
+  void read(Consumer<Task> consumer) throws IOException {
+    forget();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!java.util.Arrays.equals(magic, MAGIC)) {
+        throw new IOException("Not a slotted task file");
+      }
+      int version = in.readUnsignedByte();
+      if (version != VERSION) {
+        throw new IOException("Unsupported slotted task file version: " + version);
+      }
+      in.skipNBytes(3);
+      if (in.readInt() != SLOT_SIZE) {
+        throw new IOException("Unsupported slot size in " + path);
+      }
+
+      int kind;
+      while ((kind = in.read()) != -1) {
+        int count = in.readUnsignedShort();
+        if (count == 0) {
+          throw new IOException("Invalid slot count at slot " + endSlot + " in " + path);
+        }
+        int slot = endSlot;
+        endSlot += count;
+
+        if (kind == KIND_FREE) {
+          freeSlots += count;
+          in.skipNBytes(count * SLOT_SIZE - PREFIX_SIZE);
+        } else if (kind == KIND_TASK) {
+          Task task = decode(readRest(in, count));
+          firstSlots.put(task.getId(), slot);
+          slotCounts.put(task.getId(), count);
+          consumer.accept(task);
+        } else if (kind == KIND_MOVED) {
+          int bodySlot = readRest(in, count).getInt();
+          int bodyCount = readBody(channel, bodySlot);
+          Task task = decode(record);
+          firstSlots.put(task.getId(), slot);
+          slotCounts.put(task.getId(), count);
+          bodySlots.put(task.getId(), bodySlot);
+          bodyCounts.put(task.getId(), bodyCount);
+          consumer.accept(task);
+        } else if (kind == KIND_BODY) {
+          // Read through the moved record that points to it
+          in.skipNBytes(count * SLOT_SIZE - PREFIX_SIZE);
+        } else {
+          throw new IOException("Invalid record kind at slot " + slot + " in " + path);
+        }
+      }
+    } catch (EOFException e) {
+      throw new IOException("Truncated slotted task file " + path);
+    }
+    loaded = true;
+  }
+
+  /**
+   * Writes the tasks to a new file without any free slots. The new file is expected to replace
+   * this handle's file; if it does not, {@link #forget()} must be called before any in-place
+   * write.
+   *
+   * @param file The file to write, usually a temporary one next to the real file.
+   * @param tasks The tasks to store.
+   */
+  void write(Path file, java.util.Collection<Task> tasks) throws IOException {
+    forget();
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.put(MAGIC).put((byte) VERSION).position(8);
+      header.putInt(SLOT_SIZE);
+      out.write(header.array());
+      for (Task task : tasks) {
+        int count = encode(task, KIND_TASK, 0);
+        out.write(record.array(), 0, record.limit());
+        firstSlots.put(task.getId(), endSlot);
+        slotCounts.put(task.getId(), count);
+        endSlot += count;
+      }
+    }
+    loaded = true;
+  }
+
+  /**
+   * Writes one added or changed task over its own record if it still fits, and otherwise over or
+   * into a body record at the end of the file.
+   *
+   * @param task The task to store.
+   */
+  void put(Task task) throws IOException {
+    apply(java.util.List.of(TaskChange.put(task)));
+  }
+
+  /**
+   * Gets whether a new task can be appended without reading the file first: it must exist and end
+   * on a slot boundary, which an interrupted write at the end may have left it without.
+   *
+   * @return True if {@link #append} can be used.
+   */
+  boolean canAppend() throws IOException {
+    if (!Files.exists(path)) {
+      return false;
+    }
+    long size = Files.size(path);
+    return size >= HEADER_SIZE && (size - HEADER_SIZE) % SLOT_SIZE == 0;
+  }
+
+  /**
+   * Writes a new task at the end of the file without reading the file first. The task's ID must
+   * not be in the file yet, which is what the ID sequence guarantees.
+   *
+   * @param task The task to store.
+   * @return False if the file no longer ends on a slot boundary, in which case nothing was written.
+   */
+  boolean append(Task task) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE || (size - HEADER_SIZE) % SLOT_SIZE != 0) {
+        return false;
+      }
+      int slot = (int) ((size - HEADER_SIZE) / SLOT_SIZE);
+      int count = encode(task, KIND_TASK, 0);
+      writeRecord(channel, slot);
+      if (fsync) {
+        channel.force(false);
+      }
+      // Keep the positions learnt earlier usable for in-place writes
+      if (loaded) {
+        firstSlots.put(task.getId(), slot);
+        slotCounts.put(task.getId(), count);
+        endSlot = slot + count;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Frees the slots of a deleted task.
+   *
+   * @param id The ID of the deleted task.
+   */
+  void delete(int id) throws IOException {
+    apply(java.util.List.of(TaskChange.delete(id)));
+  }
+
+  /**
+   * Writes several changes in order through one channel, forcing them to disk together at the end
+   * rather than one by one.
+   *
+   * @param changes The changes to write, each like {@link #put} or {@link #delete}.
+   */
+  void apply(java.util.List<TaskChange> changes) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      for (TaskChange change : changes) {
+        if (change.isDelete()) {
+          delete(channel, change.getId());
+        } else {
+          put(channel, change.getTask());
+        }
+      }
+      if (fsync) {
+        channel.force(false);
+      }
+    }
+  }
+
+  private void put(FileChannel channel, Task task) throws IOException {
+    int id = task.getId();
+    int slot = firstSlots.get(id);
+    if (slot == IntIntMap.MISSING) {
+      // A new task goes to the end of the file
+      int count = encode(task, KIND_TASK, 0);
+      writeRecord(channel, endSlot);
+      firstSlots.put(id, endSlot);
+      slotCounts.put(id, count);
+      endSlot += count;
+    } else if (encode(task, KIND_TASK, slotCounts.get(id)) <= slotCounts.get(id)) {
+      writeRecord(channel, slot);
+      int bodySlot = bodySlots.remove(id);
+      if (bodySlot != IntIntMap.MISSING) {
+        free(channel, bodySlot);
+        freeSlots += bodyCounts.remove(id);
+      }
+    } else {
+      int bodySlot = bodySlots.get(id);
+      int bodyCount = bodySlot == IntIntMap.MISSING ? 0 : bodyCounts.get(id);
+      if (encode(task, KIND_BODY, bodyCount) <= bodyCount) {
+        writeRecord(channel, bodySlot);
+      } else {
+        // Write the new body before pointing to it, so a crash never loses the task
+        int count = encode(task, KIND_BODY, 0);
+        writeRecord(channel, endSlot);
+        ByteBuffer moved = ByteBuffer.allocate(PREFIX_SIZE + Integer.BYTES);
+        moved.put(KIND_MOVED).putShort((short) slotCounts.get(id)).putInt(endSlot).flip();
+        writeFully(channel, moved, position(slot));
+        if (bodySlot != IntIntMap.MISSING) {
+          free(channel, bodySlot);
+          freeSlots += bodyCount;
+        }
+        bodySlots.put(id, endSlot);
+        bodyCounts.put(id, count);
+        endSlot += count;
+      }
+    }
+  }
+
+  private void delete(FileChannel channel, int id) throws IOException {
+    int slot = firstSlots.remove(id);
+    if (slot == IntIntMap.MISSING) {
+      return;
+    }
+    free(channel, slot);
+    freeSlots += slotCounts.remove(id);
+    int bodySlot = bodySlots.remove(id);
+    if (bodySlot != IntIntMap.MISSING) {
+      free(channel, bodySlot);
+      freeSlots += bodyCounts.remove(id);
+    }
+  }
+
+  /**
+   * Forgets every position, e.g. because the file is about to be replaced.
+   */
+  void forget() {
+    firstSlots.clear();
+    slotCounts.clear();
+    bodySlots.clear();
+    bodyCounts.clear();
+    endSlot = 0;
+    freeSlots = 0;
+    loaded = false;
+  }
+
+  /**
+   * Reads the rest of a record whose kind and slot count have been read into the record buffer.
+   */
+  private ByteBuffer readRest(DataInputStream in, int count) throws IOException {
+    int length = count * SLOT_SIZE - PREFIX_SIZE;
+    ensureCapacity(length);
+    in.readFully(record.array(), 0, length);
+    return record.clear().limit(length);
+  }
+
+  /**
+   * Reads the body record at the given slot into the record buffer, positioned after its prefix.
+   *
+   * @return The body's slot count.
+   */
+  private int readBody(FileChannel channel, int slot) throws IOException {
+    ByteBuffer prefix = ByteBuffer.allocate(PREFIX_SIZE);
+    readFully(channel, prefix, position(slot));
+    int count = prefix.flip().get() == KIND_BODY ? prefix.getShort() & 0xFFFF : 0;
+    if (count == 0) {
+      throw new IOException("Moved record points to an invalid body at slot " + slot);
+    }
+    int length = count * SLOT_SIZE - PREFIX_SIZE;
+    ensureCapacity(length);
+    record.clear().limit(length);
+    readFully(channel, record, position(slot) + PREFIX_SIZE);
+    record.flip();
+    return count;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      position += read;
+    }
+  }
+
+  private static void free(FileChannel channel, int slot) throws IOException {
+    ByteBuffer kind = ByteBuffer.allocate(1).put(KIND_FREE).flip();
+    writeFully(channel, kind, position(slot));
+  }
+
+  private void writeRecord(FileChannel channel, int slot) throws IOException {
+    record.position(0);
+    writeFully(channel, record, position(slot));
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private static long position(int slot) {
+    return HEADER_SIZE + (long) slot * SLOT_SIZE;
+  }
+
+  private void ensureCapacity(int length) {
+    if (record.capacity() < length) {
+      record = ByteBuffer.allocate(Math.max(length, record.capacity() * 2));
+    }
+  }
+
+  /**
+   * Encodes a task into the record buffer, padded to whole slots.
+   *
+   * @param kind Either {@link #KIND_TASK} or {@link #KIND_BODY}.
+   * @param minimumSlots The slot count to record if the task fits in it.
+   * @return The number of slots the task needs, which may exceed the minimum.
+   */
+  private int encode(Task task, byte kind, int minimumSlots) throws IOException {
+    TaskBinaryFormat.checkTimesInRange(task);
+    byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+    int needed = (RECORD_HEADER_SIZE + description.length + SLOT_SIZE - 1) / SLOT_SIZE;
+    if (needed > MAX_SLOTS_PER_RECORD) {
+      throw new IOException("Description of task " + task.getId() + " is too long");
+    }
+    int count = Math.max(needed, minimumSlots);
+    int length = count * SLOT_SIZE;
+    ensureCapacity(length);
+
+    record.clear();
+    record.put(kind);
+    record.putShort((short) count);
+    record.putInt(task.getId());
+    record.put((byte) task.getStatus().ordinal());
+    record.putLong(task.getCreatedAtNanos());
+    record.putLong(task.getUpdatedAtNanos());
+    record.putInt(description.length);
+    record.put(description);
+    java.util.Arrays.fill(record.array(), record.position(), length, (byte) 0);
+    record.position(0).limit(length);
+    return needed;
+  }
+
+  /**
+   * Decodes a task from a buffer positioned just after a record's kind and slot count.
+   */
+  private static Task decode(ByteBuffer buffer) throws IOException {
+    int id = buffer.getInt();
+    int status = buffer.get() & 0xFF;
+    if (status >= STATUSES.length) {
+      throw new IOException("Invalid status in task " + id + ": " + status);
+    }
+    long createdAt = buffer.getLong();
+    long updatedAt = buffer.getLong();
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IOException("Invalid description length in task " + id);
+    }
+    String description =
+        new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    return new Task(id, description, STATUSES[status], createdAt, updatedAt);
+  }
+}
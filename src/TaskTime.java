@@ -0,0 +1,259 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Timestamps of tasks as primitive longs: nanoseconds since the epoch, reading the local date and
+ * time as if it were UTC. This is the value the binary and slotted formats have always stored, so
+ * a task holds two longs instead of two LocalDateTime objects, and every value written to JSON
+ * converts back exactly. A LocalDateTime is only created when a timestamp is displayed.
+ *
+ * <p>A long only reaches from the year 1677 to 2262. Times before or after that become
+ * {@link #BEFORE_RANGE} or {@link #AFTER_RANGE}, which still sort and filter correctly against
+ * every time inside the range, and {@link Task} keeps the exact LocalDateTime next to them.
+ *
+ * <p>The ISO-8601 text in JSON is parsed and formatted here directly for the fixed form that
+ * {@link LocalDateTime#toString()} produces, which is many times faster than
+ * {@link LocalDateTime#parse}. Any other text is handed to the JDK, so the same strings are
+ * accepted and rejected as before.
+ */
+public final class TaskTime {
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  private static final int SECONDS_PER_DAY = 86_400;
+  // Days from 0000-03-01 to 1970-01-01 in the proleptic Gregorian calendar
+  private static final long DAYS_0000_TO_1970 = 719_468;
+  private static final int DAYS_PER_400_YEARS = 146_097;
+
+  /**
+   * Stands for every time before the range of epoch nanoseconds.
+   */
+  public static final long BEFORE_RANGE = Long.MIN_VALUE;
+
+  /**
+   * Stands for every time after the range of epoch nanoseconds. It is one below the largest long,
+   * so such times are still below the open end of a {@link TaskFilter} range.
+   */
+  public static final long AFTER_RANGE = Long.MAX_VALUE - 1;
+
+  private static volatile Clock clock = Clock.systemDefaultZone();
+
+  private TaskTime() {}
+
+  /**
+   * Sets the clock that new and changed tasks take their timestamps from, e.g. a fixed clock for
+   * reproducible runs.
+   *
+   * @param newClock The clock; its zone decides the local time that is stored.
+   */
+  public static void setClock(Clock newClock) {
+    if (newClock == null) {
+      throw new IllegalArgumentException("Clock cannot be null");
+    }
+    clock = newClock;
+  }
+
+  /**
+   * Gets the current local time of the clock.
+   *
+   * @return The time in epoch nanoseconds.
+   */
+  public static long now() {
+    Clock current = clock;
+    Instant instant = current.instant();
+    int offset = current.getZone().getRules().getOffset(instant).getTotalSeconds();
+    return (instant.getEpochSecond() + offset) * NANOS_PER_SECOND + instant.getNano();
+  }
+
+  /**
+   * Converts a local date and time to epoch nanoseconds.
+   *
+   * @param time The date and time.
+   * @return The time in epoch nanoseconds, or {@link #BEFORE_RANGE} or {@link #AFTER_RANGE} if it
+   *         is outside the years 1677 to 2262 that fit a long.
+   */
+  public static long toEpochNanos(LocalDateTime time) {
+    long seconds = time.toEpochSecond(ZoneOffset.UTC);
+    // The same bounds as the fast path of parse
+    if (seconds <= Long.MIN_VALUE / NANOS_PER_SECOND) {
+      return BEFORE_RANGE;
+    }
+    if (seconds >= Long.MAX_VALUE / NANOS_PER_SECOND) {
+      return AFTER_RANGE;
+    }
+    return seconds * NANOS_PER_SECOND + time.getNano();
+  }
+
+  /**
+   * Checks whether epoch nanoseconds hold a time exactly, rather than standing for one before or
+   * after the range.
+   *
+   * @param nanos The time in epoch nanoseconds.
+   * @return True if {@link #toLocalDateTime(long)} gives the time back.
+   */
+  public static boolean isInRange(long nanos) {
+    return nanos != BEFORE_RANGE && nanos < AFTER_RANGE;
+  }
+
+  /**
+   * Converts epoch nanoseconds to a local date and time, for display.
+   *
+   * @param nanos The time in epoch nanoseconds.
+   * @return The date and time.
+   */
+  public static LocalDateTime toLocalDateTime(long nanos) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+        (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+  }
+
+  /**
+   * Parses an ISO-8601 local date and time such as {@code 2024-01-31T09:05:07.123}, as written by
+   * {@link #appendIso} and {@link LocalDateTime#toString()}.
+   *
+   * @param text The text to parse.
+   * @return The time in epoch nanoseconds, or {@link #BEFORE_RANGE} or {@link #AFTER_RANGE} if it
+   *         is outside the years 1677 to 2262.
+   * @throws DateTimeParseException if the text is not a valid date and time.
+   */
+  public static long parse(CharSequence text) {
+    int length = text.length();
+    if (length >= 16 && text.charAt(4) == '-' && text.charAt(7) == '-'
+        && text.charAt(10) == 'T' && text.charAt(13) == ':') {
+      int year = digits(text, 0, 4);
+      int month = digits(text, 5, 2);
+      int day = digits(text, 8, 2);
+      int hour = digits(text, 11, 2);
+      int minute = digits(text, 14, 2);
+      int second = 0;
+      int nano = 0;
+      boolean valid = true;
+      if (length > 16) {
+        second = length >= 19 && text.charAt(16) == ':' ? digits(text, 17, 2) : -1;
+        if (length > 19) {
+          int fractionDigits = length - 20;
+          valid = text.charAt(19) == '.' && fractionDigits >= 1 && fractionDigits <= 9;
+          nano = valid ? digits(text, 20, fractionDigits) : -1;
+          for (int i = fractionDigits; i < 9; i++) {
+            nano *= 10;
+          }
+        }
+      }
+      if (valid && year >= 0 && month >= 1 && month <= 12 && day >= 1
+          && day <= lengthOfMonth(year, month) && hour >= 0 && hour <= 23 && minute >= 0
+          && minute <= 59 && second >= 0 && second <= 59 && nano >= 0) {
+        long seconds = epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60
+            + second;
+        if (seconds > Long.MIN_VALUE / NANOS_PER_SECOND
+            && seconds < Long.MAX_VALUE / NANOS_PER_SECOND) {
+          return seconds * NANOS_PER_SECOND + nano;
+        }
+      }
+    }
+
+    // Anything unusual, or near the end of the range, gets the JDK's parser and its errors
+    return toEpochNanos(LocalDateTime.parse(text));
+  }
+
+  /**
+   * Appends a timestamp in the same ISO-8601 form as {@link LocalDateTime#toString()}: seconds
+   * only when not zero, and the fraction in groups of three digits.
+   *
+   * @param out The builder to append to.
+   * @param nanos The time in epoch nanoseconds.
+   * @return The same builder.
+   */
+  public static StringBuilder appendIso(StringBuilder out, long nanos) {
+    long seconds = Math.floorDiv(nanos, NANOS_PER_SECOND);
+    int nano = (int) Math.floorMod(nanos, NANOS_PER_SECOND);
+    long epochDay = Math.floorDiv(seconds, SECONDS_PER_DAY);
+    int secondOfDay = Math.floorMod(seconds, SECONDS_PER_DAY);
+
+    // Civil date from the day count, with years starting on March 1st so leap days come last
+    long shifted = epochDay + DAYS_0000_TO_1970;
+    long era = Math.floorDiv(shifted, DAYS_PER_400_YEARS);
+    int dayOfEra = (int) (shifted - era * DAYS_PER_400_YEARS);
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+    // Longs only reach from 1677 to 2262, so the year always has four digits
+    appendPadded(out, (int) year, 4);
+    out.append('-');
+    appendPadded(out, month, 2);
+    out.append('-');
+    appendPadded(out, day, 2);
+    out.append('T');
+    appendPadded(out, secondOfDay / 3600, 2);
+    out.append(':');
+    appendPadded(out, secondOfDay / 60 % 60, 2);
+    int second = secondOfDay % 60;
+    if (second == 0 && nano == 0) {
+      return out;
+    }
+    out.append(':');
+    appendPadded(out, second, 2);
+    if (nano == 0) {
+      return out;
+    }
+    out.append('.');
+    if (nano % 1_000_000 == 0) {
+      appendPadded(out, nano / 1_000_000, 3);
+    } else if (nano % 1000 == 0) {
+      appendPadded(out, nano / 1000, 6);
+    } else {
+      appendPadded(out, nano, 9);
+    }
+    return out;
+  }
+
+  /**
+   * Reads a fixed number of decimal digits.
+   *
+   * @return The value, or -1 if any of the characters is not a digit.
+   */
+  private static int digits(CharSequence text, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    if (month == 2) {
+      boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+      return leap ? 29 : 28;
+    }
+    return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+  }
+
+  /**
+   * Counts the days from 1970-01-01 to a date in the proleptic Gregorian calendar.
+   */
+  private static long epochDay(int year, int month, int day) {
+    int shiftedYear = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(shiftedYear, 400);
+    int yearOfEra = (int) (shiftedYear - era * 400);
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+  }
+
+  private static void appendPadded(StringBuilder out, int value, int digits) {
+    for (int limit = 10; --digits > 0; limit *= 10) {
+      if (value < limit) {
+        out.append('0');
+      }
+    }
+    out.append(value);
+  }
+}
@@ -1,10 +1,15 @@
-import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * TaskTracker - CLI interface for managing tasks. This class serves as the main entry point and
  * handles user commands. It acts as the steering wheel that controls the FileHandler engine.
  */
 public class TaskTracker {
+  // Attempts of a command whose save keeps colliding with other processes
+  private static final int MAX_ATTEMPTS = 5;
+  // Commands that read or change only the task whose ID is their first argument
+  private static final java.util.Set<String> SINGLE_TASK_COMMANDS =
+      java.util.Set.of("delete", "update", "mark-in-progress", "mark-done");
   private static FileHandler fileHandler = new FileHandler();
 
   /**
@@ -19,36 +24,154 @@ public class TaskTracker {
       return;
     }
 
+    // Parse and execute the command
+    String command = args[0].toLowerCase();
+    java.nio.file.Path socketPath = TaskDaemon.socketPath(fileHandler.getDirectory());
+
+    // Keep the tasks resident in a long-running process
+    if (command.equals("serve")) {
+      TaskDaemon.serve(fileHandler, socketPath);
+      return;
+    }
+
+    // The shell talks to the terminal of this process
+    if (command.equals("shell")) {
+      TaskShell.run(fileHandler, socketPath);
+      return;
+    }
+
+    // A batch reads its commands here, where stdin and relative paths belong to the caller
+    if (command.equals("batch")) {
+      handleBatch(args, socketPath);
+      return;
+    }
+
+    // Let a running daemon execute the command, skipping the load entirely
+    if (TaskDaemon.forward(socketPath, args)) {
+      return;
+    }
+
+    // Listing only reads, so it streams the task file instead of loading it
+    if (command.equals("list")) {
+      handleList(fileHandler::forEachTask, args);
+      return;
+    }
+
+    // Searching looks the words up in the persisted index and reads only the matching tasks
+    if (command.equals("search")) {
+      handleSearch(fileHandler::searchTasks, args);
+      return;
+    }
+
+    // Adding takes its ID from the persisted sequence, so the other tasks need not be loaded
+    if (command.equals("add") && args.length > 1) {
+      String description = String.join(" ", java.util.Arrays.copyOfRange(args, 1, args.length));
+      Task added = fileHandler.appendTask(description);
+      if (added != null) {
+        System.out.println("Task added: [" + added.getId() + "] " + description);
+        return;
+      }
+    }
+
+    // A command on one task needs only that task's record, not the whole file
+    TaskRepository tasks = null;
+    if (SINGLE_TASK_COMMANDS.contains(command) && args.length > 1 && args[1].matches("\\d{1,9}")) {
+      tasks = fileHandler.loadTask(Integer.parseInt(args[1]));
+    }
+
     // Load existing tasks from disk
-    List<Task> tasks = fileHandler.loadTasks();
+    if (tasks == null) {
+      tasks = fileHandler.loadTasks();
+    }
+    runCommandWithRetry(tasks, args);
+  }
 
-    // Parse and execute the command
+  /**
+   * Replaces the file handler used by the commands, e.g. to run them against another data
+   * directory.
+   *
+   * @param handler The file handler to use from now on.
+   */
+  static void setFileHandler(FileHandler handler) {
+    fileHandler = handler;
+  }
+
+  /**
+   * Executes a single command like {@link #runCommand}, but if another process wrote the task files
+   * since the tasks were loaded, loads them again and executes the command again on the new list,
+   * so only this command is retried and the other process's change is kept. After
+   * {@code MAX_ATTEMPTS} conflicts, the command is run once more while holding the exclusive lock,
+   * so a process that keeps losing the race still gets its change in.
+   *
+   * @param tasks The current list of tasks in memory.
+   * @param args Command-line arguments where args[0] is the command.
+   * @return The list the command was applied to, which is a newly loaded one after a conflict.
+   */
+  static TaskRepository runCommandWithRetry(TaskRepository tasks, String[] args) {
+    for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+      try {
+        runCommand(tasks, args);
+        return tasks;
+      } catch (FileHandler.ConflictException e) {
+        // Back off a little, so writers that keep colliding spread out
+        try {
+          Thread.sleep(java.util.concurrent.ThreadLocalRandom.current().nextInt(attempt * 5 + 1));
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+        }
+        tasks = fileHandler.loadTasks();
+      }
+    }
+
+    TaskRepository[] reloaded = new TaskRepository[1];
+    fileHandler.runExclusively(() -> {
+      reloaded[0] = fileHandler.loadTasks();
+      runCommand(reloaded[0], args);
+    });
+    return reloaded[0] != null ? reloaded[0] : tasks;
+  }
+
+  /**
+   * Executes a single command against tasks that are already in memory. Changes are saved through
+   * the file handler as usual.
+   *
+   * @param tasks The current list of tasks in memory, updated in place.
+   * @param args Command-line arguments where args[0] is the command.
+   * @return True if the command was applied, false if it failed, e.g. for an unknown task ID.
+   */
+  static boolean runCommand(TaskRepository tasks, String[] args) {
     String command = args[0].toLowerCase();
 
     switch (command) {
       case "add":
-        handleAdd(tasks, args);
-        break;
+        return handleAdd(tasks, args);
       case "list":
-        // Check if a status filter was provided
-        String filter = args.length > 1 ? args[1].toLowerCase() : null;
-        handleList(tasks, filter);
-        break;
+        return handleList(tasks::forEachTask, args);
+      case "search":
+        return handleSearch((query, consumer) -> {
+          int[] found = new int[1];
+          tasks.forEach(task -> {
+            if (query.matches(task)) {
+              found[0]++;
+              consumer.accept(task);
+            }
+          });
+          return found[0];
+        }, args);
       case "delete":
-        handleDelete(tasks, args);
-        break;
+        return handleDelete(tasks, args);
       case "update":
-        handleUpdate(tasks, args);
-        break;
+        return handleUpdate(tasks, args);
       case "mark-in-progress":
-        handleMarkInProgress(tasks, args);
-        break;
+        return handleMarkInProgress(tasks, args);
       case "mark-done":
-        handleMarkDone(tasks, args);
-        break;
+        return handleMarkDone(tasks, args);
+      case "convert":
+        return handleConvert(args);
       default:
         System.out.println("Unknown command: " + command);
         displayHelp();
+        return false;
     }
   }
 
@@ -57,12 +180,13 @@ public class TaskTracker {
    *
    * @param tasks The current list of tasks in memory.
    * @param args Command-line arguments where args[1+] is the task description.
+   * @return True if the task was added.
    */
-  private static void handleAdd(List<Task> tasks, String[] args) {
+  private static boolean handleAdd(TaskRepository tasks, String[] args) {
     // Validate that a description was provided
     if (args.length < 2) {
       System.out.println("Error: Please provide a task description.");
-      return;
+      return false;
     }
 
     // Build description from all arguments after "add"
@@ -74,52 +198,245 @@ public class TaskTracker {
       }
     }
 
-    // Create a new task with the next available ID
-    int newId = tasks.isEmpty() ? 1 : tasks.get(tasks.size() - 1).getId() + 1;
+    // Create a new task with the next ID of the sequence, never reusing a deleted task's ID
+    int newId = tasks.nextId();
     Task newTask = new Task(newId, description.toString());
     tasks.add(newTask);
 
-    // Save the updated list to disk
-    fileHandler.saveTasks(tasks);
+    // Save the new task to disk
+    fileHandler.saveTask(tasks, newTask);
     System.out.println("Task added: [" + newId + "] " + description);
+    return true;
+  }
+
+  /**
+   * Source of tasks for the LIST command, such as the task file or the tasks in memory.
+   */
+  @FunctionalInterface
+  interface TaskSource {
+    /**
+     * Feeds the tasks selected by the filter to the consumer.
+     *
+     * @param filter The status and time ranges to select.
+     * @param consumer Receives the selected tasks in order.
+     * @return The total number of tasks, selected or not.
+     */
+    int forEachTask(TaskFilter filter, Consumer<Task> consumer);
   }
 
   /**
    * Handles the LIST command: displays all tasks currently in the system. Optionally filters tasks
-   * by status.
+   * by status and by ranges of their creation and update times, e.g.
+   * {@code list done --created-after=7d}. Tasks are printed as they are read, so the full list
+   * never has to be held in memory, and the source only has to produce the selected tasks.
    *
-   * @param tasks The current list of tasks in memory.
-   * @param statusFilter Optional status filter ("todo", "in-progress", "done").
+   * <p>With {@code --sort}, {@code --limit} or {@code --offset} only one page is shown, e.g.
+   * {@code list --sort=-updated --limit=10}. A {@link TaskPage} then keeps just the tasks that can
+   * still end up on it, and only its rows are formatted.
+   *
+   * @param tasks Source of the tasks to display.
+   * @param args Command-line arguments where args[1+] are an optional status filter ("todo",
+   *        "in-progress", "done") and the options --created-after, --created-before and
+   *        --updated-since, each followed by "=" and a time (see {@link TaskFilter#parseTime}),
+   *        --sort followed by "=" and a field (see {@link TaskPage#parseOrder}), and --limit and
+   *        --offset followed by "=" and a number of tasks.
+   * @return True unless the status filter or an option is invalid.
    */
-  private static void handleList(List<Task> tasks, String statusFilter) {
-    if (tasks.isEmpty()) {
+  private static boolean handleList(TaskSource tasks, String[] args) {
+    // Separate the status filter from the options
+    String statusFilter = null;
+    TaskFilter filter = TaskFilter.ALL;
+    java.util.Comparator<Task> order = null;
+    int limit = Integer.MAX_VALUE;
+    int offset = 0;
+    try {
+      for (int i = 1; i < args.length; i++) {
+        String arg = args[i];
+        if (arg.startsWith("--created-after=")) {
+          long time = TaskFilter.parseTime(arg.substring("--created-after=".length()));
+          filter = filter.createdBetween(time, Long.MAX_VALUE);
+        } else if (arg.startsWith("--created-before=")) {
+          long time = TaskFilter.parseTime(arg.substring("--created-before=".length()));
+          filter = filter.createdBetween(Long.MIN_VALUE, time);
+        } else if (arg.startsWith("--updated-since=")) {
+          long time = TaskFilter.parseTime(arg.substring("--updated-since=".length()));
+          filter = filter.updatedBetween(time, Long.MAX_VALUE);
+        } else if (arg.startsWith("--sort=")) {
+          order = TaskPage.parseOrder(arg.substring("--sort=".length()).toLowerCase());
+        } else if (arg.startsWith("--limit=")) {
+          limit = parseCount(arg.substring("--limit=".length()), 1, "--limit");
+        } else if (arg.startsWith("--offset=")) {
+          offset = parseCount(arg.substring("--offset=".length()), 0, "--offset");
+        } else if (arg.startsWith("--")) {
+          System.out.println("Error: Unknown option: " + arg + " (use --created-after,"
+              + " --created-before, --updated-since, --sort, --limit or --offset).");
+          return false;
+        } else if (statusFilter == null) {
+          statusFilter = arg.toLowerCase();
+        } else {
+          System.out.println("Error: Please provide at most one status filter.");
+          return false;
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      System.out.println("Error: " + e.getMessage());
+      return false;
+    }
+
+    // Check if a status filter was provided
+    Task.Status status = statusFilter == null ? null : Task.Status.fromFilter(statusFilter);
+    if (statusFilter != null && status == null) {
+      System.out.println(
+          "Error: Unknown status filter: " + statusFilter + " (use todo, in-progress or done).");
+      return false;
+    }
+    filter = filter.withStatus(status);
+
+    ListingPrinter printer = new ListingPrinter("--- Tasks ---");
+    boolean paged = limit != Integer.MAX_VALUE || offset > 0;
+    int total;
+    int matched;
+    if (order == null && !paged) {
+      total = tasks.forEachTask(filter, printer);
+      matched = printer.printed();
+    } else {
+      TaskPage page = new TaskPage(order, offset, limit);
+      total = tasks.forEachTask(filter, page);
+      page.rows().forEach(printer);
+      matched = page.matched();
+    }
+    printer.flush();
+
+    if (total == 0) {
       System.out.println("No tasks found.");
-      return;
+    } else if (matched == 0 && filter.hasTimeRange()) {
+      System.out.println("No tasks found matching: "
+          + String.join(" ", java.util.Arrays.copyOfRange(args, 1, args.length)));
+    } else if (matched == 0) {
+      System.out.println("No tasks found with status: " + statusFilter);
+    } else if (printer.printed() == 0) {
+      System.out.println("No tasks after the first " + offset + " (" + matched + " found).");
+    } else {
+      if (paged) {
+        System.out.println("Showing " + (offset + 1) + "-" + (offset + printer.printed()) + " of "
+            + matched + (matched == 1 ? " task." : " tasks."));
+      }
+      System.out.println();
     }
+    return true;
+  }
 
-    // Filter tasks by status if a filter was provided
-    List<Task> displayTasks = tasks;
-    if (statusFilter != null) {
-      displayTasks = new java.util.ArrayList<>();
-      for (Task task : tasks) {
-        String taskStatus = task.getStatus().name().toLowerCase().replace("_", "-");
-        if (taskStatus.equals(statusFilter)) {
-          displayTasks.add(task);
-        }
+  /**
+   * Parses the number given to a list option.
+   *
+   * @param text The number.
+   * @param min The smallest number allowed.
+   * @param option The option, for the error message.
+   * @return The number.
+   * @throws IllegalArgumentException if the text is not a number of at least {@code min}.
+   */
+  private static int parseCount(String text, int min, String option) {
+    try {
+      int count = Integer.parseInt(text);
+      if (count >= min) {
+        return count;
       }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException(option
+        + (min > 0 ? " needs a positive number of tasks." : " needs a number of tasks."));
+  }
 
-      if (displayTasks.isEmpty()) {
-        System.out.println("No tasks found with status: " + statusFilter);
-        return;
+  /**
+   * Prints the tasks of a listing under a heading. Rows are formatted into a buffer that is
+   * written in large chunks, instead of a write and flush per row.
+   */
+  private static final class ListingPrinter implements Consumer<Task> {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final String heading;
+    private final StringBuilder out = new StringBuilder(CHUNK_SIZE + 256);
+    private int printed;
+
+    ListingPrinter(String heading) {
+      this.heading = heading;
+    }
+
+    @Override
+    public void accept(Task task) {
+      if (printed++ == 0) {
+        out.append('\n').append(heading).append('\n');
+      }
+      out.append('[').append(task.getId()).append("] ").append(task.getDescription())
+          .append(" - Status: ").append(task.getStatus()).append(" (Created: ");
+      task.appendCreatedAt(out).append(")\n");
+      if (out.length() >= CHUNK_SIZE) {
+        flush();
       }
     }
 
-    System.out.println("\n--- Tasks ---");
-    for (Task task : displayTasks) {
-      System.out.println("[" + task.getId() + "] " + task.getDescription() + " - Status: "
-          + task.getStatus() + " (Created: " + task.getCreatedAt() + ")");
+    /**
+     * Gets the number of tasks printed so far.
+     *
+     * @return The number of rows.
+     */
+    int printed() {
+      return printed;
+    }
+
+    /**
+     * Writes the rows that are still buffered.
+     */
+    void flush() {
+      System.out.print(out);
+      out.setLength(0);
     }
-    System.out.println();
+  }
+
+  /**
+   * Source of tasks for the SEARCH command, such as the search index or the tasks in memory.
+   */
+  @FunctionalInterface
+  interface SearchSource {
+    /**
+     * Feeds the tasks whose descriptions match the query to the consumer.
+     *
+     * @param query The query.
+     * @param consumer Receives the matching tasks in order.
+     * @return The number of matching tasks.
+     */
+    int search(TaskQuery query, Consumer<Task> consumer);
+  }
+
+  /**
+   * Handles the SEARCH command: displays the tasks whose descriptions contain the given words (see
+   * {@link TaskQuery} for the query syntax).
+   *
+   * @param tasks Source of the matching tasks.
+   * @param args Command-line arguments where args[1+] are the words to search for.
+   * @return True unless the query is empty.
+   */
+  private static boolean handleSearch(SearchSource tasks, String[] args) {
+    TaskQuery query;
+    try {
+      query = TaskQuery.parse(java.util.Arrays.copyOfRange(args, 1, args.length));
+    } catch (IllegalArgumentException e) {
+      System.out.println("Error: " + e.getMessage());
+      return false;
+    }
+
+    ListingPrinter printer = new ListingPrinter("--- Tasks matching: " + query + " ---");
+    int found = tasks.search(query, printer);
+    printer.flush();
+
+    if (found == 0) {
+      System.out.println("No tasks found matching: " + query);
+    } else {
+      System.out.println();
+    }
+    return true;
   }
 
   /**
@@ -127,39 +444,35 @@ public class TaskTracker {
    *
    * @param tasks The current list of tasks in memory.
    * @param args Command-line arguments where args[1] is the task ID to delete.
+   * @return True if the task was deleted.
    */
-  private static void handleDelete(List<Task> tasks, String[] args) {
+  private static boolean handleDelete(TaskRepository tasks, String[] args) {
     // Validate that an ID was provided
     if (args.length < 2) {
       System.out.println("Error: Please provide a task ID to delete.");
-      return;
+      return false;
     }
 
     try {
       int idToDelete = Integer.parseInt(args[1]);
 
-      // Find the task with the given ID
-      Task foundTask = null;
-      for (Task task : tasks) {
-        if (task.getId() == idToDelete) {
-          foundTask = task;
-          break;
-        }
-      }
+      // Remove the task with the given ID
+      Task foundTask = tasks.remove(idToDelete);
 
       // Check if task was found
       if (foundTask == null) {
         System.out.println("Task not found with ID: " + idToDelete);
-        return;
+        return false;
       }
 
-      // Remove the task and save to disk
-      tasks.remove(foundTask);
-      fileHandler.saveTasks(tasks);
+      // Save the removal to disk
+      fileHandler.deleteTask(tasks, foundTask);
       System.out.println("Task deleted: [" + idToDelete + "] " + foundTask.getDescription());
+      return true;
 
     } catch (NumberFormatException e) {
       System.out.println("Error: Invalid task ID. Please provide a numeric ID.");
+      return false;
     }
   }
 
@@ -169,12 +482,13 @@ public class TaskTracker {
    * @param tasks The current list of tasks in memory.
    * @param args Command-line arguments where args[1] is the task ID and args[2+] is the new
    *        description.
+   * @return True if the task was updated.
    */
-  private static void handleUpdate(List<Task> tasks, String[] args) {
+  private static boolean handleUpdate(TaskRepository tasks, String[] args) {
     // Validate that an ID and new description were provided
     if (args.length < 3) {
       System.out.println("Error: Please provide a task ID and new description.");
-      return;
+      return false;
     }
 
     try {
@@ -190,27 +504,23 @@ public class TaskTracker {
       }
 
       // Find the task with the given ID
-      Task foundTask = null;
-      for (Task task : tasks) {
-        if (task.getId() == idToUpdate) {
-          foundTask = task;
-          break;
-        }
-      }
+      Task foundTask = tasks.get(idToUpdate);
 
       // Check if task was found
       if (foundTask == null) {
         System.out.println("Task not found with ID: " + idToUpdate);
-        return;
+        return false;
       }
 
       // Update the task and save to disk
       foundTask.setDescription(newDescription.toString());
-      fileHandler.saveTasks(tasks);
+      fileHandler.saveTask(tasks, foundTask);
       System.out.println("Task updated: [" + idToUpdate + "] " + newDescription);
+      return true;
 
     } catch (NumberFormatException e) {
       System.out.println("Error: Invalid task ID. Please provide a numeric ID.");
+      return false;
     }
   }
 
@@ -219,40 +529,37 @@ public class TaskTracker {
    *
    * @param tasks The current list of tasks in memory.
    * @param args Command-line arguments where args[1] is the task ID.
+   * @return True if the task was marked.
    */
-  private static void handleMarkInProgress(List<Task> tasks, String[] args) {
+  private static boolean handleMarkInProgress(TaskRepository tasks, String[] args) {
     // Validate that an ID was provided
     if (args.length < 2) {
       System.out.println("Error: Please provide a task ID.");
-      return;
+      return false;
     }
 
     try {
       int idToUpdate = Integer.parseInt(args[1]);
 
       // Find the task with the given ID
-      Task foundTask = null;
-      for (Task task : tasks) {
-        if (task.getId() == idToUpdate) {
-          foundTask = task;
-          break;
-        }
-      }
+      Task foundTask = tasks.get(idToUpdate);
 
       // Check if task was found
       if (foundTask == null) {
         System.out.println("Task not found with ID: " + idToUpdate);
-        return;
+        return false;
       }
 
       // Update status and save to disk
-      foundTask.setStatus(Task.Status.IN_PROGRESS);
-      fileHandler.saveTasks(tasks);
+      tasks.setStatus(foundTask, Task.Status.IN_PROGRESS);
+      fileHandler.saveTask(tasks, foundTask);
       System.out.println(
           "Task marked as in-progress: [" + idToUpdate + "] " + foundTask.getDescription());
+      return true;
 
     } catch (NumberFormatException e) {
       System.out.println("Error: Invalid task ID. Please provide a numeric ID.");
+      return false;
     }
   }
 
@@ -261,63 +568,292 @@ public class TaskTracker {
    *
    * @param tasks The current list of tasks in memory.
    * @param args Command-line arguments where args[1] is the task ID.
+   * @return True if the task was marked.
    */
-  private static void handleMarkDone(List<Task> tasks, String[] args) {
+  private static boolean handleMarkDone(TaskRepository tasks, String[] args) {
     // Validate that an ID was provided
     if (args.length < 2) {
       System.out.println("Error: Please provide a task ID.");
-      return;
+      return false;
     }
 
     try {
       int idToUpdate = Integer.parseInt(args[1]);
 
       // Find the task with the given ID
-      Task foundTask = null;
-      for (Task task : tasks) {
-        if (task.getId() == idToUpdate) {
-          foundTask = task;
-          break;
-        }
-      }
+      Task foundTask = tasks.get(idToUpdate);
 
       // Check if task was found
       if (foundTask == null) {
         System.out.println("Task not found with ID: " + idToUpdate);
-        return;
+        return false;
       }
 
       // Update status and save to disk
-      foundTask.setStatus(Task.Status.DONE);
-      fileHandler.saveTasks(tasks);
+      tasks.setStatus(foundTask, Task.Status.DONE);
+      fileHandler.saveTask(tasks, foundTask);
       System.out.println("Task marked as done: [" + idToUpdate + "] " + foundTask.getDescription());
+      return true;
 
     } catch (NumberFormatException e) {
       System.out.println("Error: Invalid task ID. Please provide a numeric ID.");
+      return false;
+    }
+  }
+
+  /**
+   * Handles the CONVERT command: writes all tasks to the task file of the given format.
+   *
+   * @param args Command-line arguments where args[1] is the target format ("json", "binary" or
+   *        "slotted").
+   * @return True if the file was written.
+   */
+  private static boolean handleConvert(String[] args) {
+    // Validate that a supported format was provided
+    if (args.length < 2 || !args[1].equalsIgnoreCase("json")
+        && !args[1].equalsIgnoreCase("binary") && !args[1].equalsIgnoreCase("slotted")) {
+      System.out.println("Error: Please provide a target format (json, binary or slotted).");
+      return false;
+    }
+
+    java.nio.file.Path written = fileHandler.convertTo(args[1].toLowerCase());
+    if (written == null) {
+      return false;
+    }
+    System.out.println("Tasks converted to " + args[1].toLowerCase() + ": " + written);
+    return true;
+  }
+
+  /**
+   * Handles the BATCH command: reads one command per line from a file or standard input and
+   * applies them all against a single loaded list. Single-task saves are held back and the list is
+   * saved once at the end, or after every N commands with {@code --save-every=N}. Blank lines and
+   * lines starting with '#' are skipped; arguments containing spaces may be quoted.
+   *
+   * <p>The batch holds the exclusive lock of the task files from the load to the last save, so
+   * other processes wait for it instead of conflicting with it. While a daemon serves the data
+   * directory, the commands are sent to it one by one instead, since it holds the current list and
+   * saves each change itself.
+   *
+   * @param args Command-line arguments where args[1+] are the options and the optional file name
+   *        ("-" or none for standard input).
+   * @param socketPath The socket of a daemon that may be serving the data directory.
+   */
+  private static void handleBatch(String[] args, java.nio.file.Path socketPath) {
+    int saveEvery = 0;
+    String source = null;
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].startsWith("--save-every=")) {
+        try {
+          saveEvery = Integer.parseInt(args[i].substring("--save-every=".length()));
+        } catch (NumberFormatException e) {
+          saveEvery = -1;
+        }
+        if (saveEvery < 1) {
+          System.out.println("Error: --save-every needs a positive number of commands.");
+          return;
+        }
+      } else if (source == null) {
+        source = args[i];
+      } else {
+        System.out.println("Error: Please provide at most one batch file.");
+        return;
+      }
+    }
+
+    long start = System.nanoTime();
+    try (java.io.BufferedReader input = source == null || source.equals("-")
+        ? new java.io.BufferedReader(
+            new java.io.InputStreamReader(System.in, java.nio.charset.StandardCharsets.UTF_8))
+        : java.nio.file.Files.newBufferedReader(
+            java.nio.file.Paths.get(source), java.nio.charset.StandardCharsets.UTF_8)) {
+      int every = saveEvery;
+      if (TaskDaemon.isRunning(socketPath)) {
+        runBatch(input, null, every, socketPath, start);
+      } else {
+        // The list is loaded once and saved by the batch, which no other process may interleave
+        fileHandler.runExclusively(() -> {
+          try {
+            runBatch(input, fileHandler.loadTasks(), every, socketPath, start);
+          } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+          }
+        });
+      }
+    } catch (java.io.IOException e) {
+      System.err.println("Error reading batch: " + e.getMessage());
+    } catch (java.io.UncheckedIOException e) {
+      System.err.println("Error reading batch: " + e.getCause().getMessage());
+    }
+  }
+
+  /**
+   * Runs the commands of a batch and prints its summary.
+   *
+   * @param input The commands, one per line.
+   * @param tasks The loaded tasks, or null to send the commands to the daemon.
+   * @param saveEvery The number of commands after which the list is saved, or 0 to save once.
+   * @param socketPath The socket of the daemon.
+   * @param start When the batch started, from {@link System#nanoTime()}.
+   */
+  private static void runBatch(java.io.BufferedReader input, TaskRepository tasks, int saveEvery,
+      java.nio.file.Path socketPath, long start) throws java.io.IOException {
+    if (tasks != null) {
+      fileHandler.beginBatch();
+    }
+
+    int applied = 0;
+    int saves = 0;
+    int sinceSave = 0;
+    java.util.List<Integer> failedLines = new java.util.ArrayList<>();
+    try {
+      String line;
+      int lineNumber = 0;
+      while ((line = input.readLine()) != null) {
+        lineNumber++;
+        String[] command = parseCommandLine(line);
+        if (command.length == 0 || command[0].startsWith("#")) {
+          continue;
+        }
+
+        boolean ok;
+        String name = command[0].toLowerCase();
+        if (name.equals("batch") || name.equals("serve")) {
+          System.out.println("Error: " + name + " cannot be run inside a batch.");
+          ok = false;
+        } else if (tasks == null) {
+          ok = TaskDaemon.forward(socketPath, command);
+          if (!ok) {
+            System.err.println("Error: The daemon on " + socketPath + " did not take the command.");
+          }
+        } else {
+          try {
+            ok = runCommand(tasks, command);
+          } catch (RuntimeException e) {
+            // One broken command must not lose the changes made by the others
+            System.err.println("Error: " + e.getMessage());
+            ok = false;
+          }
+        }
+
+        if (ok) {
+          applied++;
+        } else {
+          failedLines.add(lineNumber);
+        }
+        if (tasks != null && saveEvery > 0 && ++sinceSave == saveEvery) {
+          sinceSave = 0;
+          if (fileHandler.flush(tasks)) {
+            saves++;
+          }
+        }
+      }
+    } finally {
+      if (tasks != null && fileHandler.endBatch(tasks)) {
+        saves++;
+      }
+    }
+
+    StringBuilder summary = new StringBuilder("Batch complete: ");
+    summary.append(applied).append(tasks == null ? " sent to the daemon, " : " applied, ")
+        .append(failedLines.size()).append(" failed");
+    if (!failedLines.isEmpty()) {
+      java.util.StringJoiner lines = new java.util.StringJoiner(", ",
+          failedLines.size() > 1 ? " (lines " : " (line ", ")");
+      for (int i = 0; i < Math.min(10, failedLines.size()); i++) {
+        lines.add(failedLines.get(i).toString());
+      }
+      if (failedLines.size() > 10) {
+        lines.add("...");
+      }
+      summary.append(lines);
+    }
+    if (tasks != null) {
+      summary.append(", ").append(saves).append(saves == 1 ? " save" : " saves");
+    }
+    summary.append(String.format(" in %.1f ms", (System.nanoTime() - start) / 1e6));
+    System.out.println(summary);
+  }
+
+  /**
+   * Splits a command line into arguments at whitespace. Double or single quotes group words into
+   * one argument, and a backslash outside single quotes takes the next character literally.
+   *
+   * @param line The command line.
+   * @return The arguments, empty for a blank line.
+   */
+  static String[] parseCommandLine(String line) {
+    java.util.List<String> args = new java.util.ArrayList<>();
+    StringBuilder current = new StringBuilder();
+    boolean inArgument = false;
+    char quote = 0;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '\\' && quote != '\'' && i + 1 < line.length()) {
+        current.append(line.charAt(++i));
+        inArgument = true;
+      } else if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        } else {
+          current.append(c);
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+        inArgument = true;
+      } else if (Character.isWhitespace(c)) {
+        if (inArgument) {
+          args.add(current.toString());
+          current.setLength(0);
+          inArgument = false;
+        }
+      } else {
+        current.append(c);
+        inArgument = true;
+      }
+    }
+    if (inArgument) {
+      args.add(current.toString());
     }
+    return args.toArray(new String[0]);
   }
 
   /**
    * Displays the help menu with usage instructions and examples.
    */
-  private static void displayHelp() {
+  static void displayHelp() {
     System.out.println("\n==== Task Tracker CLI ====");
     System.out.println("Usage: java TaskTracker <command> [arguments]\n");
     System.out.println("Commands:");
     System.out.println("  add <description>              - Add a new task");
-    System.out.println("  list [status]                  - List all tasks or filter by status");
+    System.out.println("  list [status] [options]        - List tasks, filtered, sorted or paged");
+    System.out.println("  search <words>                 - Find tasks by words (AND, OR, prefix*)");
     System.out.println("  delete <id>                    - Delete a task by ID");
     System.out.println("  update <id> <description>      - Update a task's description");
     System.out.println("  mark-in-progress <id>          - Mark a task as in-progress");
-    System.out.println("  mark-done <id>                 - Mark a task as done\n");
-    System.out.println("Status filters: todo, in-progress, done\n");
+    System.out.println("  mark-done <id>                 - Mark a task as done");
+    System.out.println("  convert <json|binary|slotted>  - Write the task file in another format");
+    System.out.println("  batch [--save-every=N] [file]  - Run commands from a file or stdin, saving once");
+    System.out.println("  shell                          - Run commands interactively, saving in the background");
+    System.out.println("  serve                          - Keep tasks in memory and serve commands\n");
+    System.out.println("Status filters: todo, in-progress, done");
+    System.out.println("List options: --created-after=<time> --created-before=<time>"
+        + " --updated-since=<time>");
+    System.out.println("              --sort=<field> --limit=N --offset=M");
+    System.out.println("  where <time> is a date, a date and time, or an age like 2h or 7d,");
+    System.out.println("  and <field> is id, created, updated, status or description");
+    System.out.println("  (-field sorts in descending order)\n");
     System.out.println("Examples:");
     System.out.println("  java TaskTracker add Buy groceries");
     System.out.println("  java TaskTracker list");
     System.out.println("  java TaskTracker list done");
+    System.out.println("  java TaskTracker list --created-after=2024-05-01 --updated-since=1h");
+    System.out.println("  java TaskTracker list todo --sort=-created --limit=20 --offset=20");
+    System.out.println("  java TaskTracker search groceries OR milk*");
     System.out.println("  java TaskTracker mark-in-progress 1");
     System.out.println("  java TaskTracker mark-done 1");
     System.out.println("  java TaskTracker delete 1");
-    System.out.println("  java TaskTracker update 1 Buy milk and bread\n");
+    System.out.println("  java TaskTracker update 1 Buy milk and bread");
+    System.out.println("  java TaskTracker batch commands.txt\n");
   }
 }
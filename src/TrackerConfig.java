@@ -0,0 +1,142 @@
+/**
+ * Central place for the tunable settings of the Task Tracker. Every setting is read from a Java
+ * system property (for example {@code java -Dtasktracker.storage=log -cp src TaskTracker list})
+ * and falls back to a default that keeps the original behaviour. Invalid values are reported and
+ * replaced by the default, so a typo never stops the CLI from starting.
+ */
+public final class TrackerConfig {
+
+  private static final String PREFIX = "tasktracker.";
+
+  private TrackerConfig() {}
+
+  /**
+   * Gets the storage mode: "snapshot" rewrites the whole task file on every change, "log" appends
+   * each change to a write-ahead log that is folded into the snapshot from time to time.
+   *
+   * @return The configured storage mode.
+   */
+  public static String storageMode() {
+    return getChoice("storage", "snapshot", "log");
+  }
+
+  /**
+   * Gets the format of the task file: "json" (data/tasks.json), the compact "binary"
+   * (data/tasks.bin), or "slotted" (data/tasks.slots), whose records can be updated in place.
+   *
+   * @return The configured file format.
+   */
+  public static String format() {
+    return getChoice("format", "json", "binary", "slotted");
+  }
+
+  /**
+   * Gets whether changes are forced to disk before a command completes: appended log records,
+   * in-place writes to the slotted file, and the data directory after a task file was replaced.
+   *
+   * @return True if every write is followed by an fsync.
+   */
+  public static boolean fsync() {
+    return Boolean.parseBoolean(get("fsync", "false"));
+  }
+
+  /**
+   * Gets the log size after which the log is compacted into a new snapshot.
+   *
+   * @return The threshold in bytes.
+   */
+  public static long compactionThreshold() {
+    return getLong("compactBytes", 4L * 1024 * 1024);
+  }
+
+  /**
+   * Gets the group commit window of the interactive shell: how long after the first unsaved change
+   * further changes are collected before they are written in the background.
+   *
+   * @return The window in milliseconds.
+   */
+  public static long saveDelayMillis() {
+    return getLong("saveDelayMs", 500);
+  }
+
+  /**
+   * Gets how long the {@code serve} daemon and the processes forwarding commands to it wait for
+   * each other: the daemon for a request and for the client to take the reply, a client for the
+   * daemon to take the request and to answer.
+   *
+   * @return The timeout in milliseconds.
+   */
+  public static long daemonTimeoutMillis() {
+    long timeout = getLong("daemonTimeoutMs", 30_000);
+    return timeout >= 1 ? timeout : invalid("daemonTimeoutMs", String.valueOf(timeout), 30_000L);
+  }
+
+  /**
+   * Gets how many threads work on a large load or save at once; 1 keeps the work on the calling
+   * thread.
+   *
+   * @return The number of threads, by default one per available processor.
+   */
+  public static int threads() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    long threads = getLong("threads", processors);
+    return threads >= 1 && threads <= 1024 ? (int) threads
+        : invalid("threads", String.valueOf(threads), processors);
+  }
+
+  /**
+   * Gets the size from which a JSON task file is parsed in slices on several threads (see
+   * {@link #threads()}) instead of in a single pass.
+   *
+   * @return The threshold in bytes.
+   */
+  public static long parallelLoadBytes() {
+    return getLong("parallelLoadBytes", 16L * 1024 * 1024);
+  }
+
+  /**
+   * Gets the number of tasks from which a JSON task file is serialized in slices on several
+   * threads (see {@link #threads()}) and written with gathering writes, instead of in a single
+   * stream.
+   *
+   * @return The threshold in tasks.
+   */
+  public static long parallelSaveTasks() {
+    return getLong("parallelSaveTasks", 100_000);
+  }
+
+  private static String get(String name, String defaultValue) {
+    return System.getProperty(PREFIX + name, defaultValue);
+  }
+
+  /**
+   * Reads a setting that must be one of a fixed set of values, the first of which is the default.
+   */
+  private static String getChoice(String name, String... choices) {
+    String value = get(name, choices[0]).trim().toLowerCase();
+    for (String choice : choices) {
+      if (choice.equals(value)) {
+        return choice;
+      }
+    }
+    return invalid(name, value, choices[0]);
+  }
+
+  private static long getLong(String name, long defaultValue) {
+    String value = System.getProperty(PREFIX + name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return invalid(name, value, defaultValue);
+    }
+  }
+
+  private static <T> T invalid(String name, String value, T defaultValue) {
+    System.err.println(
+        "Invalid value for " + PREFIX + name + ": " + value + " (using " + defaultValue + ")");
+    return defaultValue;
+  }
+}